@@ -0,0 +1,83 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Etapa 3 do ETL: ordenação e escrita do despesas_agregadas.csv. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AgregadoBenchmark {
+
+    private static final int DESPESAS_POR_OPERADORA = 12;
+    private static final long[] SEM_PERCENTIS = new long[AgregadorDespesas.PERCENTIS.length];
+
+    @Param({"1000", "100000"})
+    int operadoras;
+
+    private AgregadorDespesas agregador;
+    private Path saida;
+
+    @Setup(Level.Trial)
+    public void gerar() throws IOException {
+        AgregadorDespesas.Dicionario dicionario = new AgregadorDespesas.Dicionario();
+        for (int i = 0; i < operadoras; i++) {
+            dicionario.idPara("OPERADORA " + i + " LTDA", i % 3 == 0 ? "SP" : "RJ");
+        }
+        agregador = dicionario.criarAgregador();
+
+        SplittableRandom rnd = new SplittableRandom(GeradorFixturesAns.SEMENTE);
+        for (int id = 0; id < operadoras; id++) {
+            for (int j = 0; j < DESPESAS_POR_OPERADORA; j++) {
+                agregador.adicionar(id, rnd.nextLong(-1_000, 5_000_000), j % 3);
+            }
+        }
+
+        Files.createDirectories(GeradorFixturesAns.PASTA_PADRAO);
+        saida = GeradorFixturesAns.PASTA_PADRAO.resolve("agregado_" + operadoras + ".csv");
+    }
+
+    @Benchmark
+    public Path gerarArquivoAgregado() throws IOException {
+        ColetaDadosAns.gerarArquivoAgregado(saida, agregador);
+        return saida;
+    }
+
+    /** Só a ordenação, nos três modos do RankingDespesas (externo com orçamento de 256 KiB, forçando runs). */
+    @Benchmark
+    public long ranking(RankingState estado) throws IOException {
+        long[] soma = {0};
+        try (RankingDespesas ranking = new RankingDespesas(estado.modo, 100, 256 * 1024, GeradorFixturesAns.PASTA_PADRAO.resolve("ranking"))) {
+            for (int id = 0; id < agregador.tamanho(); id++) {
+                ranking.adicionar(agregador.razaoSocial(id), agregador.uf(id), agregador.totalDespesas(id), 0, 0, SEM_PERCENTIS);
+            }
+            ranking.escrever(linha -> soma[0] += linha.total);
+        }
+        return soma[0];
+    }
+
+    @State(Scope.Benchmark)
+    public static class RankingState {
+        @Param({"memoria", "topk", "externo"})
+        String modo;
+    }
+}
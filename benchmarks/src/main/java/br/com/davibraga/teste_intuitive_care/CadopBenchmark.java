@@ -0,0 +1,67 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Etapa 1 do ETL: carga do Relatorio_cadop (leitura única do CSV ou snapshot binário). */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CadopBenchmark {
+
+    @Param({"1000", "100000"})
+    int operadoras;
+
+    private Path csv;
+    private Path pasta;
+    private Path normalizado;
+    private Path snapshot;
+    private String sha256;
+
+    @Setup(Level.Trial)
+    public void gerar() throws IOException {
+        csv = GeradorFixturesAns.cadop(GeradorFixturesAns.PASTA_PADRAO, operadoras);
+        pasta = GeradorFixturesAns.PASTA_PADRAO.resolve("cadastro_" + operadoras);
+        Files.createDirectories(pasta);
+        normalizado = pasta.resolve(CadastroOperadoras.ARQUIVO_NORMALIZADO);
+        snapshot = pasta.resolve(CadastroOperadoras.ARQUIVO_SNAPSHOT);
+
+        sha256 = CacheDownloads.sha256(csv);
+        CadastroOperadoras.lerCsv(csv, normalizado, sha256).salvarSnapshot(snapshot);
+    }
+
+    // Primeira execução (ou CADOP novo): normaliza, valida e indexa em uma passada
+    @Benchmark
+    public CadastroOperadoras lerCsv() throws IOException {
+        return CadastroOperadoras.lerCsv(csv, normalizado, sha256);
+    }
+
+    // Execuções seguintes: hash da entrada + snapshot mapeado
+    @Benchmark
+    public CadastroOperadoras carregarComSnapshot() throws IOException {
+        return CadastroOperadoras.carregar(csv, pasta);
+    }
+
+    @Benchmark
+    public CadastroOperadoras abrirSnapshot() throws IOException {
+        return CadastroOperadoras.abrirSnapshot(snapshot, sha256);
+    }
+}
@@ -0,0 +1,77 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Padronização e validação de CNPJ (uma vez por linha do CADOP), em texto e pelo {@link CodecCnpj}. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CnpjBenchmark {
+
+    private static final int QUANTIDADE = 4096; // potência de 2 (máscara no índice)
+
+    private String[] cnpjs;
+    private long[] lidos;
+    private boolean[] validos;
+    private int proximo;
+
+    @Setup
+    public void gerar() {
+        SplittableRandom rnd = new SplittableRandom(GeradorFixturesAns.SEMENTE);
+        cnpjs = new String[QUANTIDADE];
+        for (int i = 0; i < QUANTIDADE; i++) {
+            String c = GeradorFixturesAns.cnpj(rnd);
+            // Mesmas variações que aparecem no CADOP: só dígitos, formatado, sem zeros à esquerda
+            switch (i % 3) {
+                case 0 -> cnpjs[i] = c;
+                case 1 -> cnpjs[i] = c.substring(0, 2) + "." + c.substring(2, 5) + "." + c.substring(5, 8)
+                        + "/" + c.substring(8, 12) + "-" + c.substring(12);
+                default -> cnpjs[i] = c.replaceFirst("^0+", "");
+            }
+        }
+        lidos = new long[QUANTIDADE];
+        for (int i = 0; i < QUANTIDADE; i++) lidos[i] = CodecCnpj.ler(cnpjs[i]);
+        validos = new boolean[QUANTIDADE];
+    }
+
+    private String proximo() {
+        return cnpjs[proximo++ & (QUANTIDADE - 1)];
+    }
+
+    @Benchmark
+    public String padronizarCnpj() {
+        return ColetaDadosAns.padronizarCnpj(proximo());
+    }
+
+    @Benchmark
+    public boolean isCnpjValido() {
+        return ColetaDadosAns.isCnpjValido(proximo());
+    }
+
+    /** Só os dígitos verificadores, um CNPJ já em long por chamada. */
+    @Benchmark
+    public boolean valido() {
+        return CodecCnpj.valido(lidos[proximo++ & (QUANTIDADE - 1)]);
+    }
+
+    /** Coluna de CNPJs já em long (carga do CADOP); score por operação = coluna de {@value #QUANTIDADE}. */
+    @Benchmark
+    public int validarColuna() {
+        return CodecCnpj.validar(lidos, QUANTIDADE, validos);
+    }
+}
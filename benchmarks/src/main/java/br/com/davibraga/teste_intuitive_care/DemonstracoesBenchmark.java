@@ -0,0 +1,116 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipInputStream;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Etapa 2 do ETL: filtro, join com o CADOP, escrita do consolidado e agregação de um arquivo de
+ * demonstrações (o laço do processarZip). O consolidado vai para um canal nulo, para medir só o ETL.
+ *
+ * Escala com -p linhas=... (ex: 50000000); o contador "linhas" reporta linhas/s. O modo em blocos usa
+ * -Dans.blocos.threads / -Dans.blocos.tamanhoKb (passe com -jvmArgsAppend para variar os núcleos).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DemonstracoesBenchmark {
+
+    @Param({"1000"})
+    int operadoras;
+
+    @Param({"10000", "1000000"})
+    long linhas;
+
+    private Path pasta;
+    private Path csv;
+    private Path zip;
+    private CadastroOperadoras cadastro;
+
+    /** Linhas de demonstrações processadas, reportadas como throughput. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Contador {
+        public long linhas;
+
+        @Setup(Level.Iteration)
+        public void zerar() {
+            linhas = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void gerar() throws IOException {
+        pasta = GeradorFixturesAns.PASTA_PADRAO;
+        Path cadop = GeradorFixturesAns.cadop(pasta, operadoras);
+        csv = GeradorFixturesAns.demonstracoesCsv(pasta, operadoras, linhas);
+        zip = GeradorFixturesAns.demonstracoesZip(pasta, operadoras, linhas);
+
+        cadastro = CadastroOperadoras.carregar(cadop, pasta.resolve("cadastro_" + operadoras));
+    }
+
+    @Benchmark
+    public AgregadorDespesas processarCsv(Contador contador) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(csv), 1 << 16)) {
+            return processar(in, contador);
+        }
+    }
+
+    // Inclui a descompressão, como no processarZip
+    @Benchmark
+    public AgregadorDespesas processarZip(Contador contador) throws IOException {
+        try (ZipInputStream zis = new ZipInputStream(
+                new BufferedInputStream(Files.newInputStream(zip), 1 << 16), StandardCharsets.UTF_8)) {
+            zis.getNextEntry();
+            return processar(zis, contador);
+        }
+    }
+
+    // Mesmo CSV pelo ProcessamentoEmBlocos (-Dans.blocos=true): extração + blocos no ForkJoinPool
+    @Benchmark
+    public AgregadorDespesas processarCsvEmBlocos(Contador contador) throws IOException {
+        AgregadorDespesas parcial = cadastro.novoAgregador();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(csv), 1 << 16)) {
+            EscritorCsv writer = new EscritorCsv(Channels.newChannel(OutputStream.nullOutputStream()));
+            ProcessamentoEmBlocos.processar(in, pasta, "1T", "2025", 0, writer, cadastro, parcial,
+                    new MetricasExecucao.Contadores("bench"));
+            writer.flush();
+        }
+        contador.linhas += linhas;
+        return parcial;
+    }
+
+    private AgregadorDespesas processar(InputStream in, Contador contador) throws IOException {
+        AgregadorDespesas parcial = cadastro.novoAgregador();
+        EscritorCsv writer = new EscritorCsv(Channels.newChannel(OutputStream.nullOutputStream()));
+        ColetaDadosAns.processarCsvDemonstracoes(in, "1T", "2025", 0, writer, cadastro, parcial,
+                new MetricasExecucao.Contadores("bench"));
+        writer.flush();
+        contador.linhas += linhas;
+        return parcial;
+    }
+}
@@ -0,0 +1,39 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Ponto de entrada do jar de benchmarks. Aceita as mesmas opções do JMH (filtro por regex, -p, -f...)
+ * e sempre liga o GCProfiler (gc.alloc.rate.norm = bytes alocados por operação) e grava o resultado
+ * em JSON, para comparar versões: java -jar target/benchmarks.jar [regex] [-p linhas=50000000]
+ */
+public final class ExecutarBenchmarks {
+
+    private static final Path RESULTADO = Paths.get(System.getProperty("ans.bench.resultado", "target/jmh-resultado.json"));
+
+    private ExecutarBenchmarks() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Files.createDirectories(RESULTADO.toAbsolutePath().getParent());
+
+        Options opcoes = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(RESULTADO.toString())
+                .build();
+
+        new Runner(opcoes).run();
+        System.out.println("Resultado gravado em " + RESULTADO.toAbsolutePath());
+    }
+}
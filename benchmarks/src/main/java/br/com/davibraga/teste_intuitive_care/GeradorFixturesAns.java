@@ -0,0 +1,234 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.SplittableRandom;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Gera fixtures no formato da ANS (CADOP e demonstrações contábeis) para os benchmarks.
+ *
+ * A saída é determinística: mesma semente e mesma escala produzem os mesmos bytes, então os números
+ * de execuções diferentes (e de versões diferentes do ETL) são comparáveis. Os arquivos ficam em
+ * cache na pasta de fixtures e só são gerados na primeira vez.
+ *
+ * Uso avulso: GeradorFixturesAns <pasta> <operadoras> <linhasDemonstracoes>
+ */
+final class GeradorFixturesAns {
+
+    static final long SEMENTE = 42L;
+    static final Path PASTA_PADRAO = Paths.get(System.getProperty("ans.bench.fixtures", "target/fixtures"));
+
+    private static final String CABECALHO_CADOP = "REGISTRO_OPERADORA;CNPJ;Razao_Social;Nome_Fantasia;Modalidade;Logradouro;"
+            + "Numero;Complemento;Bairro;Cidade;UF;CEP;DDD;Telefone;Fax;Endereco_eletronico;Representante;"
+            + "Cargo_Representante;Regiao_de_Comercializacao;Data_Registro_ANS";
+    private static final String CABECALHO_DEMONSTRACOES =
+            "\"DATA\";\"REG_ANS\";\"CD_CONTA_CONTABIL\";\"DESCRICAO\";\"VL_SALDO_INICIAL\";\"VL_SALDO_FINAL\"";
+
+    private static final String[] MODALIDADES = {
+        "Medicina de Grupo", "Cooperativa Médica", "Odontologia de Grupo", "Autogestão",
+        "Administradora de Benefícios", "Seguradora Especializada em Saúde", "Filantropia"
+    };
+    private static final String[] UFS = {
+        "AC", "AL", "AM", "AP", "BA", "CE", "DF", "ES", "GO", "MA", "MG", "MS", "MT", "PA",
+        "PB", "PE", "PI", "PR", "RJ", "RN", "RO", "RR", "RS", "SC", "SE", "SP", "TO"
+    };
+    private static final String[] SILABAS = {
+        "SA", "ÚDE", "VI", "DA", "UNI", "MED", "ODON", "TO", "PRE", "VEN", "BRA", "SIL", "CAR", "ASS", "IST", "ÊNCIA"
+    };
+    private static final String[] SUFIXOS = {"LTDA", "S.A.", "LTDA.", "COOPERATIVA", "EIRELI"};
+    // Mesma proporção aproximada dos arquivos reais: a conta filtrada é minoria
+    private static final String[] DESCRICOES = {
+        "Despesas com Eventos / Sinistros", "DESPESAS COM EVENTOS / SINISTROS",
+        "Contraprestações Efetivas de Operações de Planos de Assistência à Saúde",
+        "Despesas Administrativas", "Outras Receitas Operacionais", "Despesas de Comercialização",
+        "Tributos Diretos de Operações com Planos de Assistência à Saúde da Operadora",
+        "Receitas Financeiras"
+    };
+    private static final String[] CONTAS = {"41", "411", "4111", "31", "46", "311", "32"};
+
+    private GeradorFixturesAns() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path pasta = args.length > 0 ? Paths.get(args[0]) : PASTA_PADRAO;
+        int operadoras = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        long linhas = args.length > 2 ? Long.parseLong(args[2]) : 10_000;
+
+        System.out.println("CADOP: " + cadop(pasta, operadoras));
+        System.out.println("Demonstrações: " + demonstracoesZip(pasta, operadoras, linhas));
+    }
+
+    // --- CADOP ---
+
+    /** Relatorio_cadop "cru" (aspas, CNPJ sem zeros à esquerda, campos vazios), como vem da ANS. */
+    static Path cadop(Path pasta, int operadoras) throws IOException {
+        Path destino = pasta.resolve("cadop_" + operadoras + ".csv");
+        if (Files.exists(destino)) return destino;
+
+        Files.createDirectories(pasta);
+        Path tmp = pasta.resolve(destino.getFileName() + ".tmp");
+        SplittableRandom rnd = new SplittableRandom(SEMENTE);
+
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            w.write(CABECALHO_CADOP);
+            w.newLine();
+            for (int i = 0; i < operadoras; i++) {
+                String cnpj = cnpj(rnd);
+                double sorte = rnd.nextDouble();
+                if (sorte < 0.05) cnpj = cnpj.replaceFirst("^0+", ""); // zeros perdidos no Excel
+                else if (sorte < 0.06) cnpj = cnpj.substring(0, 13) + (char) ('0' + (cnpj.charAt(13) - '0' + 1) % 10); // DV errado
+
+                w.write(String.valueOf(registroAns(i)));
+                w.write(";\"" + cnpj + "\";\"");
+                w.write(razaoSocial(rnd, i));
+                w.write("\";;\"");
+                w.write(MODALIDADES[rnd.nextInt(MODALIDADES.length)]);
+                w.write("\";\"RUA ");
+                w.write(SILABAS[rnd.nextInt(SILABAS.length)]);
+                w.write("\";" + rnd.nextInt(1, 5000) + ";;CENTRO;Cidade;");
+                w.write(UFS[rnd.nextInt(UFS.length)]);
+                w.write(";" + rnd.nextInt(1_000_000, 99_999_999) + ";" + rnd.nextInt(11, 99) + ";");
+                w.write(rnd.nextInt(30_000_000, 99_999_999) + ";;contato@operadora.com.br;FULANO DE TAL;DIRETOR;");
+                w.write(rnd.nextInt(1, 7) + ";" + rnd.nextInt(35_000, 45_000));
+                w.newLine();
+            }
+        }
+        Files.move(tmp, destino, StandardCopyOption.REPLACE_EXISTING);
+        return destino;
+    }
+
+    static int registroAns(int indice) {
+        return 300_000 + indice;
+    }
+
+    private static String razaoSocial(SplittableRandom rnd, int indice) {
+        StringBuilder sb = new StringBuilder();
+        int partes = rnd.nextInt(2, 5);
+        for (int p = 0; p < partes; p++) sb.append(SILABAS[rnd.nextInt(SILABAS.length)]);
+        // Sufixo numérico mantém as razões distintas mesmo com muitas operadoras
+        return sb.append(' ').append(indice).append(' ').append(SUFIXOS[rnd.nextInt(SUFIXOS.length)]).toString();
+    }
+
+    /** CNPJ de 14 dígitos com dígitos verificadores corretos. */
+    static String cnpj(SplittableRandom rnd) {
+        int[] d = new int[14];
+        for (int i = 0; i < 8; i++) d[i] = rnd.nextInt(10);
+        d[8] = 0;
+        d[9] = 0;
+        d[10] = 0;
+        d[11] = rnd.nextInt(1, 10);
+        d[12] = digitoVerificador(d, 12);
+        d[13] = digitoVerificador(d, 13);
+
+        char[] c = new char[14];
+        for (int i = 0; i < 14; i++) c[i] = (char) ('0' + d[i]);
+        return new String(c);
+    }
+
+    private static int digitoVerificador(int[] d, int n) {
+        int soma = 0;
+        int peso = 2;
+        for (int i = n - 1; i >= 0; i--) {
+            soma += d[i] * peso;
+            peso = peso == 9 ? 2 : peso + 1;
+        }
+        int r = soma % 11;
+        return r < 2 ? 0 : 11 - r;
+    }
+
+    // --- DEMONSTRAÇÕES CONTÁBEIS ---
+
+    /** CSV de demonstrações (como dentro do ZIP da ANS) com o REG_ANS das operadoras do CADOP gerado. */
+    static Path demonstracoesCsv(Path pasta, int operadoras, long linhas) throws IOException {
+        Path destino = pasta.resolve("demonstracoes_" + operadoras + "_" + linhas + ".csv");
+        if (Files.exists(destino)) return destino;
+
+        Files.createDirectories(pasta);
+        Path tmp = pasta.resolve(destino.getFileName() + ".tmp");
+        try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            escreverDemonstracoes(w, operadoras, linhas);
+        }
+        Files.move(tmp, destino, StandardCopyOption.REPLACE_EXISTING);
+        return destino;
+    }
+
+    /** Mesmo conteúdo do {@link #demonstracoesCsv}, compactado em um ZIP com uma entrada. */
+    static Path demonstracoesZip(Path pasta, int operadoras, long linhas) throws IOException {
+        Path destino = pasta.resolve("demonstracoes_" + operadoras + "_" + linhas + ".zip");
+        if (Files.exists(destino)) return destino;
+
+        Files.createDirectories(pasta);
+        Path tmp = pasta.resolve(destino.getFileName() + ".tmp");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(tmp))) {
+            zip.putNextEntry(new ZipEntry("1T2025.csv"));
+            Writer w = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 1 << 16);
+            escreverDemonstracoes(w, operadoras, linhas);
+            w.flush();
+            zip.closeEntry();
+        }
+        Files.move(tmp, destino, StandardCopyOption.REPLACE_EXISTING);
+        return destino;
+    }
+
+    private static void escreverDemonstracoes(Writer w, int operadoras, long linhas) throws IOException {
+        SplittableRandom rnd = new SplittableRandom(SEMENTE + 1);
+        StringBuilder linha = new StringBuilder(128);
+
+        w.write(CABECALHO_DEMONSTRACOES);
+        w.write('\n');
+        for (long i = 0; i < linhas; i++) {
+            double sorte = rnd.nextDouble();
+            // ~1% de REG_ANS fora do CADOP (operadoras canceladas)
+            int reg = sorte < 0.01 ? 900_000 + rnd.nextInt(1000) : registroAns(rnd.nextInt(operadoras));
+
+            linha.setLength(0);
+            linha.append("\"2025-01-01\";\"").append(reg).append("\";\"")
+                 .append(CONTAS[rnd.nextInt(CONTAS.length)]).append(rnd.nextInt(100)).append("\";\"")
+                 .append(DESCRICOES[rnd.nextInt(DESCRICOES.length)]).append("\";\"0\";\"");
+            valor(linha, rnd, sorte);
+            linha.append("\"\n");
+            w.append(linha);
+        }
+    }
+
+    /** Só a coluna VL_SALDO_FINAL (uma por linha, entre aspas), para medir o parse de valores isolado. */
+    static byte[] colunaValores(int linhas) {
+        SplittableRandom rnd = new SplittableRandom(SEMENTE + 2);
+        StringBuilder sb = new StringBuilder(linhas * 16);
+        for (int i = 0; i < linhas; i++) {
+            sb.append('"');
+            valor(sb, rnd, rnd.nextDouble());
+            sb.append("\"\n");
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Valor no formato brasileiro, com milhar ocasional, sem decimais ou inválido (mesmos casos do arquivo real)
+    private static void valor(StringBuilder sb, SplittableRandom rnd, double sorte) {
+        if (sorte > 0.995) {
+            sb.append("abc");
+            return;
+        }
+        long centavos = rnd.nextLong(-100_000, 500_000_000);
+        if (centavos < 0) sb.append('-');
+        String inteiro = Long.toString(Math.abs(centavos) / 100);
+        if (sorte < 0.2 && inteiro.length() > 3) {
+            sb.append(inteiro, 0, inteiro.length() - 3).append('.').append(inteiro, inteiro.length() - 3, inteiro.length());
+        } else {
+            sb.append(inteiro);
+        }
+        if (sorte < 0.97) {
+            long c = Math.abs(centavos) % 100;
+            sb.append(',').append(c < 10 ? "0" : "").append(c);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Validação e conversão de VL_SALDO_FINAL para centavos (campoCentavos do LeitorCsvBytes, que substituiu
+ * o isNumeric/parseDouble sobre String). Cada operação é um valor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValorBenchmark {
+
+    private static final int LINHAS = 10_000;
+
+    private byte[] coluna;
+
+    @Setup
+    public void gerar() {
+        coluna = GeradorFixturesAns.colunaValores(LINHAS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINHAS)
+    public long validarEConverter() throws IOException {
+        LeitorCsvBytes leitor = new LeitorCsvBytes(new ByteArrayInputStream(coluna));
+        long soma = 0;
+        while (leitor.proximaLinha()) {
+            long centavos = leitor.campoCentavos(0);
+            if (centavos != Centavos.INVALIDO) soma += centavos;
+        }
+        return soma;
+    }
+}
@@ -73,7 +73,12 @@ CREATE TABLE tb_despesas_agregadas (
     uf CHAR(2),
     total_despesas NUMERIC(18,2),
     media_trimestral NUMERIC(18,2),
-    desvio_padrao NUMERIC(18,2)
+    desvio_padrao NUMERIC(18,2),
+    -- Percentis das despesas da operadora (sketch de quantis no ETL, erro de rank ~1%; nessa margem podem
+    -- variar entre os modos de execução do ETL, ver ans.quantis.k no README)
+    p50_despesas NUMERIC(18,2),
+    p90_despesas NUMERIC(18,2),
+    p99_despesas NUMERIC(18,2)
 );
 
 -- Índice para ranking (Order By Total desc)
@@ -0,0 +1,192 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Agregação de despesas em formato colunar, indexada por um id denso de operadora (Razão Social + UF).
+ *
+ * Os ids são atribuídos uma única vez, no carregamento do CADOP ({@link Dicionario}); no laço de ingestão
+ * a atualização é só aritmética sobre arrays primitivos, sem concatenar/hashear chaves nem criar objetos.
+ * Trimestres presentes são guardados como bitmask (até 64 trimestres distintos por execução).
+ *
+ * Totais e médias são exatos, em centavos (long, com estouro detectado); só a variância de Welford,
+ * que não é um valor monetário, continua em ponto flutuante (em reais). Ao lado de Welford cada chave
+ * tem um {@link SketchQuantis} (criado na primeira despesa) para mediana e percentis de cauda.
+ */
+final class AgregadorDespesas {
+
+    /** Percentis publicados no agregado: p50, p90 e p99. */
+    static final double[] PERCENTIS = {0.50, 0.90, 0.99};
+
+    // Dicionário compartilhado (somente leitura) entre o agregador principal e os parciais
+    private final String[] razoes;
+    private final String[] ufs;
+    private final Map<String, Integer> ids;
+
+    private final long[] totais; // centavos
+    // Welford: contagem, média e soma dos quadrados das diferenças
+    private final long[] contagens;
+    private final double[] medias;
+    private final double[] m2;
+    private final long[] trimestres;
+    private final SketchQuantis[] sketches;
+    private final int kQuantis;
+
+    private AgregadorDespesas(String[] razoes, String[] ufs, Map<String, Integer> ids, int kQuantis) {
+        int n = razoes.length;
+        this.razoes = razoes;
+        this.ufs = ufs;
+        this.ids = ids;
+        this.totais = new long[n];
+        this.contagens = new long[n];
+        this.medias = new double[n];
+        this.m2 = new double[n];
+        this.trimestres = new long[n];
+        this.sketches = new SketchQuantis[n];
+        this.kQuantis = kQuantis;
+    }
+
+    /** Novo agregador vazio com o mesmo dicionário (ex: um por trimestre no modo concorrente). */
+    AgregadorDespesas novoParcial() {
+        return new AgregadorDespesas(razoes, ufs, ids, kQuantis);
+    }
+
+    void adicionar(int id, long centavos, int indiceTrimestre) {
+        totais[id] = Math.addExact(totais[id], centavos);
+        trimestres[id] |= 1L << indiceTrimestre;
+
+        // Welford's algorithm para Variância/StdDev on-the-fly
+        double valor = centavos / 100.0;
+        long count = ++contagens[id];
+        double delta = valor - medias[id];
+        medias[id] += delta / count;
+        double delta2 = valor - medias[id];
+        m2[id] += delta * delta2;
+
+        sketch(id).adicionar(centavos);
+    }
+
+    private SketchQuantis sketch(int id) {
+        SketchQuantis s = sketches[id];
+        if (s == null) sketches[id] = s = new SketchQuantis(kQuantis);
+        return s;
+    }
+
+    /** Merge paralelo de Welford (Chan et al.), posição a posição. Exige o mesmo dicionário. */
+    void mesclar(AgregadorDespesas outro) {
+        if (outro.razoes != razoes) throw new IllegalArgumentException("Agregadores com dicionários diferentes");
+
+        for (int id = 0; id < totais.length; id++) {
+            mesclarEstado(id, outro.totais[id], outro.contagens[id], outro.medias[id], outro.m2[id], outro.trimestres[id],
+                    outro.sketches[id]);
+        }
+    }
+
+    /** Mescla um estado de Welford e o sketch avulsos (ex: lidos de checkpoint) na posição id. */
+    void mesclarEstado(int id, long totalCentavos, long count, double mean, double m2Outro, long bitsTrimestres,
+                       SketchQuantis sketchOutro) {
+        if (count == 0) return;
+
+        long nAtual = contagens[id];
+        long n = nAtual + count;
+        double delta = mean - medias[id];
+
+        totais[id] = Math.addExact(totais[id], totalCentavos);
+        trimestres[id] |= bitsTrimestres;
+        m2[id] += m2Outro + delta * delta * ((double) nAtual * count / n);
+        medias[id] += delta * count / n;
+        contagens[id] = n;
+        if (sketchOutro != null) sketch(id).mesclar(sketchOutro);
+    }
+
+    // --- LEITURA ---
+
+    /** Id da chave Razão Social + UF, ou -1 se ela não existe no dicionário. */
+    int id(String razaoSocial, String uf) {
+        return ids.getOrDefault(razaoSocial + "|" + uf, -1);
+    }
+
+    int tamanho() {
+        return totais.length;
+    }
+
+    long contagem(int id) {
+        return contagens[id];
+    }
+
+    double media(int id) {
+        return medias[id];
+    }
+
+    double m2(int id) {
+        return m2[id];
+    }
+
+    /** Sketch da chave (null se ela não tem despesas), para checkpoint. */
+    SketchQuantis sketchQuantis(int id) {
+        return sketches[id];
+    }
+
+    String razaoSocial(int id) {
+        return razoes[id];
+    }
+
+    String uf(int id) {
+        return ufs[id];
+    }
+
+    /** Total em centavos. */
+    long totalDespesas(int id) {
+        return totais[id];
+    }
+
+    /** Média por trimestre em centavos, arredondada como o NUMERIC(18,2). */
+    long mediaTrimestral(int id) {
+        int qtdTrimestres = Long.bitCount(trimestres[id]);
+        if (qtdTrimestres == 0) return 0;
+
+        // Média do total gasto por trimestre ativo
+        return Centavos.dividir(totais[id], qtdTrimestres);
+    }
+
+    double desvioPadrao(int id) {
+        if (contagens[id] < 2) return 0.0;
+        return Math.sqrt(m2[id] / (contagens[id] - 1));
+    }
+
+    /** {@link #PERCENTIS} das despesas da chave, em centavos (aproximados pelo sketch; 0 se não há despesas). */
+    long[] percentis(int id) {
+        SketchQuantis s = sketches[id];
+        return s == null ? new long[PERCENTIS.length] : s.quantis(PERCENTIS);
+    }
+
+    // --- DICIONÁRIO ---
+
+    /** Atribui ids densos para as chaves Razão Social + UF. Usado só na carga, fora do laço quente. */
+    static final class Dicionario {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> razoes = new ArrayList<>();
+        private final List<String> ufs = new ArrayList<>();
+
+        int idPara(String razaoSocial, String uf) {
+            return ids.computeIfAbsent(razaoSocial + "|" + uf, k -> {
+                razoes.add(razaoSocial);
+                ufs.add(uf);
+                return razoes.size() - 1;
+            });
+        }
+
+        int tamanho() {
+            return razoes.size();
+        }
+
+        AgregadorDespesas criarAgregador() {
+            String[] r = razoes.toArray(new String[0]);
+            String[] u = ufs.toArray(new String[0]);
+            return new AgregadorDespesas(r, u, Map.copyOf(ids), SketchQuantis.K_PADRAO);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Autômato de Aho-Corasick sobre bytes: vários padrões buscados numa única passada, cada um com um bit, e o
+ * resultado é a máscara dos padrões encontrados. O custo por byte é um acesso à tabela, qualquer que seja o
+ * número de padrões.
+ *
+ * As transições ficam numa tabela densa estado x classe de byte, com as ligações de falha já resolvidas. Só
+ * os bytes que aparecem em algum padrão têm classe própria; os demais caem na classe 0. A comparação ignora
+ * caixa com a regra de {@link LeitorCsvBytes#minusculo} (os padrões vêm de {@link LeitorCsvBytes#padraoBusca}),
+ * mas a caixa baixa já está nas tabelas de classe: a maiúscula tem a classe da minúscula, e as acentuadas
+ * (segundo byte depois de 0xC3) usam uma tabela à parte. A mesma trie, sem as falhas, responde quais padrões
+ * são prefixo de um campo ({@link #prefixos}).
+ *
+ * Com um padrão só (o caso padrão: apenas a conta principal), {@link #buscar} não usa as tabelas: procura o
+ * primeiro byte do padrão nas duas caixas e só compara o resto onde ele aparece, o que sai mais barato que
+ * uma transição por byte.
+ */
+final class AutomatoPadroes {
+
+    private final char[] classe = new char[256];
+    private final char[] classeAposC3; // byte seguinte a 0xC3 (maiúsculas acentuadas do Latin-1)
+    private final int classes;
+    // Com falhas, já como início da linha do próximo estado (estado * classes): a busca não multiplica por byte
+    private final int[] transicoes;
+    private final long[] saidas;    // na linha do estado: padrões que terminam nele ou em algum sufixo dele
+    private final int[] trie;       // só os ramos dos padrões: -1 = sem transição
+    private final long[] terminais; // padrões que terminam exatamente no estado
+    private final long todos;       // bits de todos os padrões: achados todos, a busca para
+    private final int menor;        // tamanho do menor padrão: da raiz, com menos bytes que isso, a busca para
+    private final byte[] unico;     // o padrão, se todos são iguais (busca direta); senão null
+    private final byte primeiro;    // primeiro byte do único padrão e sua maiúscula
+    private final byte primeiroMaiusculo;
+
+    /** padroes[i] (não vazio) ganha o bit bits[i]; padrões repetidos ou com o mesmo bit somam as máscaras. */
+    AutomatoPadroes(List<byte[]> padroes, List<Integer> bits) {
+        int proxima = 1;
+        int menor = Integer.MAX_VALUE;
+        for (byte[] p : padroes) {
+            menor = Math.min(menor, p.length);
+            if (p.length == 0) throw new IllegalArgumentException("Padrão vazio");
+            for (byte b : p) {
+                if (classe[b & 0xFF] == 0) classe[b & 0xFF] = (char) proxima++;
+            }
+        }
+        this.classes = proxima;
+        this.menor = menor;
+        this.classeAposC3 = classe.clone();
+        for (int b = 0; b < 256; b++) {
+            classe[b] = classe[LeitorCsvBytes.minusculo((byte) 0, (byte) b) & 0xFF];
+            classeAposC3[b] = classeAposC3[LeitorCsvBytes.minusculo((byte) 0xC3, (byte) b) & 0xFF];
+        }
+
+        // 1. Trie dos padrões
+        List<int[]> filhos = new ArrayList<>();
+        List<Long> fins = new ArrayList<>();
+        filhos.add(novoNo());
+        fins.add(0L);
+        for (int i = 0; i < padroes.size(); i++) {
+            int estado = 0;
+            for (byte b : padroes.get(i)) {
+                int c = classe[b & 0xFF];
+                if (filhos.get(estado)[c] < 0) {
+                    filhos.get(estado)[c] = filhos.size();
+                    filhos.add(novoNo());
+                    fins.add(0L);
+                }
+                estado = filhos.get(estado)[c];
+            }
+            fins.set(estado, fins.get(estado) | 1L << bits.get(i));
+        }
+
+        int estados = filhos.size();
+        this.trie = new int[estados * classes];
+        this.terminais = new long[estados];
+        for (int s = 0; s < estados; s++) {
+            System.arraycopy(filhos.get(s), 0, trie, s * classes, classes);
+            terminais[s] = fins.get(s);
+        }
+
+        // 2. Falhas em largura (a falha de um estado é mais rasa, então já está resolvida quando ele sai da fila)
+        int[] transicoes = new int[estados * classes];
+        long[] saidas = new long[estados];
+        int[] falha = new int[estados];
+        int[] fila = new int[estados];
+        int inicio = 0;
+        int fim = 0;
+        saidas[0] = terminais[0];
+        for (int c = 0; c < classes; c++) {
+            int t = trie[c];
+            if (t < 0) {
+                transicoes[c] = 0;
+            } else {
+                transicoes[c] = t;
+                falha[t] = 0;
+                fila[fim++] = t;
+            }
+        }
+        while (inicio < fim) {
+            int s = fila[inicio++];
+            saidas[s] = terminais[s] | saidas[falha[s]];
+            for (int c = 0; c < classes; c++) {
+                int t = trie[s * classes + c];
+                if (t < 0) {
+                    transicoes[s * classes + c] = transicoes[falha[s] * classes + c];
+                } else {
+                    transicoes[s * classes + c] = t;
+                    falha[t] = transicoes[falha[s] * classes + c];
+                    fila[fim++] = t;
+                }
+            }
+        }
+
+        this.transicoes = new int[estados * classes];
+        this.saidas = new long[estados * classes];
+        for (int i = 0; i < transicoes.length; i++) this.transicoes[i] = transicoes[i] * classes;
+        long todos = 0;
+        for (int e = 0; e < estados; e++) {
+            this.saidas[e * classes] = saidas[e];
+            todos |= terminais[e];
+        }
+        this.todos = todos;
+
+        // Busca direta: o primeiro byte não pode ser de continuação (0x80..0xBF), cuja caixa depende do anterior
+        byte[] unico = padroes.isEmpty() ? null : padroes.get(0);
+        for (byte[] p : padroes) {
+            if (unico != null && !Arrays.equals(p, unico)) unico = null;
+        }
+        if (unico != null && (unico[0] & 0xC0) == 0x80) unico = null;
+        this.unico = unico;
+        this.primeiro = unico == null ? 0 : unico[0];
+        this.primeiroMaiusculo = primeiro >= 'a' && primeiro <= 'z' ? (byte) (primeiro - 32) : primeiro;
+    }
+
+    private int[] novoNo() {
+        int[] no = new int[classes];
+        Arrays.fill(no, -1);
+        return no;
+    }
+
+    /** Máscara dos padrões contidos em buf[inicio, fim), sem diferenciar caixa. Não aloca. */
+    long buscar(byte[] buf, int inicio, int fim) {
+        if (unico != null) return buscarUnico(buf, inicio, fim);
+        int linha = 0;
+        long encontrados = saidas[0];
+        for (int i = inicio; i < fim; i++) {
+            if (linha == 0 && fim - i < menor) break;
+            int b = buf[i] & 0xFF;
+            int c = i > 0 && buf[i - 1] == (byte) 0xC3 ? classeAposC3[b] : classe[b];
+            // Na raiz, a maioria dos bytes não começa padrão nenhum: segue sem depender do estado
+            if (linha == 0 && transicoes[c] == 0) continue;
+            linha = transicoes[linha + c];
+            encontrados |= saidas[linha];
+            if (encontrados == todos) break;
+        }
+        return encontrados;
+    }
+
+    private long buscarUnico(byte[] buf, int inicio, int fim) {
+        int ultimoInicio = fim - unico.length;
+        for (int i = inicio; i <= ultimoInicio; i++) {
+            byte b = buf[i];
+            if (b != primeiro && b != primeiroMaiusculo) continue;
+            int j = 1;
+            while (j < unico.length && LeitorCsvBytes.minusculo(buf[i + j - 1], buf[i + j]) == unico[j]) j++;
+            if (j == unico.length) return todos;
+        }
+        return 0;
+    }
+
+    /** Máscara dos padrões que são prefixo de buf[inicio, fim), sem diferenciar caixa. Não aloca. */
+    long prefixos(byte[] buf, int inicio, int fim) {
+        int estado = 0;
+        long encontrados = terminais[0];
+        boolean aposC3 = inicio > 0 && buf[inicio - 1] == (byte) 0xC3;
+        for (int i = inicio; i < fim; i++) {
+            int b = buf[i] & 0xFF;
+            estado = trie[estado * classes + (aposC3 ? classeAposC3[b] : classe[b])];
+            if (estado < 0) break;
+            encontrados |= terminais[estado];
+            aposC3 = b == 0xC3;
+        }
+        return encontrados;
+    }
+}
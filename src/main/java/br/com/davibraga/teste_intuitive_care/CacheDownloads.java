@@ -0,0 +1,278 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache em disco dos ZIPs da ANS (pasta TEMP/cache).
+ *
+ * - Arquivo já baixado: revalida com If-None-Match / If-Modified-Since; 304 reaproveita o arquivo local.
+ * - Download interrompido: o arquivo .parcial é mantido e a próxima tentativa continua com Range + If-Range.
+ * - Antes de reutilizar, o SHA-256 do arquivo é conferido com o manifesto (manifesto.properties).
+ */
+final class CacheDownloads {
+
+    private static final String MANIFESTO = "manifesto.properties";
+    private static final String EXT_PARCIAL = ".parcial";
+    private static final int TENTATIVAS = 3;
+    private static final int TIMEOUT_MS = 30_000;
+    private static final int TAMANHO_BUFFER = 1 << 16;
+
+    private final String baseUrl;
+    private final Path dir;
+    private final Properties manifesto = new Properties();
+    // Arquivos já garantidos nesta execução (não revalida duas vezes o mesmo ZIP)
+    private final Map<String, Path> obtidos = new ConcurrentHashMap<>();
+    // Bytes efetivamente recebidos da rede nesta execução, por arquivo (inclui tentativas que falharam)
+    private final Map<String, Long> recebidos = new ConcurrentHashMap<>();
+
+    CacheDownloads(String baseUrl, Path dir) throws IOException {
+        this.baseUrl = baseUrl;
+        this.dir = dir;
+        Files.createDirectories(dir);
+
+        Path arquivoManifesto = dir.resolve(MANIFESTO);
+        if (Files.exists(arquivoManifesto)) {
+            try (InputStream in = Files.newInputStream(arquivoManifesto)) {
+                manifesto.load(in);
+            }
+        }
+    }
+
+    /** Garante o arquivo atualizado no cache e devolve o caminho local. */
+    Path obter(String nome) throws IOException {
+        Path jaObtido = obtidos.get(nome);
+        if (jaObtido != null) return jaObtido;
+
+        Path local = obterDoServidor(nome);
+        obtidos.put(nome, local);
+        return local;
+    }
+
+    /** SHA-256 do arquivo em cache (conferido no {@link #obter}), ou null se ainda não foi baixado. */
+    String checksum(String nome) {
+        return valor(nome, "sha256");
+    }
+
+    /** Bytes recebidos do servidor para o arquivo nesta execução (0 se veio do cache). */
+    long bytesBaixados(String nome) {
+        return recebidos.getOrDefault(nome, 0L);
+    }
+
+    private Path obterDoServidor(String nome) throws IOException {
+        Path arquivo = dir.resolve(nome);
+        Path parcial = dir.resolve(nome + EXT_PARCIAL);
+
+        boolean cacheValido = Files.exists(arquivo) && checksumConfere(nome, arquivo);
+        if (!cacheValido && Files.exists(arquivo)) {
+            System.out.println(" > Cache corrompido ou sem manifesto, baixando de novo: " + nome);
+            Files.delete(arquivo);
+        }
+
+        IOException ultimaFalha = null;
+        for (int tentativa = 1; tentativa <= TENTATIVAS; tentativa++) {
+            try {
+                return baixar(nome, arquivo, parcial, cacheValido);
+            } catch (FalhaHttp e) {
+                throw e;
+            } catch (IOException e) {
+                // Falha de rede: o .parcial fica em disco e a próxima tentativa retoma de onde parou
+                System.err.println(" > Tentativa " + tentativa + " de " + nome + " falhou: " + e.getMessage());
+                ultimaFalha = e;
+            }
+        }
+        throw ultimaFalha;
+    }
+
+    private Path baixar(String nome, Path arquivo, Path parcial, boolean cacheValido) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + nome).openConnection();
+        conn.setConnectTimeout(TIMEOUT_MS);
+        conn.setReadTimeout(TIMEOUT_MS);
+
+        // Prioridade: retomar um .parcial (Range + If-Range); senão revalidar o arquivo em cache
+        long jaBaixado = 0;
+        boolean condicional = false;
+        if (Files.exists(parcial)) {
+            String validador = valor(nome + EXT_PARCIAL, "etag");
+            if (validador == null) validador = valor(nome + EXT_PARCIAL, "lastModified");
+
+            if (validador != null && Files.size(parcial) > 0) {
+                jaBaixado = Files.size(parcial);
+                conn.setRequestProperty("Range", "bytes=" + jaBaixado + "-");
+                conn.setRequestProperty("If-Range", validador);
+            } else {
+                Files.delete(parcial);
+            }
+        }
+        if (jaBaixado == 0 && cacheValido) {
+            String etag = valor(nome, "etag");
+            String lastModified = valor(nome, "lastModified");
+            if (etag != null) conn.setRequestProperty("If-None-Match", etag);
+            if (lastModified != null) conn.setRequestProperty("If-Modified-Since", lastModified);
+            condicional = true;
+        }
+
+        int status = conn.getResponseCode();
+        if (status == HttpURLConnection.HTTP_NOT_MODIFIED && condicional) {
+            System.out.println(" > Sem alterações, usando cache: " + nome);
+            return arquivo;
+        }
+        if (status == 416) {
+            descartarParcial(nome, parcial);
+            throw new IOException("Range não aceito pelo servidor, reiniciando download");
+        }
+        if (status != HttpURLConnection.HTTP_OK && status != HttpURLConnection.HTTP_PARTIAL) {
+            throw new FalhaHttp("Erro baixar " + nome + ": " + status);
+        }
+
+        // 206 só é aproveitado se o servidor continuou exatamente do byte pedido; 200 = arquivo mudou, recomeça
+        boolean retomando = status == HttpURLConnection.HTTP_PARTIAL;
+        if (retomando && !conteudoComecaEm(conn.getHeaderField("Content-Range"), jaBaixado)) {
+            descartarParcial(nome, parcial);
+            throw new IOException("Content-Range inesperado: " + conn.getHeaderField("Content-Range"));
+        }
+        if (!retomando) jaBaixado = 0;
+
+        // Validadores da versão em download, para retomar se a conexão cair
+        guardarValidadores(nome + EXT_PARCIAL, conn);
+
+        long esperado = conn.getContentLengthLong() >= 0 ? jaBaixado + conn.getContentLengthLong() : -1;
+        long tamanho = gravar(nome, conn, parcial, retomando);
+        if (esperado >= 0 && tamanho != esperado) {
+            throw new IOException("Download incompleto de " + nome + " (" + tamanho + " de " + esperado + " bytes)");
+        }
+
+        String sha256 = sha256(parcial);
+        Files.move(parcial, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        synchronized (manifesto) {
+            manifesto.remove(nome + EXT_PARCIAL + ".etag");
+            manifesto.remove(nome + EXT_PARCIAL + ".lastModified");
+            guardarValidadores(nome, conn);
+            manifesto.setProperty(nome + ".sha256", sha256);
+            manifesto.setProperty(nome + ".tamanho", String.valueOf(tamanho));
+            salvarManifesto();
+        }
+        System.out.println(" > Download concluído (" + tamanho + " bytes): " + nome);
+        return arquivo;
+    }
+
+    private long gravar(String nome, HttpURLConnection conn, Path destino, boolean anexar) throws IOException {
+        StandardOpenOption modo = anexar ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+        long lidos = 0;
+        try (InputStream in = conn.getInputStream();
+             FileChannel out = FileChannel.open(destino, StandardOpenOption.CREATE, StandardOpenOption.WRITE, modo)) {
+            byte[] bytes = new byte[TAMANHO_BUFFER];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            int n;
+            while ((n = in.read(bytes)) != -1) {
+                lidos += n;
+                buffer.clear().limit(n);
+                while (buffer.hasRemaining()) out.write(buffer);
+            }
+            return out.size();
+        } finally {
+            recebidos.merge(nome, lidos, Long::sum);
+        }
+    }
+
+    private static boolean conteudoComecaEm(String contentRange, long inicio) {
+        // Formato: "bytes <inicio>-<fim>/<total>"
+        if (contentRange == null || !contentRange.startsWith("bytes ")) return false;
+        int hifen = contentRange.indexOf('-');
+        if (hifen < 0) return false;
+        try {
+            return Long.parseLong(contentRange.substring(6, hifen).trim()) == inicio;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private boolean checksumConfere(String nome, Path arquivo) throws IOException {
+        String esperado = valor(nome, "sha256");
+        String tamanho = valor(nome, "tamanho");
+        if (esperado == null || tamanho == null) return false;
+        if (Files.size(arquivo) != Long.parseLong(tamanho)) return false;
+        return esperado.equals(sha256(arquivo));
+    }
+
+    private void descartarParcial(String nome, Path parcial) throws IOException {
+        Files.deleteIfExists(parcial);
+        synchronized (manifesto) {
+            manifesto.remove(nome + EXT_PARCIAL + ".etag");
+            manifesto.remove(nome + EXT_PARCIAL + ".lastModified");
+            salvarManifesto();
+        }
+    }
+
+    // --- MANIFESTO ---
+
+    private String valor(String nome, String campo) {
+        synchronized (manifesto) {
+            return manifesto.getProperty(nome + "." + campo);
+        }
+    }
+
+    private void guardarValidadores(String nome, HttpURLConnection conn) throws IOException {
+        String etag = conn.getHeaderField("ETag");
+        String lastModified = conn.getHeaderField("Last-Modified");
+        synchronized (manifesto) {
+            if (etag != null) manifesto.setProperty(nome + ".etag", etag);
+            else manifesto.remove(nome + ".etag");
+            if (lastModified != null) manifesto.setProperty(nome + ".lastModified", lastModified);
+            else manifesto.remove(nome + ".lastModified");
+            salvarManifesto();
+        }
+    }
+
+    // Chamado sempre com o lock do manifesto; grava em arquivo temporário e troca (nunca fica pela metade)
+    private void salvarManifesto() throws IOException {
+        Path tmp = dir.resolve(MANIFESTO + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            manifesto.store(out, "Cache de downloads ANS");
+        }
+        Files.move(tmp, dir.resolve(MANIFESTO), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static String sha256(Path arquivo) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (FileChannel ch = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_BUFFER);
+            while (ch.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Erro HTTP definitivo (404, 500...): não adianta tentar de novo
+    private static final class FalhaHttp extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        FalhaHttp(String mensagem) {
+            super(mensagem);
+        }
+    }
+}
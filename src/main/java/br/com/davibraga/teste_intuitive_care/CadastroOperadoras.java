@@ -0,0 +1,469 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cadastro de operadoras (CADOP) em memória, imutável, montado em uma única leitura do Relatorio_cadop.csv.
+ *
+ * A mesma passada normaliza (separador, aspas, "vazio", CNPJ com zeros à esquerda), valida o CNPJ e indexa:
+ * cada CNPJ distinto ganha um id denso e o registro ANS aponta direto para esse id, então o join do
+ * processamento é uma única consulta. CNPJ e registro ANS são chaves long ({@link CodecCnpj},
+ * {@link MapaLongInt}); textos repetidos (modalidade, UF...) são internados.
+ *
+ * O arquivo de entrada não é alterado: a versão normalizada (usada pelo import.sql) é gravada na pasta do
+ * cadastro, junto com um snapshot binário indexado pelo SHA-256 da entrada. Se a entrada não mudou, as
+ * próximas execuções carregam o snapshot com uma única leitura mapeada em memória.
+ */
+final class CadastroOperadoras {
+
+    static final String ARQUIVO_NORMALIZADO = "Relatorio_cadop.csv";
+    static final String ARQUIVO_SNAPSHOT = "operadoras.bin";
+
+    /** Registro ANS que não está no CADOP. */
+    static final int SEM_REGISTRO = -1;
+    /** Registro ANS presente, mas com CNPJ vazio ou fora do índice de CNPJ. */
+    static final int SEM_CADOP = -2;
+
+    private static final int MAGIC = 0x414E534F; // "ANSO"
+    private static final int VERSAO = 2;
+
+    private final String sha256;
+    // Por id denso (um por CNPJ distinto; a última linha do CADOP com o CNPJ prevalece)
+    private final long[] cnpjs;
+    private final String[] razoes;
+    private final String[] registros;
+    private final String[] modalidades;
+    private final String[] ufs;
+    private final Map<String, Integer> idPorRegistro; // origem do índice (snapshot)
+    private final int cnpjsCorrigidos;
+    private final int cnpjsInvalidos;
+    private final boolean doSnapshot;
+
+    // Derivados (não vão para o snapshot)
+    private final MapaLongInt idPorCnpj;
+    // Registros numéricos canônicos (o caso normal) em mapa primitivo; o resto fica no mapa de Strings
+    private final MapaLongInt idPorRegistroNumerico;
+    private final Map<String, Integer> idPorRegistroTexto;
+    private final String[] cnpjsSaida;
+    private final String[] razoesSaida;
+    private final int[] idsAgregacao;
+    private final AgregadorDespesas modeloAgregador;
+
+    private CadastroOperadoras(String sha256, long[] cnpjs, String[] razoes, String[] registros, String[] modalidades,
+                               String[] ufs, Map<String, Integer> idPorRegistro,
+                               int cnpjsCorrigidos, int cnpjsInvalidos, boolean doSnapshot) {
+        this.sha256 = sha256;
+        this.cnpjs = cnpjs;
+        this.razoes = razoes;
+        this.registros = registros;
+        this.modalidades = modalidades;
+        this.ufs = ufs;
+        this.idPorRegistro = Map.copyOf(idPorRegistro);
+        this.cnpjsCorrigidos = cnpjsCorrigidos;
+        this.cnpjsInvalidos = cnpjsInvalidos;
+        this.doSnapshot = doSnapshot;
+
+        int n = cnpjs.length;
+        this.idPorCnpj = new MapaLongInt(n);
+        this.cnpjsSaida = new String[n];
+        this.razoesSaida = new String[n];
+        this.idsAgregacao = new int[n];
+
+        // Mesmo critério da agregação: sem razão social ou UF desconhecida não entra nas estatísticas
+        AgregadorDespesas.Dicionario dicionario = new AgregadorDespesas.Dicionario();
+        for (int id = 0; id < n; id++) {
+            idPorCnpj.colocar(cnpjs[id], id);
+            // Texto do CNPJ só para a saída (14 dígitos sem serem todos iguais, senão vazio)
+            cnpjsSaida[id] = CodecCnpj.formatoValido(cnpjs[id]) ? CodecCnpj.formatar(cnpjs[id]) : "";
+            razoesSaida[id] = razoes[id].isEmpty() ? "null" : razoes[id];
+
+            boolean temRazao = !razoes[id].isEmpty() && !razoes[id].equals("null");
+            idsAgregacao[id] = temRazao && !ufs[id].equals("DESCONHECIDO") ? dicionario.idPara(razoes[id], ufs[id]) : -1;
+        }
+        this.modeloAgregador = dicionario.criarAgregador();
+
+        this.idPorRegistroNumerico = new MapaLongInt(idPorRegistro.size());
+        Map<String, Integer> texto = new HashMap<>();
+        for (Map.Entry<String, Integer> e : idPorRegistro.entrySet()) {
+            long chave = chaveRegistro(e.getKey());
+            if (chave >= 0) idPorRegistroNumerico.colocar(chave, e.getValue());
+            else texto.put(e.getKey(), e.getValue());
+        }
+        this.idPorRegistroTexto = Map.copyOf(texto);
+    }
+
+    /**
+     * Registro ANS como long se for um inteiro canônico (só dígitos, sem zero à esquerda, até 18 dígitos),
+     * senão -1. Canônico garante que textos diferentes nunca caem na mesma chave.
+     */
+    static long chaveRegistro(CharSequence registro) {
+        int n = registro.length();
+        if (n == 0 || n > 18 || (n > 1 && registro.charAt(0) == '0')) return -1;
+        long valor = 0;
+        for (int i = 0; i < n; i++) {
+            char c = registro.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            valor = valor * 10 + (c - '0');
+        }
+        return valor;
+    }
+
+    /**
+     * Carrega o cadastro a partir do CSV da ANS, reaproveitando o snapshot da pasta se ele foi gerado a partir
+     * deste mesmo arquivo (SHA-256); senão faz a leitura completa e grava um snapshot novo.
+     */
+    static CadastroOperadoras carregar(Path csv, Path pasta) throws IOException {
+        if (!Files.exists(csv)) throw new FileNotFoundException("CADOP não encontrado: " + csv);
+        Files.createDirectories(pasta);
+
+        String sha256 = CacheDownloads.sha256(csv);
+        Path snapshot = pasta.resolve(ARQUIVO_SNAPSHOT);
+        Path normalizado = pasta.resolve(ARQUIVO_NORMALIZADO);
+
+        if (Files.exists(normalizado)) {
+            CadastroOperadoras salvo = abrirSnapshot(snapshot, sha256);
+            if (salvo != null) return salvo;
+        }
+
+        CadastroOperadoras lido = lerCsv(csv, normalizado, sha256);
+        lido.salvarSnapshot(snapshot);
+        return lido;
+    }
+
+    // --- LEITURA DO CSV ---
+
+    /** Uma passada: normaliza cada linha (gravando em normalizado), valida o CNPJ e indexa. */
+    static CadastroOperadoras lerCsv(Path csv, Path normalizado, String sha256) throws IOException {
+        Map<String, String> internados = new HashMap<>();
+        // CNPJ -> [razão, registro, modalidade, uf] da última linha com o CNPJ; registro -> CNPJ da última linha
+        Map<Long, String[]> porCnpj = new LinkedHashMap<>();
+        Map<String, Long> cnpjPorRegistro = new HashMap<>();
+        // Coluna CNPJ de todas as linhas, validada em lote no fim; alterados = texto original fora do padrão
+        long[] colunaCnpj = new long[1024];
+        boolean[] alterados = new boolean[1024];
+        int linhasCnpj = 0;
+
+        Path tmp = normalizado.resolveSibling(normalizado.getFileName() + ".tmp");
+        try (BufferedReader br = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+             BufferedWriter bw = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+
+            String linha = br.readLine();
+            if (linha != null) {
+                // Força ponto e vírgula no cabeçalho
+                String cabecalho = linha.replace("\t", ";").replace(",", ";");
+                bw.write(cabecalho);
+                bw.newLine();
+
+                int numColunas = cabecalho.split(";").length;
+                int iCnpj = coluna(cabecalho, "CNPJ");
+                int iRazao = coluna(cabecalho, "RAZAO_SOCIAL");
+                int iReg = coluna(cabecalho, "REGISTRO_OPERADORA");
+                int iMod = ColetaDadosAns.findCol(cabecalho, "MODALIDADE");
+                int iUf = ColetaDadosAns.findCol(cabecalho, "UF");
+
+                String[] valores = new String[numColunas];
+                StringBuilder saida = new StringBuilder(512);
+                while ((linha = br.readLine()) != null) {
+                    // Normaliza separadores
+                    if (linha.contains("\t")) linha = linha.replace("\t", ";");
+                    else if (linha.contains(",") && !linha.contains(";")) linha = linha.replace(",", ";");
+
+                    String[] colunas = linha.split(";", -1);
+                    saida.setLength(0);
+                    for (int j = 0; j < numColunas; j++) {
+                        String valor = (j < colunas.length) ? colunas[j] : "";
+                        valor = valor.replace("\"", "").trim();
+                        if (valor.isEmpty()) valor = "vazio";
+
+                        // O CNPJ é a coluna 1 no layout da ANS: completa os zeros (dígitos validados depois)
+                        if (j == 1) {
+                            long cnpj = CodecCnpj.ler(valor);
+                            String cnpjNovo = CodecCnpj.formatar(cnpj);
+                            if (linhasCnpj == colunaCnpj.length) {
+                                colunaCnpj = Arrays.copyOf(colunaCnpj, linhasCnpj * 2);
+                                alterados = Arrays.copyOf(alterados, linhasCnpj * 2);
+                            }
+                            colunaCnpj[linhasCnpj] = cnpj;
+                            alterados[linhasCnpj++] = !valor.equals(cnpjNovo);
+                            valor = cnpjNovo;
+                        }
+                        valores[j] = valor;
+                        if (j > 0) saida.append(';');
+                        saida.append(valor);
+                    }
+                    bw.append(saida);
+                    bw.newLine();
+
+                    long cnpj = CodecCnpj.ler(valores[iCnpj]);
+                    String registro = internar(internados, valores[iReg]);
+                    cnpjPorRegistro.put(registro, cnpj);
+                    if (cnpj != CodecCnpj.VAZIO) {
+                        porCnpj.put(cnpj, new String[] {
+                            internar(internados, valores[iRazao]),
+                            registro,
+                            internar(internados, iMod != -1 ? valores[iMod] : "N/A"),
+                            internar(internados, iUf != -1 ? valores[iUf] : "BR")
+                        });
+                    }
+                }
+            }
+        }
+        Files.move(tmp, normalizado, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // Dígitos verificadores da coluna inteira; corrigido = válido, mas escrito fora do padrão no original
+        boolean[] validos = new boolean[linhasCnpj];
+        int invalidos = linhasCnpj - CodecCnpj.validar(colunaCnpj, linhasCnpj, validos);
+        int corrigidos = 0;
+        for (int i = 0; i < linhasCnpj; i++) {
+            if (validos[i] && alterados[i]) corrigidos++;
+        }
+
+        int n = porCnpj.size();
+        long[] cnpjs = new long[n];
+        String[] razoes = new String[n];
+        String[] registros = new String[n];
+        String[] modalidades = new String[n];
+        String[] ufs = new String[n];
+        MapaLongInt idCnpj = new MapaLongInt(n);
+        int id = 0;
+        for (Map.Entry<Long, String[]> e : porCnpj.entrySet()) {
+            String[] d = e.getValue();
+            cnpjs[id] = e.getKey();
+            razoes[id] = d[0];
+            registros[id] = d[1];
+            modalidades[id] = d[2];
+            ufs[id] = d[3];
+            idCnpj.colocar(e.getKey(), id);
+            id++;
+        }
+
+        // Resolve os dois saltos (registro -> CNPJ -> operadora) uma vez aqui, e não por linha de despesa
+        Map<String, Integer> idPorRegistro = new HashMap<>(cnpjPorRegistro.size() * 2);
+        for (Map.Entry<String, Long> e : cnpjPorRegistro.entrySet()) {
+            idPorRegistro.put(e.getKey(), idCnpj.obter(e.getValue(), SEM_CADOP));
+        }
+
+        return new CadastroOperadoras(sha256, cnpjs, razoes, registros, modalidades, ufs, idPorRegistro,
+                corrigidos, invalidos, false);
+    }
+
+    private static int coluna(String cabecalho, String nome) throws IOException {
+        int i = ColetaDadosAns.findCol(cabecalho, nome);
+        if (i == -1) throw new IOException("Coluna " + nome + " não encontrada no CADOP");
+        return i;
+    }
+
+    private static String internar(Map<String, String> internados, String s) {
+        String existente = internados.putIfAbsent(s, s);
+        return existente != null ? existente : s;
+    }
+
+    // --- SNAPSHOT ---
+
+    // Layout (big-endian): MAGIC, VERSAO, sha256 (64 bytes ASCII), corrigidos, invalidos,
+    // tabela de textos [n, (tamanho, bytes UTF-8)*], operadoras [n, (cnpj long, 4 índices na tabela)*],
+    // registros [n, (índice, id)*]
+    void salvarSnapshot(Path destino) throws IOException {
+        Map<String, Integer> indices = new LinkedHashMap<>();
+        List<String> textos = new ArrayList<>();
+        for (String[] coluna : new String[][] {razoes, registros, modalidades, ufs}) {
+            for (String s : coluna) indice(indices, textos, s);
+        }
+        for (String registro : idPorRegistro.keySet()) indice(indices, textos, registro);
+
+        Path tmp = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSAO);
+            out.write(sha256.getBytes(StandardCharsets.US_ASCII));
+            out.writeInt(cnpjsCorrigidos);
+            out.writeInt(cnpjsInvalidos);
+
+            out.writeInt(textos.size());
+            for (String s : textos) {
+                byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(b.length);
+                out.write(b);
+            }
+
+            out.writeInt(cnpjs.length);
+            for (int id = 0; id < cnpjs.length; id++) {
+                out.writeLong(cnpjs[id]);
+                out.writeInt(indices.get(razoes[id]));
+                out.writeInt(indices.get(registros[id]));
+                out.writeInt(indices.get(modalidades[id]));
+                out.writeInt(indices.get(ufs[id]));
+            }
+
+            out.writeInt(idPorRegistro.size());
+            for (Map.Entry<String, Integer> e : idPorRegistro.entrySet()) {
+                out.writeInt(indices.get(e.getKey()));
+                out.writeInt(e.getValue());
+            }
+        }
+        Files.move(tmp, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void indice(Map<String, Integer> indices, List<String> textos, String s) {
+        indices.computeIfAbsent(s, k -> {
+            textos.add(k);
+            return textos.size() - 1;
+        });
+    }
+
+    /** Lê o snapshot com um único mapeamento; null se não existe, é de outra versão/entrada ou está corrompido. */
+    static CadastroOperadoras abrirSnapshot(Path snapshot, String sha256) throws IOException {
+        if (!Files.exists(snapshot)) return null;
+
+        try (FileChannel ch = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSAO) return null;
+
+            byte[] hash = new byte[64];
+            buf.get(hash);
+            if (!sha256.equals(new String(hash, StandardCharsets.US_ASCII))) return null;
+            int corrigidos = buf.getInt();
+            int invalidos = buf.getInt();
+
+            String[] textos = new String[buf.getInt()];
+            byte[] bytes = new byte[256];
+            for (int i = 0; i < textos.length; i++) {
+                int tamanho = buf.getInt();
+                if (tamanho > bytes.length) bytes = new byte[Math.max(tamanho, bytes.length * 2)];
+                buf.get(bytes, 0, tamanho);
+                textos[i] = new String(bytes, 0, tamanho, StandardCharsets.UTF_8);
+            }
+
+            int n = buf.getInt();
+            long[] cnpjs = new long[n];
+            String[] razoes = new String[n];
+            String[] registros = new String[n];
+            String[] modalidades = new String[n];
+            String[] ufs = new String[n];
+            for (int id = 0; id < n; id++) {
+                cnpjs[id] = buf.getLong();
+                if (cnpjs[id] < 0) return null;
+                razoes[id] = textos[buf.getInt()];
+                registros[id] = textos[buf.getInt()];
+                modalidades[id] = textos[buf.getInt()];
+                ufs[id] = textos[buf.getInt()];
+            }
+
+            int m = buf.getInt();
+            Map<String, Integer> idPorRegistro = new HashMap<>(m * 2);
+            for (int i = 0; i < m; i++) {
+                String registro = textos[buf.getInt()];
+                int id = buf.getInt();
+                if (id >= n || id < SEM_CADOP) return null;
+                idPorRegistro.put(registro, id);
+            }
+            return new CadastroOperadoras(sha256, cnpjs, razoes, registros, modalidades, ufs, idPorRegistro,
+                    corrigidos, invalidos, true);
+        } catch (RuntimeException e) {
+            // BufferUnderflow / índice fora da tabela: snapshot truncado ou corrompido, refaz a partir do CSV
+            System.err.println(" > Snapshot do CADOP ilegível, relendo o CSV: " + e);
+            return null;
+        }
+    }
+
+    // --- CONSULTA ---
+
+    /** Id da operadora do registro ANS, ou {@link #SEM_REGISTRO} / {@link #SEM_CADOP}. */
+    int idPorRegistro(String registroAns) {
+        long chave = chaveRegistro(registroAns);
+        return chave >= 0 ? idPorRegistroNumerico.obter(chave, SEM_REGISTRO)
+                          : idPorRegistroTexto.getOrDefault(registroAns, SEM_REGISTRO);
+    }
+
+    /** Mesmo que {@link #idPorRegistro(String)} para um registro já convertido por {@link #chaveRegistro}. */
+    int idPorRegistro(long chaveRegistro) {
+        return idPorRegistroNumerico.obter(chaveRegistro, SEM_REGISTRO);
+    }
+
+    /** Id da operadora do CNPJ ({@link CodecCnpj}), ou -1. */
+    int idPorCnpj(long cnpj) {
+        return idPorCnpj.obter(cnpj, -1);
+    }
+
+    int tamanho() {
+        return cnpjs.length;
+    }
+
+    int quantidadeRegistros() {
+        return idPorRegistro.size();
+    }
+
+    long cnpj(int id) {
+        return cnpjs[id];
+    }
+
+    /** CNPJ como vai para o consolidado ("" se não tem 14 dígitos válidos). */
+    String cnpjSaida(int id) {
+        return cnpjsSaida[id];
+    }
+
+    String razaoSocial(int id) {
+        return razoes[id];
+    }
+
+    /** Razão social como vai para o consolidado ("null" se vazia). */
+    String razaoSaida(int id) {
+        return razoesSaida[id];
+    }
+
+    String registroAns(int id) {
+        return registros[id];
+    }
+
+    String modalidade(int id) {
+        return modalidades[id];
+    }
+
+    String uf(int id) {
+        return ufs[id];
+    }
+
+    /** Id da chave Razão Social + UF no agregador, ou -1 se a operadora não entra nas estatísticas. */
+    int idAgregacao(int id) {
+        return idsAgregacao[id];
+    }
+
+    /** Agregador vazio com o dicionário de chaves deste cadastro. */
+    AgregadorDespesas novoAgregador() {
+        return modeloAgregador.novoParcial();
+    }
+
+    String sha256() {
+        return sha256;
+    }
+
+    int cnpjsCorrigidos() {
+        return cnpjsCorrigidos;
+    }
+
+    int cnpjsInvalidos() {
+        return cnpjsInvalidos;
+    }
+
+    boolean doSnapshot() {
+        return doSnapshot;
+    }
+}
@@ -0,0 +1,206 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+/**
+ * Saída direta para o PostgreSQL via COPY (pgjdbc CopyManager), sem passar pelos CSVs em TEMP.
+ *
+ * Cada tabela é carregada em uma tabela de carga (<tabela>_carga, LIKE ... INCLUDING ALL) usando as mesmas
+ * opções do import.sql (CSV, HEADER, ';'). Tudo roda em uma única transação e {@link #publicar()} troca
+ * as tabelas de carga pelas definitivas antes do commit, então a API nunca enxerga uma carga pela metade.
+ * Índices voltam aos nomes que tinham na tabela definitiva (os do ddl.sql) e sequências (colunas identity) ao
+ * nome padrão da tabela na troca.
+ */
+final class CargaPostgres implements AutoCloseable {
+
+    private static final String URL = System.getProperty("ans.db.url", "jdbc:postgresql://localhost:5432/intuitive_care_db");
+    private static final String USUARIO = System.getProperty("ans.db.usuario", "postgres");
+    private static final String SENHA = System.getProperty("ans.db.senha", "password");
+
+    private static final String SUFIXO_CARGA = "_carga";
+    // Nome do índice no indexdef do pg_indexes ("CREATE [UNIQUE] INDEX <nome> ON ...")
+    private static final Pattern NOME_DO_INDICE =
+            Pattern.compile("^(CREATE (?:UNIQUE )?INDEX )(?:\"(?:[^\"]|\"\")*\"|\\S+) ON ");
+
+    private final Connection conn;
+    private final CopyManager copyManager;
+    private final List<String> tabelasCarregadas = new ArrayList<>();
+
+    private CargaPostgres(Connection conn) throws SQLException {
+        this.conn = conn;
+        this.copyManager = conn.unwrap(PGConnection.class).getCopyAPI();
+    }
+
+    static CargaPostgres conectar() throws SQLException {
+        Connection conn = DriverManager.getConnection(URL, USUARIO, SENHA);
+        conn.setAutoCommit(false);
+        return new CargaPostgres(conn);
+    }
+
+    /**
+     * Cria a tabela de carga e abre um COPY para ela. Os bytes escritos no canal devem ser o mesmo CSV
+     * (UTF-8) que iria para TEMP, com cabeçalho. Fechar o canal finaliza o COPY.
+     */
+    WritableByteChannel copiar(String tabela, String colunas) throws SQLException {
+        String carga = tabela + SUFIXO_CARGA;
+        try (Statement st = conn.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS " + carga);
+            st.execute("CREATE TABLE " + carga + " (LIKE " + tabela + " INCLUDING ALL)");
+        }
+        String sql = "COPY " + carga + "(" + colunas + ") FROM STDIN "
+                + "WITH (FORMAT CSV, HEADER, DELIMITER ';', ENCODING 'UTF8', QUOTE '\"')";
+        tabelasCarregadas.add(tabela);
+        return new CanalCopy(copyManager.copyIn(sql), tabela);
+    }
+
+    /** Troca as tabelas de carga pelas definitivas e faz o commit (tudo ou nada). */
+    void publicar() throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            for (String tabela : tabelasCarregadas) {
+                String carga = tabela + SUFIXO_CARGA;
+                Map<String, Deque<String>> nomesAtuais = indicesPorDefinicao(tabela);
+                st.execute("DROP TABLE " + tabela);
+                st.execute("ALTER TABLE " + carga + " RENAME TO " + tabela);
+                renomearIndices(st, carga, tabela, nomesAtuais);
+                renomearSequencias(st, tabela);
+            }
+        }
+        conn.commit();
+        System.out.println(" > Tabelas publicadas no PostgreSQL: " + tabelasCarregadas);
+    }
+
+    // O LIKE ... INCLUDING ALL copia os índices com nomes gerados a partir da tabela de carga
+    // (idx_agregadas_total vira tb_despesas_agregadas_carga_total_despesas_idx). Cada índice da carga volta ao
+    // nome do índice de mesma definição na tabela antiga, lido antes do DROP; sem correspondente (tabela
+    // antiga sem aquele índice), só perde o sufixo da carga
+    private void renomearIndices(Statement st, String carga, String tabela, Map<String, Deque<String>> nomesAtuais)
+            throws SQLException {
+        Map<String, Deque<String>> indicesCarga = indicesPorDefinicao(tabela);
+        for (Map.Entry<String, Deque<String>> e : indicesCarga.entrySet()) {
+            Deque<String> nomes = nomesAtuais.getOrDefault(e.getKey(), new ArrayDeque<>());
+            for (String indice : e.getValue()) {
+                String nome = !nomes.isEmpty() ? nomes.poll()
+                        : indice.startsWith(carga) ? tabela + indice.substring(carga.length()) : indice;
+                if (!nome.equals(indice)) {
+                    st.execute("ALTER INDEX " + indice + " RENAME TO " + nome);
+                }
+            }
+        }
+    }
+
+    // Nomes dos índices da tabela agrupados pela definição sem o nome (CREATE [UNIQUE] INDEX ON tabela USING ...)
+    private Map<String, Deque<String>> indicesPorDefinicao(String tabela) throws SQLException {
+        Map<String, Deque<String>> indices = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT indexname, indexdef FROM pg_indexes "
+                + "WHERE schemaname = current_schema() AND tablename = ? ORDER BY indexname")) {
+            ps.setString(1, tabela);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String definicao = NOME_DO_INDICE.matcher(rs.getString(2)).replaceFirst("$1ON ");
+                    indices.computeIfAbsent(definicao, d -> new ArrayDeque<>()).add(rs.getString(1));
+                }
+            }
+        }
+        return indices;
+    }
+
+    // As sequências das colunas identity também nascem com o nome da carga (<tabela>_carga_id_seq); sem a troca,
+    // a carga seguinte não acha esse nome livre e cria ..._seq1, ..._seq2. Volta ao nome padrão <tabela>_<coluna>_seq,
+    // já livre porque a sequência da tabela antiga caiu junto com ela no DROP
+    private void renomearSequencias(Statement st, String tabela) throws SQLException {
+        List<String[]> sequencias = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT a.attname, pg_get_serial_sequence(quote_ident(c.relname), a.attname) "
+                        + "FROM pg_attribute a JOIN pg_class c ON c.oid = a.attrelid "
+                        + "WHERE c.relname = ? AND c.relnamespace = current_schema()::regnamespace "
+                        + "AND a.attnum > 0 AND NOT a.attisdropped")) {
+            ps.setString(1, tabela);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (rs.getString(2) != null) sequencias.add(new String[] {rs.getString(1), rs.getString(2)});
+                }
+            }
+        }
+        for (String[] sequencia : sequencias) {
+            String nome = tabela + "_" + sequencia[0] + "_seq";
+            if (!sequencia[1].endsWith("." + nome) && !sequencia[1].equals(nome)) {
+                st.execute("ALTER SEQUENCE " + sequencia[1] + " RENAME TO " + nome);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            if (!conn.getAutoCommit()) conn.rollback(); // sem efeito se publicar() já fez commit
+        } finally {
+            conn.close();
+        }
+    }
+
+    // Repassa os blocos já em UTF-8 (o EscritorCsv descarrega em blocos grandes) direto para o COPY;
+    // o envio bloqueia quando o socket enche (back-pressure)
+    private static final class CanalCopy implements WritableByteChannel {
+        private final CopyIn copy;
+        private final String tabela;
+        private byte[] copia = new byte[0];
+
+        CanalCopy(CopyIn copy, String tabela) {
+            this.copy = copy;
+            this.tabela = tabela;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int n = src.remaining();
+            try {
+                if (src.hasArray()) {
+                    copy.writeToCopy(src.array(), src.arrayOffset() + src.position(), n);
+                    src.position(src.limit());
+                } else {
+                    if (copia.length < n) copia = new byte[n];
+                    src.get(copia, 0, n);
+                    copy.writeToCopy(copia, 0, n);
+                }
+            } catch (SQLException e) {
+                throw new IOException("Falha no COPY para " + tabela, e);
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return copy.isActive();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!copy.isActive()) return;
+            try {
+                long linhas = copy.endCopy();
+                System.out.println(" > COPY " + tabela + SUFIXO_CARGA + ": " + linhas + " linhas");
+            } catch (SQLException e) {
+                throw new IOException("Falha ao finalizar COPY para " + tabela, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Valores monetários em centavos (long), para somar despesas sem erro de arredondamento.
+ *
+ * A leitura segue o formato brasileiro das demonstrações da ANS, com a gramática do antigo isNumeric:
+ * -?\d+(\.\d+)?(,\d+)? (ponto = milhar, vírgula = decimal), numa única passada e sem regex.
+ * Casas além dos centavos são arredondadas como o NUMERIC(18,2) do banco (metade para longe do zero);
+ * valores que não cabem em long estouram com ArithmeticException em vez de perder precisão.
+ */
+final class Centavos {
+
+    /** Texto fora da gramática numérica. */
+    static final long INVALIDO = Long.MIN_VALUE;
+
+    // Abaixo de 2^52 a parte fracionária de um double ainda é representada
+    private static final double LIMITE_EXATO = 0x1p52;
+
+    private Centavos() {
+    }
+
+    // --- LEITURA ---
+
+    /** "1.234,56" -&gt; 123456, ou {@link #INVALIDO}. */
+    static long ler(CharSequence texto) {
+        int fim = texto.length();
+        int i = 0;
+        boolean negativo = i < fim && texto.charAt(i) == '-';
+        if (negativo) i++;
+
+        long inteiro = 0;
+        int digitos = 0;
+        for (; i < fim && digito(texto.charAt(i)); i++, digitos++) {
+            inteiro = Math.addExact(Math.multiplyExact(inteiro, 10), texto.charAt(i) - '0');
+        }
+        if (digitos == 0) return INVALIDO;
+
+        if (i < fim && texto.charAt(i) == '.') {
+            int inicio = ++i;
+            for (; i < fim && digito(texto.charAt(i)); i++) {
+                inteiro = Math.addExact(Math.multiplyExact(inteiro, 10), texto.charAt(i) - '0');
+            }
+            if (i == inicio) return INVALIDO;
+        }
+
+        long fracao = 0;
+        int casas = 0;
+        boolean arredondaParaCima = false;
+        if (i < fim && texto.charAt(i) == ',') {
+            int inicio = ++i;
+            for (; i < fim && digito(texto.charAt(i)); i++, casas++) {
+                if (casas < 2) fracao = fracao * 10 + (texto.charAt(i) - '0');
+                else if (casas == 2) arredondaParaCima = texto.charAt(i) >= '5';
+            }
+            if (i == inicio) return INVALIDO;
+        }
+        if (i != fim) return INVALIDO;
+
+        return montar(negativo, inteiro, fracao, casas, arredondaParaCima);
+    }
+
+    /** Mesmo que {@link #ler(CharSequence)}, direto sobre bytes ASCII/UTF-8. Não aloca. */
+    static long ler(byte[] buf, int inicio, int fim) {
+        int i = inicio;
+        boolean negativo = i < fim && buf[i] == '-';
+        if (negativo) i++;
+
+        long inteiro = 0;
+        int digitos = 0;
+        for (; i < fim && digito(buf[i]); i++, digitos++) {
+            inteiro = Math.addExact(Math.multiplyExact(inteiro, 10), buf[i] - '0');
+        }
+        if (digitos == 0) return INVALIDO;
+
+        if (i < fim && buf[i] == '.') {
+            int inicioMilhar = ++i;
+            for (; i < fim && digito(buf[i]); i++) {
+                inteiro = Math.addExact(Math.multiplyExact(inteiro, 10), buf[i] - '0');
+            }
+            if (i == inicioMilhar) return INVALIDO;
+        }
+
+        long fracao = 0;
+        int casas = 0;
+        boolean arredondaParaCima = false;
+        if (i < fim && buf[i] == ',') {
+            int inicioFracao = ++i;
+            for (; i < fim && digito(buf[i]); i++, casas++) {
+                if (casas < 2) fracao = fracao * 10 + (buf[i] - '0');
+                else if (casas == 2) arredondaParaCima = buf[i] >= '5';
+            }
+            if (i == inicioFracao) return INVALIDO;
+        }
+        if (i != fim) return INVALIDO;
+
+        return montar(negativo, inteiro, fracao, casas, arredondaParaCima);
+    }
+
+    private static boolean digito(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static long montar(boolean negativo, long inteiro, long fracao, int casas, boolean arredondaParaCima) {
+        if (casas == 1) fracao *= 10;
+        long valor = Math.addExact(Math.multiplyExact(inteiro, 100), fracao);
+        if (arredondaParaCima) valor = Math.incrementExact(valor);
+        return negativo ? -valor : valor;
+    }
+
+    /** Inverso de {@link #formatar}: "1234.56" / "-0.50" (duas casas, ponto decimal) -&gt; centavos exatos. */
+    static long lerFormatado(String valor) {
+        int ponto = valor.indexOf('.');
+        boolean negativo = valor.startsWith("-");
+        long inteiro = Math.abs(Long.parseLong(valor.substring(0, ponto)));
+        long c = inteiro * 100 + Long.parseLong(valor.substring(ponto + 1));
+        return negativo ? -c : c;
+    }
+
+    // --- ARITMÉTICA ---
+
+    /** valor / divisor arredondado para o centavo mais próximo (metade para longe do zero, como o NUMERIC). */
+    static long dividir(long valor, long divisor) {
+        long quociente = valor / divisor;
+        long resto = valor % divisor;
+        if (Math.abs(resto) * 2 >= Math.abs(divisor)) quociente += (valor < 0) == (divisor < 0) ? 1 : -1;
+        return quociente;
+    }
+
+    /**
+     * Centavos mais próximos de um valor em reais calculado em ponto flutuante (ex: desvio padrão), com
+     * metade para o par sobre o valor binário exato, como o DecimalFormat("#0.00") usado antes.
+     */
+    static long deDouble(double reais) {
+        double x = reais * 100;
+        if (Math.abs(x) < LIMITE_EXATO) {
+            double inteiro = Math.rint(x);
+            // Longe de um empate, o erro do produto (meio ulp) não muda o arredondamento
+            if (Math.abs(Math.abs(x - inteiro) - 0.5) > Math.ulp(x) * 2) return (long) inteiro;
+        }
+        return new BigDecimal(reais).setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    // --- ESCRITA ---
+
+    /** 123456 -&gt; "1234.56" (ponto decimal, sem milhar), o formato aceito pelo COPY no NUMERIC(18,2). */
+    static String formatar(long centavos) {
+        StringBuilder sb = new StringBuilder(24);
+        if (centavos < 0) sb.append('-');
+        // Divide antes do abs (Math.abs(Long.MIN_VALUE) estoura)
+        long inteiro = Math.abs(centavos / 100);
+        int fracao = (int) Math.abs(centavos % 100);
+        sb.append(inteiro).append('.');
+        if (fracao < 10) sb.append('0');
+        return sb.append(fracao).toString();
+    }
+}
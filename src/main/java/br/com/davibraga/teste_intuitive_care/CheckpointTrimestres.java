@@ -0,0 +1,158 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Checkpoint por trimestre para a execução incremental (pasta TEMP/checkpoint).
+ *
+ * Para cada ZIP processado ficam salvos o consolidado parcial (.csv) e o estado de Welford de cada
+ * operadora (.bin: total em centavos, count, mean, M2 e o sketch de quantis). O manifesto registra o
+ * SHA-256 do ZIP de origem e a assinatura da entrada (CADOP + filtro); se qualquer um mudar, o trimestre é
+ * retirado e reprocessado, e só volta a valer quando o reprocessamento termina ({@link #salvar}). Um
+ * trimestre também pode ser retirado explicitamente ({@link #retirar}).
+ */
+final class CheckpointTrimestres {
+
+    private static final String MANIFESTO = "manifesto.properties";
+    private static final int MAGIC = 0x414E5343; // "ANSC"
+    private static final int VERSAO = 3;
+
+    private final Path dir;
+    private final String assinaturaEntrada;
+    private final Properties manifesto = new Properties();
+
+    CheckpointTrimestres(Path dir, String assinaturaEntrada) throws IOException {
+        this.dir = dir;
+        this.assinaturaEntrada = assinaturaEntrada;
+        Files.createDirectories(dir);
+
+        Path arquivoManifesto = dir.resolve(MANIFESTO);
+        if (Files.exists(arquivoManifesto)) {
+            try (InputStream in = Files.newInputStream(arquivoManifesto)) {
+                manifesto.load(in);
+            }
+        }
+    }
+
+    Path parteConsolidado(String zipName) {
+        return dir.resolve(zipName.replace(".zip", "") + ".csv");
+    }
+
+    private Path estado(String zipName) {
+        return dir.resolve(zipName.replace(".zip", "") + ".bin");
+    }
+
+    /** O trimestre já foi processado a partir deste mesmo ZIP e com a mesma entrada? */
+    boolean valido(String zipName, String sha256Zip) {
+        synchronized (manifesto) {
+            return sha256Zip != null
+                    && sha256Zip.equals(manifesto.getProperty(zipName + ".sha256"))
+                    && assinaturaEntrada.equals(manifesto.getProperty(zipName + ".assinatura"))
+                    && Files.exists(parteConsolidado(zipName))
+                    && Files.exists(estado(zipName));
+        }
+    }
+
+    /** Grava o estado do trimestre e marca o ZIP como processado. */
+    void salvar(String zipName, String sha256Zip, String trimestre, AgregadorDespesas parcial) throws IOException {
+        Path destino = estado(zipName);
+        Path tmp = dir.resolve(destino.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSAO);
+            out.writeUTF(trimestre);
+
+            int comDados = 0;
+            for (int id = 0; id < parcial.tamanho(); id++) {
+                if (parcial.contagem(id) > 0) comDados++;
+            }
+            out.writeInt(comDados);
+
+            for (int id = 0; id < parcial.tamanho(); id++) {
+                if (parcial.contagem(id) == 0) continue;
+                out.writeUTF(parcial.razaoSocial(id));
+                out.writeUTF(parcial.uf(id));
+                out.writeLong(parcial.totalDespesas(id));
+                out.writeLong(parcial.contagem(id));
+                out.writeDouble(parcial.media(id));
+                out.writeDouble(parcial.m2(id));
+                parcial.sketchQuantis(id).escrever(out);
+            }
+        }
+        Files.move(tmp, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        synchronized (manifesto) {
+            manifesto.setProperty(zipName + ".sha256", sha256Zip);
+            manifesto.setProperty(zipName + ".assinatura", assinaturaEntrada);
+            salvarManifesto();
+        }
+    }
+
+    /**
+     * Mescla o estado salvo do trimestre no agregador. Retorna false (sem alterar o agregador)
+     * se o arquivo estiver corrompido ou citar uma chave que não existe no dicionário atual.
+     */
+    boolean carregar(String zipName, AgregadorDespesas destino, int bitTrimestre) throws IOException {
+        AgregadorDespesas lido = destino.novoParcial();
+
+        try (DataInputStream in =
+                     new DataInputStream(new BufferedInputStream(Files.newInputStream(estado(zipName))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSAO) return false;
+            in.readUTF(); // trimestre (informativo; o bit vem da execução atual)
+
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                String razao = in.readUTF();
+                String uf = in.readUTF();
+                long total = in.readLong();
+                long count = in.readLong();
+                double mean = in.readDouble();
+                double m2 = in.readDouble();
+                SketchQuantis sketch = SketchQuantis.ler(in, SketchQuantis.K_PADRAO);
+
+                int id = destino.id(razao, uf);
+                if (id < 0) return false;
+                lido.mesclarEstado(id, total, count, mean, m2, 1L << bitTrimestre, sketch);
+            }
+        } catch (IOException e) {
+            System.err.println(" > Checkpoint ilegível para " + zipName + ": " + e.getMessage());
+            return false;
+        }
+
+        destino.mesclar(lido);
+        return true;
+    }
+
+    /** Remove o trimestre (ex: ANS republicou o arquivo); ele será reprocessado na próxima execução. */
+    void retirar(String zipName) throws IOException {
+        Files.deleteIfExists(estado(zipName));
+        Files.deleteIfExists(parteConsolidado(zipName));
+        Files.deleteIfExists(ConsolidadoColunar.linhasDaParte(parteConsolidado(zipName)));
+        synchronized (manifesto) {
+            manifesto.remove(zipName + ".sha256");
+            manifesto.remove(zipName + ".assinatura");
+            salvarManifesto();
+        }
+    }
+
+    // Chamado sempre com o lock do manifesto
+    private void salvarManifesto() throws IOException {
+        Path tmp = dir.resolve(MANIFESTO + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            manifesto.store(out, "Checkpoint de trimestres processados");
+        }
+        Files.move(tmp, dir.resolve(MANIFESTO), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
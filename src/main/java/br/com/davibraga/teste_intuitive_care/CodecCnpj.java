@@ -0,0 +1,93 @@
+package br.com.davibraga.teste_intuitive_care;
+
+/**
+ * CNPJ como long: os 14 dígitos cabem em 47 bits, então o CNPJ vira chave primitiva em todo o join.
+ *
+ * A leitura aceita qualquer forma crua (formatado, sem zeros à esquerda, com lixo) com a mesma regra do
+ * antigo padronizarCnpj: só os dígitos, os 14 primeiros, zeros à esquerda implícitos. A validação dos
+ * dígitos verificadores é só aritmética (sem regex, sem alocação) e a volta para texto acontece apenas
+ * na hora de escrever a saída.
+ */
+final class CodecCnpj {
+
+    /** CNPJ sem nenhum dígito. */
+    static final long VAZIO = -1L;
+
+    private static final int DIGITOS = 14;
+    // 11111111111111: todo CNPJ com os 14 dígitos iguais é múltiplo dele (e só esses, abaixo de 10^14)
+    private static final long REPDIGITO = 11_111_111_111_111L;
+
+    private CodecCnpj() {
+    }
+
+    // --- LEITURA ---
+
+    /** Dígitos do texto (os 14 primeiros) como long, ou {@link #VAZIO}. */
+    static long ler(CharSequence texto) {
+        long valor = 0;
+        int digitos = 0;
+        for (int i = 0; i < texto.length() && digitos < DIGITOS; i++) {
+            char c = texto.charAt(i);
+            if (c >= '0' && c <= '9') {
+                valor = valor * 10 + (c - '0');
+                digitos++;
+            }
+        }
+        return digitos == 0 ? VAZIO : valor;
+    }
+
+    // --- VALIDAÇÃO ---
+
+    /** 14 dígitos, sem serem todos iguais (regra do consolidado; não confere os verificadores). */
+    static boolean formatoValido(long cnpj) {
+        return cnpj >= 0 && cnpj % REPDIGITO != 0;
+    }
+
+    /** Dígitos verificadores conferem (algoritmo da Receita Federal), como o isCnpjValido. */
+    static boolean valido(long cnpj) {
+        if (!formatoValido(cnpj)) return false;
+        long base = cnpj / 10; // 13 primeiros dígitos
+        return digitoVerificador(base / 10, 12) == (int) (base % 10)
+                && digitoVerificador(base, 13) == (int) (cnpj % 10);
+    }
+
+    // Pesos 2..9 da direita para a esquerda, reiniciando em 2
+    private static int digitoVerificador(long digitos, int quantidade) {
+        int soma = 0;
+        int peso = 2;
+        for (int i = 0; i < quantidade; i++) {
+            soma += (int) (digitos % 10) * peso;
+            digitos /= 10;
+            peso = peso == 9 ? 2 : peso + 1;
+        }
+        int r = soma % 11;
+        return r < 2 ? 0 : 11 - r;
+    }
+
+    /**
+     * Validação em lote de uma coluna: validos[i] = {@link #valido}(cnpjs[i]) para i &lt; quantidade.
+     * Retorna quantos são válidos.
+     */
+    static int validar(long[] cnpjs, int quantidade, boolean[] validos) {
+        int total = 0;
+        for (int i = 0; i < quantidade; i++) {
+            boolean ok = valido(cnpjs[i]);
+            validos[i] = ok;
+            if (ok) total++;
+        }
+        return total;
+    }
+
+    // --- ESCRITA ---
+
+    /** 14 dígitos com zeros à esquerda, ou "" para {@link #VAZIO}. */
+    static String formatar(long cnpj) {
+        if (cnpj == VAZIO) return "";
+        char[] c = new char[DIGITOS];
+        for (int i = DIGITOS - 1; i >= 0; i--) {
+            c[i] = (char) ('0' + cnpj % 10);
+            cnpj /= 10;
+        }
+        return new String(c);
+    }
+}
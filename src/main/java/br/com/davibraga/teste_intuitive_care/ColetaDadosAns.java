@@ -1,21 +1,39 @@
 package br.com.davibraga.teste_intuitive_care;
 
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 public class ColetaDadosAns {
 
     // --- CONFIGURAÇÕES ---
-    private static final String BASE_URL = "https://dadosabertos.ans.gov.br/FTP/PDA/demonstracoes_contabeis/2025/";
-    private static final String[] FILE_NAMES = {"1T2025.zip", "2T2025.zip", "3T2025.zip"};
+    // Podem ser sobrescritos via -Dans.baseUrl / -Dans.arquivos (ex: servidor HTTP local com ZIPs de teste)
+    private static final String BASE_URL = System.getProperty("ans.baseUrl",
+            "https://dadosabertos.ans.gov.br/FTP/PDA/demonstracoes_contabeis/2025/");
+    private static final String[] FILE_NAMES = System.getProperty("ans.arquivos",
+            "1T2025.zip,2T2025.zip,3T2025.zip").split(",");
+
+    // Modo de ingestão: "sequencial" (padrão) ou "concorrente" (um trimestre por thread)
+    private static final boolean MODO_CONCORRENTE = "concorrente".equalsIgnoreCase(System.getProperty("ans.modo"));
+
+    // Execução incremental: só processa trimestres novos/alterados, o resto vem do checkpoint.
+    // -Dans.retirar=1T2025.zip,... descarta o checkpoint desses trimestres (ex: ANS republicou o arquivo)
+    private static final boolean INCREMENTAL = Boolean.getBoolean("ans.incremental");
+    // Cada CSV de demonstrações dividido em blocos processados em paralelo (trimestres com milhões de linhas)
+    private static final boolean BLOCOS_PARALELOS = Boolean.getBoolean("ans.blocos");
+    private static final String RETIRAR = System.getProperty("ans.retirar", "");
+    // Download, inflate, filtro/join e escrita em threads próprias ligadas por filas limitadas (modo sequencial)
+    private static final boolean PIPELINE = Boolean.getBoolean("ans.pipeline");
     
     // Pastas e Arquivos
     private static final String TEMP_FOLDER = "TEMP";
@@ -25,493 +43,673 @@ public class ColetaDadosAns {
     // Outputs
     private static final String OUTPUT_CONSOLIDADO = "consolidado_despesas.csv";
     private static final String OUTPUT_AGREGADO = "despesas_agregadas.csv";
-
-    // Filtros
+    private static final String CACHE_FOLDER = "cache"; // dentro de TEMP
+    private static final String CHECKPOINT_FOLDER = "checkpoint"; // dentro de TEMP
+    private static final String CADASTRO_FOLDER = "cadastro"; // dentro de TEMP (CADOP normalizado + snapshot)
+    private static final String RANKING_FOLDER = "ranking"; // dentro de TEMP (runs da ordenação externa do agregado)
+    private static final String CONTAS_FOLDER = "contas"; // dentro de TEMP (consolidado e agregado de cada conta extra)
+
+    // Saída: "csv" (padrão, arquivos em TEMP para o import.sql) ou "postgres" (COPY direto no banco)
+    private static final boolean SAIDA_POSTGRES = "postgres".equalsIgnoreCase(System.getProperty("ans.saida"));
+    private static final String TABELA_CONSOLIDADO = "tb_consolidado_despesas";
+    private static final String COLUNAS_CONSOLIDADO = "cnpj_operadora, razao_social, trimestre, ano, valor_despesa, registro_ans, modalidade, uf";
+    private static final String TABELA_AGREGADO = "tb_despesas_agregadas";
+    private static final String COLUNAS_AGREGADO = "razao_social, uf, total_despesas, media_trimestral, desvio_padrao, "
+            + "p50_despesas, p90_despesas, p99_despesas";
+
+    // Também grava o consolidado no formato colunar binário (TEMP/consolidado_despesas.col), lido via memory-map
+    private static final boolean SAIDA_COLUNAR = Boolean.getBoolean("ans.colunar");
+    private static final String OUTPUT_COLUNAR = "consolidado_despesas.col";
+
+    // Consolidado e agregado gravados como gzip em blocos comprimidos em paralelo, com índice (TEMP/*.csv.gz)
+    private static final boolean SAIDA_GZIP = Boolean.getBoolean("ans.gzip");
+
+    // Filtros: a conta principal mais as de -Dans.contas=nome=descricao:Texto|nome=conta:Prefixo (ver FiltroContas),
+    // todas avaliadas na mesma passada; as extras saem em TEMP/contas/<nome>
     private static final String FILTER_TEXT = "Despesas com Eventos / Sinistros";
-    
-
-    // --- CLASSES DE DADOS ---
-
-    // Dados imutáveis do CADOP (Join)
-    private static class DadosCadop {
-        String cnpjRaw; // Apenas números
-        String razaoSocial;
-        String registroAns;
-        String modalidade;
-        String uf;
-
-        public DadosCadop(String cnpjRaw, String razaoSocial, String registroAns, String modalidade, String uf) {
-            this.cnpjRaw = cnpjRaw;
-            this.razaoSocial = razaoSocial;
-            this.registroAns = registroAns;
-            this.modalidade = modalidade;
-            this.uf = uf;
-        }
-    }
-
-    // Acumulador para Estatísticas (Agregação)
-    private static class EstatisticaOperadora {
-        String razaoSocial;
-        String uf;
-        double totalDespesas = 0.0;
-        
-        // Para Desvio Padrão (Algoritmo de Welford para variância incremental)
-        long count = 0;
-        double M2 = 0.0; // Soma dos quadrados das diferenças
-        double mean = 0.0;
-
-        // Para Média Trimestral
-        Set<String> trimestresPresentes = new HashSet<>();
-
-        public EstatisticaOperadora(String razaoSocial, String uf) {
-            this.razaoSocial = razaoSocial;
-            this.uf = uf;
-        }
-
-        public void adicionarDespesa(double valor, String trimestre) {
-            this.totalDespesas += valor;
-            this.trimestresPresentes.add(trimestre);
+    private static final FiltroContas CONTAS = FiltroContas.configurar("despesas_eventos", FILTER_TEXT,
+            System.getProperty("ans.contas", ""));
 
-            // Welford's algorithm para Variância/StdDev on-the-fly
-            this.count++;
-            double delta = valor - this.mean;
-            this.mean += delta / this.count;
-            double delta2 = valor - this.mean;
-            this.M2 += delta * delta2;
-        }
-
-        public double getMediaTrimestral() {
-            if (trimestresPresentes.isEmpty()) return 0.0;
-            
-            // Média do total gasto por trimestre ativo
-            return totalDespesas / trimestresPresentes.size();
-        }
-
-        public double getDesvioPadrao() {
-            if (count < 2) return 0.0;
-            return Math.sqrt(M2 / (count - 1));
-        }
-    }
+    // Instrumentação (etapas, contadores por arquivo, eventos JFR); relatório gravado ao lado das saídas
+    private static final MetricasExecucao METRICAS = new MetricasExecucao();
+    private static final String OUTPUT_RELATORIO = "relatorio_execucao.json";
+    
 
+    // As etapas de METRICAS são escopos de medição: o try-with-resources não usa a variável no corpo
+    @SuppressWarnings("try")
     public static void main(String[] args) {
+        String root = System.getProperty("user.dir");
+        Path tempDir = Paths.get(root, TEMP_FOLDER);
+        boolean sucesso = false;
+
         try {
             long startTime = System.currentTimeMillis();
             
-            String root = System.getProperty("user.dir");
-            Path tempDir = Paths.get(root, TEMP_FOLDER);
             Path auxFile = Paths.get(root, AUX_FOLDER, CADOP_FILE);
-            Path arquivoCadop = Paths.get("AUX_CSV/Relatorio_cadop.csv");
             
             Path pathConsolidado = tempDir.resolve(OUTPUT_CONSOLIDADO);
             Path pathAgregado = tempDir.resolve(OUTPUT_AGREGADO);
 
-           /**Remove os espacos em branco null  do arquivo baixado de 
-            * operadoras_de_plano_de_saude_ativas*/
-         
-            tratarArquivoCadop(arquivoCadop);
-            
+            // Partes, checkpoint e agregadores parciais só conhecem a conta principal
+            if (CONTAS.quantidade() > 1 && (MODO_CONCORRENTE || INCREMENTAL)) {
+                throw new IllegalArgumentException("ans.contas não é suportado com ans.modo=concorrente nem ans.incremental");
+            }
+
             // 1. Setup de Diretórios
             prepararDiretorio(tempDir);
 
+            CacheDownloads cache = new CacheDownloads(BASE_URL, tempDir.resolve(CACHE_FOLDER));
+
             // 2. Carregar CADOP em Memória (Hash Join Setup)
-            // Mapa Principal: Chave = REG_ANS (pois é o dado confiável no arquivo raw da ANS)
-            // Mapa Secundário: Chave = CNPJ (para cumprir o requisito explícito de join por CNPJ)
+            // Uma leitura do Relatorio_cadop.csv normaliza, valida os CNPJs e indexa REG_ANS -> operadora
+            // (ponte entre o dado raw da ANS e a chave CNPJ). O arquivo original não é reescrito: a versão
+            // normalizada e o snapshot binário ficam em TEMP/cadastro.
             
             System.out.println("[ETAPA 1] Carregando tabela CADOP...");
-            Map<String, DadosCadop> mapPorCnpj = carregarCadopPorCnpj(auxFile);
-            Map<String, String> mapRegAnsParaCnpj = carregarRegAnsParaCnpj(auxFile); // Helper para linkar raw -> cnpj
+            CadastroOperadoras cadastro;
+            try (MetricasExecucao.Etapa etapa = METRICAS.etapa("carga_cadop")) {
+                cadastro = CadastroOperadoras.carregar(auxFile, tempDir.resolve(CADASTRO_FOLDER));
+            }
 
-            System.out.println(" > Operadoras indexadas por CNPJ: " + mapPorCnpj.size());
+            if (cadastro.doSnapshot()) {
+                System.out.println(" > CADOP sem alterações, usando snapshot");
+            } else {
+                System.out.println(" > CNPJs corrigidos (zeros adicionados): " + cadastro.cnpjsCorrigidos());
+                System.out.println(" > CNPJs matematicamente inválidos (mantidos): " + cadastro.cnpjsInvalidos());
+            }
+            System.out.println(" > Operadoras indexadas por CNPJ: " + cadastro.tamanho());
+            METRICAS.registrar("operadorasCadop", cadastro.tamanho());
+            METRICAS.registrar("registrosAnsCadop", cadastro.quantidadeRegistros());
+            METRICAS.registrar("cnpjsInvalidosCadop", cadastro.cnpjsInvalidos());
+            METRICAS.registrar("snapshotCadop", cadastro.doSnapshot() ? 1 : 0);
 
             // 3. Processamento Stream (Pipeline)
-            // Mapa para agregação: Chave = "RazaoSocial|UF"
-            Map<String, EstatisticaOperadora> mapaAgregacao = new HashMap<>();
+            // Agregação colunar: id denso por RazaoSocial+UF, atribuído na carga do cadastro e não por linha
+            // Um agregador por conta (posição 0 = principal)
+            AgregadorDespesas[] agregadores = new AgregadorDespesas[CONTAS.quantidade()];
+            for (int i = 0; i < agregadores.length; i++) agregadores[i] = cadastro.novoAgregador();
+            AgregadorDespesas agregador = agregadores[0];
+            METRICAS.registrar("chavesAgregacao", agregador.tamanho());
+            METRICAS.registrar("contas", CONTAS.quantidade());
 
             System.out.println("[ETAPA 2] Iniciando processamento e geração do consolidado...");
-            
-            try (BufferedWriter writerConsolidado = Files.newBufferedWriter(pathConsolidado, StandardCharsets.UTF_8)) {
-                
-                // Cabeçalho Consolidado Atualizado
-                writerConsolidado.write("CNPJ;RazaoSocial;trimestre;Ano;ValorDespesas;RegistroANS;Modalidade;UF");
-                writerConsolidado.newLine();
-
-                for (String zipName : FILE_NAMES) {
-                    processarZip(zipName, tempDir, writerConsolidado, mapPorCnpj, mapRegAnsParaCnpj, mapaAgregacao);
+
+            try (ConsolidadoColunar.Escritor colunar = SAIDA_COLUNAR ? new ConsolidadoColunar.Escritor(tempDir.resolve(OUTPUT_COLUNAR)) : null) {
+                if (SAIDA_POSTGRES) {
+                    // Carga direta via COPY em tabelas de carga, publicadas juntas no final (tudo ou nada)
+                    try (CargaPostgres carga = CargaPostgres.conectar()) {
+                        try (MetricasExecucao.Etapa etapa = METRICAS.etapa("consolidado");
+                             EscritorCsv writerConsolidado = new EscritorCsv(carga.copiar(TABELA_CONSOLIDADO, COLUNAS_CONSOLIDADO))) {
+                            gerarConsolidados(writerConsolidado, colunar, tempDir, cache, cadastro, agregadores);
+                        }
+
+                        System.out.println("[ETAPA 3] Gerando estatísticas agregadas...");
+                        try (MetricasExecucao.Etapa etapa = METRICAS.etapa("agregado");
+                             EscritorCsv writerAgregado = new EscritorCsv(carga.copiar(TABELA_AGREGADO, COLUNAS_AGREGADO))) {
+                            escreverAgregado(writerAgregado, agregador, tempDir.resolve(RANKING_FOLDER), "");
+                            gerarAgregadosContas(tempDir, agregadores);
+                        }
+                        try (MetricasExecucao.Etapa etapa = METRICAS.etapa("publicacao")) {
+                            if (colunar != null) colunar.publicar();
+                            carga.publicar();
+                        }
+                    }
+                } else {
+                    try (MetricasExecucao.Etapa etapa = METRICAS.etapa("consolidado");
+                         EscritorCsv writerConsolidado = new EscritorCsv(abrirSaida(pathConsolidado))) {
+                        gerarConsolidados(writerConsolidado, colunar, tempDir, cache, cadastro, agregadores);
+                    }
+
+                    // 4. Geração do Arquivo Agregado (Estatísticas)
+                    System.out.println("[ETAPA 3] Gerando arquivo de estatísticas agregadas...");
+                    try (MetricasExecucao.Etapa etapa = METRICAS.etapa("agregado")) {
+                        gerarArquivoAgregado(pathAgregado, agregador);
+                        gerarAgregadosContas(tempDir, agregadores);
+                    }
+                    // Só numa execução completa: com falha, o .col anterior continua valendo
+                    if (colunar != null) colunar.publicar();
                 }
             }
 
-            // 4. Geração do Arquivo Agregado (Estatísticas)
-            System.out.println("[ETAPA 3] Gerando arquivo de estatísticas agregadas...");
-            gerarArquivoAgregado(pathAgregado, mapaAgregacao);
-
             long duration = System.currentTimeMillis() - startTime;
             System.out.println("Processo finalizado em " + (duration / 1000) + " segundos.");
+            sucesso = true;
 
         } catch (Exception e) {
             System.err.println("ERRO FATAL: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            gravarRelatorio(tempDir, sucesso);
         }
     }
 
-    // --- MÉTODOS DE LOAD (CADOP) ---
-
-    private static Map<String, DadosCadop> carregarCadopPorCnpj(Path path) throws IOException {
-        Map<String, DadosCadop> map = new HashMap<>();
-        if (!Files.exists(path)) throw new FileNotFoundException("CADOP não encontrado: " + path);
-
-        try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
-            String line = br.readLine();
-            if (line != null) {
-                int iCnpj = findCol(line, "CNPJ");
-                int iRazao = findCol(line, "RAZAO_SOCIAL");
-                int iReg = findCol(line, "REGISTRO_OPERADORA");
-                int iMod = findCol(line, "MODALIDADE"); // Pode não existir, verificar nome exato
-                int iUf = findCol(line, "UF");
-
-                while ((line = br.readLine()) != null) {
-                    String[] p = line.split(";", -1);
-                    if (p.length > iReg && p.length > iCnpj) {
-                        String cnpjRaw = limparCnpj(getVal(p, iCnpj));
-                        String razao = getVal(p, iRazao);
-                        String reg = getVal(p, iReg);
-                        String mod = (iMod != -1) ? getVal(p, iMod) : "N/A";
-                        String uf = (iUf != -1) ? getVal(p, iUf) : "BR";
-
-                        if (!cnpjRaw.isEmpty()) {
-                            map.put(cnpjRaw, new DadosCadop(cnpjRaw, razao, reg, mod, uf));
-                        }
-                    }
+    // Relatório JSON da execução (TEMP/relatorio_execucao.json); falha aqui não derruba o ETL
+    private static void gravarRelatorio(Path tempDir, boolean sucesso) {
+        String modo = (MODO_CONCORRENTE ? "concorrente" : "sequencial") + (INCREMENTAL ? "+incremental" : "")
+                + (BLOCOS_PARALELOS ? "+blocos" : "") + (PIPELINE ? "+pipeline" : "")
+                + (SAIDA_POSTGRES ? "+postgres" : "") + (SAIDA_COLUNAR ? "+colunar" : "")
+                + (SAIDA_GZIP && !SAIDA_POSTGRES ? "+gzip" : "");
+        try {
+            if (Files.isDirectory(tempDir)) METRICAS.gravarRelatorio(tempDir.resolve(OUTPUT_RELATORIO), sucesso, modo);
+        } catch (IOException e) {
+            System.err.println(" > Não foi possível gravar o relatório da execução: " + e.getMessage());
+        }
+    }
+
+    // Índice (bit) de cada trimestre distinto de FILE_NAMES, na ordem em que aparecem
+    private static int indiceTrimestre(String trimestre) {
+        List<String> distintos = new ArrayList<>();
+        for (String nome : FILE_NAMES) {
+            String t = nome.substring(0, 2);
+            if (!distintos.contains(t)) distintos.add(t);
+        }
+        int indice = distintos.indexOf(trimestre);
+        if (indice < 0 || indice >= Long.SIZE) throw new IllegalArgumentException("Trimestre fora do limite: " + trimestre);
+        return indice;
+    }
+
+    // --- MÉTODOS DE PROCESSAMENTO (CORE) ---
+
+    private static FileChannel abrirArquivo(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    // CSV de saída puro ou, com -Dans.gzip, o .csv.gz em blocos; a outra forma de uma execução anterior é
+    // removida, para o import.sql e o serviço de consultas não lerem um arquivo velho
+    private static WritableByteChannel abrirSaida(Path csv) throws IOException {
+        Path gz = GzipBlocos.comprimido(csv);
+        if (!SAIDA_GZIP) {
+            Files.deleteIfExists(gz);
+            Files.deleteIfExists(GzipBlocos.indice(gz));
+            return abrirArquivo(csv);
+        }
+        Files.deleteIfExists(csv);
+        return new GzipBlocos.Escritor(gz);
+    }
+
+    // Consolidado principal (aberto por quem chama, arquivo ou COPY) mais os das contas extras, sempre em arquivo
+    // colunar: recebe as linhas do consolidado principal já tipadas, ou null sem a saída colunar
+    private static void gerarConsolidados(EscritorCsv writerConsolidado, ConsolidadoColunar.Escritor colunar,
+                                          Path tempDir, CacheDownloads cache,
+                                          CadastroOperadoras cadastro,
+                                          AgregadorDespesas[] agregadores) throws IOException, InterruptedException {
+        EscritorCsv[] writers = new EscritorCsv[CONTAS.quantidade()];
+        writers[0] = writerConsolidado;
+        try {
+            for (int i = 1; i < writers.length; i++) {
+                Path pasta = tempDir.resolve(CONTAS_FOLDER).resolve(CONTAS.nome(i));
+                Files.createDirectories(pasta);
+                writers[i] = new EscritorCsv(abrirSaida(pasta.resolve(OUTPUT_CONSOLIDADO)));
+            }
+            gerarConsolidado(writers, colunar, tempDir, cache, cadastro, agregadores);
+        } finally {
+            IOException erro = null;
+            for (int i = 1; i < writers.length; i++) {
+                if (writers[i] == null) continue;
+                try {
+                    writers[i].close();
+                } catch (IOException e) {
+                    if (erro == null) erro = e; else erro.addSuppressed(e);
                 }
             }
+            if (erro != null) throw erro;
         }
-        return map;
     }
 
-    // Helper  para mapear REG_ANS -> CNPJ (para fazer a ponte entre Raw Data e o Join Key)
-    private static Map<String, String> carregarRegAnsParaCnpj(Path path) throws IOException {
-        Map<String, String> map = new HashMap<>();
-        try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
-            String line = br.readLine();
-            if(line != null) {
-                int iReg = findCol(line, "REGISTRO_OPERADORA");
-                int iCnpj = findCol(line, "CNPJ");
-                while ((line = br.readLine()) != null) {
-                    String[] p = line.split(";", -1);
-                    if (p.length > iReg && p.length > iCnpj) {
-                        map.put(getVal(p, iReg), limparCnpj(getVal(p, iCnpj)));
-                    }
-                }
+    private static void gerarConsolidado(EscritorCsv[] writers, ConsolidadoColunar.Escritor colunar,
+                                         Path tempDir, CacheDownloads cache,
+                                         CadastroOperadoras cadastro,
+                                         AgregadorDespesas[] agregadores) throws IOException, InterruptedException {
+        // Cabeçalho Consolidado Atualizado
+        for (EscritorCsv writer : writers) {
+            writer.campo("CNPJ").campo("RazaoSocial").campo("trimestre").campo("Ano")
+                  .campo("ValorDespesas").campo("RegistroANS").campo("Modalidade").campo("UF");
+            writer.fimDeLinha();
+        }
+
+        if (MODO_CONCORRENTE || INCREMENTAL) {
+            // Só a conta principal (validado no início do main)
+            CheckpointTrimestres checkpoint = INCREMENTAL ? abrirCheckpoint(tempDir, cadastro) : null;
+            processarZipsEmPartes(tempDir, cache, checkpoint, writers[0], colunar, cadastro, agregadores[0]);
+        } else if (PIPELINE) {
+            processarZipsEmPipeline(cache, writers, colunar, cadastro, agregadores);
+        } else {
+            for (String zipName : FILE_NAMES) {
+                processarZip(zipName, cache, writers, colunar, cadastro, agregadores);
             }
         }
-        return map;
     }
 
-    // --- MÉTODOS DE PROCESSAMENTO (CORE) ---
+    // Mesmo consolidado e agregado do sequencial, com as etapas de cada trimestre sobrepostas (ver PipelineDemonstracoes)
+    private static void processarZipsEmPipeline(CacheDownloads cache, EscritorCsv[] writers,
+                                                ConsolidadoColunar.Escritor colunar,
+                                                CadastroOperadoras cadastro,
+                                                AgregadorDespesas[] agregadores) throws IOException, InterruptedException {
+        String[] trims = new String[FILE_NAMES.length];
+        String[] anos = new String[FILE_NAMES.length];
+        int[] bits = new int[FILE_NAMES.length];
+        for (int i = 0; i < FILE_NAMES.length; i++) {
+            trims[i] = trimestreDoArquivo(FILE_NAMES[i]);
+            anos[i] = anoDoArquivo(FILE_NAMES[i]);
+            bits[i] = indiceTrimestre(trims[i]);
+        }
+        new PipelineDemonstracoes(FILE_NAMES, trims, anos, bits, cache, writers, colunar, cadastro, agregadores, METRICAS)
+                .executar();
+    }
 
-    private static void processarZip(String fileName, Path tempDir, BufferedWriter writer,
-                                     Map<String, DadosCadop> cadopMap, 
-                                     Map<String, String> regToCnpjMap,
-                                     Map<String, EstatisticaOperadora> aggMap) {
-        
-        String urlStr = BASE_URL + fileName;
+    private static String trimestreDoArquivo(String fileName) {
+        return fileName.replace(".zip", "").substring(0, 2);
+    }
+
+    private static String anoDoArquivo(String fileName) {
         String rawName = fileName.replace(".zip", "");
-        String trim = rawName.substring(0, 2);
-        String ano = rawName.length() >= 6 ? rawName.substring(2, 6) : "2025";
+        return rawName.length() >= 6 ? rawName.substring(2, 6) : "2025";
+    }
+
+    // "1T" -> 1, como na coluna trimestre do arquivo colunar
+    static int numeroTrimestre(String trim) {
+        return Integer.parseInt(trim.substring(0, trim.length() - 1));
+    }
+
+    // Retorna false se o trimestre não pôde ser processado (erro já registrado no log)
+    // writers/agregadores: um por conta, na ordem de FiltroContas; colunar só da conta principal (ou null)
+    private static boolean processarZip(String fileName, CacheDownloads cache, EscritorCsv[] writers,
+                                     ConsolidadoColunar.DestinoTipado colunar,
+                                     CadastroOperadoras cadastro,
+                                     AgregadorDespesas[] agregadores) {
+        
+        String trim = trimestreDoArquivo(fileName);
+        String ano = anoDoArquivo(fileName);
+        int bitTrimestre = indiceTrimestre(trim);
         
         System.out.println(" > Baixando e processando: " + fileName);
 
+        MetricasExecucao.Contadores contadores = new MetricasExecucao.Contadores(fileName);
         try {
-            HttpURLConnection conn = (HttpURLConnection) new URL(urlStr).openConnection();
-            if (conn.getResponseCode() == 200) {
-                try (ZipInputStream zis = new ZipInputStream(conn.getInputStream(), StandardCharsets.UTF_8)) {
-                    ZipEntry entry;
-                    while ((entry = zis.getNextEntry()) != null) {
-                        if (!entry.isDirectory() && entry.getName().toLowerCase().endsWith(".csv")) {
-                            
-                            BufferedReader reader = new BufferedReader(new InputStreamReader(zis, StandardCharsets.UTF_8)); // ISO-8859-1 se der erro de acento
-                            String header = reader.readLine();
-                            
-                            if (header != null) {
-                                int iReg = findCol(header, "REG_ANS");
-                                int iDesc = findCol(header, "DESCRICAO");
-                                int iVal = findCol(header, "VL_SALDO_FINAL");
-
-                                if (iReg != -1 && iDesc != -1 && iVal != -1) {
-                                    String line;
-                                    while ((line = reader.readLine()) != null) {
-                                        // 1. Filtro
-                                        if (contemTexto(line, iDesc, FILTER_TEXT)) {
-                                            String[] parts = line.split(";", -1);
-                                            
-                                            // 2. Extração de Dados
-                                            String regAnsRaw = getVal(parts, iReg);
-                                            String valStr = getVal(parts, iVal);
-                                            
-                                            if (!isNumeric(valStr)) continue;
-                                            double valor = parseDouble(valStr);
-
-                                            // 3. Lógica de JOIN (Complexa conforme requisito)
-                                            // Requisito: Usar CNPJ como chave.
-                                            // Passo A: Descobrir o CNPJ a partir do REG_ANS (dado que temos no arquivo)
-                                            String chaveCnpj = regToCnpjMap.getOrDefault(regAnsRaw, "");
-                                            
-                                            // Passo B: Usar o CNPJ para buscar os dados complementares no Map Principal
-                                            DadosCadop dados = cadopMap.get(chaveCnpj);
-
-                                            // Dados finais para escrita
-                                            String cnpjFinal = "";
-                                            String razaoFinal = "null";
-                                            String modalidade = "DESCONHECIDO";
-                                            String uf = "DESCONHECIDO";
-                                            String regAnsFinal = regAnsRaw;
-
-                                            if (dados != null) {
-                                                // Validação de CNPJ e Formatação
-                                                if (isValidCNPJ(dados.cnpjRaw)) {
-                                                    cnpjFinal = formatarCnpj(dados.cnpjRaw);
-                                                }
-                                                if (dados.razaoSocial != null && !dados.razaoSocial.isEmpty()) {
-                                                    razaoFinal = dados.razaoSocial;
-                                                }
-                                                modalidade = dados.modalidade;
-                                                uf = dados.uf;
-                                                regAnsFinal = dados.registroAns; // Garante consistência
-                                            } else {
-                                                // REGISTROS SEM MATCH NO CADASTRO
-                                                // Decisão de Trade-off: Mantemos o registro financeiro, mas marcamos como desconhecido.
-                                                // Isso evita "sumir" com dinheiro nas demonstrações.
-                                            }
-
-                                            // 4. Escrita no CONSOLIDADO
-                                            // Ordem: CNPJ;RazaoSocial;trimestre;Ano;ValorDespesas;RegistroANS;Modalidade;UF
-                                            String linhaConsolidada = String.format("%s;%s;%s;%s;%.2f;%s;%s;%s",
-                                                cnpjFinal, razaoFinal, trim, ano, valor, regAnsFinal, modalidade, uf
-                                            );
-                                            writer.write(linhaConsolidada.replace(",", ".")); // Padroniza ponto decimal
-                                            writer.newLine();
-
-                                            // 5. Atualização da AGREGAÇÃO (Memória)
-                                            if (!razaoFinal.equals("null") && !uf.equals("DESCONHECIDO")) {
-                                                String key = razaoFinal + "|" + uf;
-                                                aggMap.putIfAbsent(key, new EstatisticaOperadora(razaoFinal, uf));
-                                                aggMap.get(key).adicionarDespesa(valor, trim);
-                                            }
-                                        }
-                                    }
-                                }
-                            }
+            // Download (ou revalidação) via cache local; o processamento lê do arquivo em disco
+            long inicio = System.nanoTime();
+            Path zipLocal = cache.obter(fileName);
+            contadores.bytesBaixados = cache.bytesBaixados(fileName);
+            contadores.downloadNanos = System.nanoTime() - inicio;
+
+            inicio = System.nanoTime();
+            long inicioCpu = MetricasExecucao.cpuThread();
+            try (FileChannel canal = FileChannel.open(zipLocal, StandardOpenOption.READ);
+                 ZipInputStream zis = new ZipInputStream(
+                         new BufferedInputStream(Channels.newInputStream(canal), 1 << 16), StandardCharsets.UTF_8)) {
+                ZipEntry entry;
+                while ((entry = zis.getNextEntry()) != null) {
+                    if (!entry.isDirectory() && entry.getName().toLowerCase().endsWith(".csv")) {
+                        if (BLOCOS_PARALELOS) {
+                            // Entrada extraída ao lado do ZIP no cache e varrida em blocos no ForkJoinPool
+                            ProcessamentoEmBlocos.processar(zis, zipLocal.getParent(), trim, ano, bitTrimestre,
+                                    writers, colunar, cadastro, agregadores, contadores);
+                        } else {
+                            processarCsvDemonstracoes(zis, trim, ano, bitTrimestre, writers, colunar, cadastro,
+                                    agregadores, contadores);
                         }
+                        // Tamanhos da entrada ficam conhecidos depois de lida até o fim
+                        contadores.bytesCompactados += Math.max(0, entry.getCompressedSize());
+                        contadores.bytesInflados += Math.max(0, entry.getSize());
                     }
                 }
-            } else {
-                System.err.println("Erro baixar " + fileName + ": " + conn.getResponseCode());
             }
+            contadores.processamentoNanos = System.nanoTime() - inicio;
+            contadores.cpuNanos += MetricasExecucao.cpuThread() - inicioCpu; // + CPU dos blocos paralelos
+            return true;
         } catch (Exception e) {
+            contadores.origem = "falha";
             e.printStackTrace();
+            return false;
+        } finally {
+            METRICAS.registrarArquivo(contadores);
         }
     }
 
-    // --- GERAÇÃO DO ARQUIVO AGREGADO (DESAFIO) ---
+    // Filtra, cruza com o CADOP e agrega um CSV de demonstrações contábeis (uma entrada do ZIP)
+    static void processarCsvDemonstracoes(InputStream csv, String trim, String ano, int bitTrimestre,
+                                          EscritorCsv writer,
+                                          CadastroOperadoras cadastro,
+                                          AgregadorDespesas agregador,
+                                          MetricasExecucao.Contadores contadores) throws IOException {
+        processarCsvDemonstracoes(csv, trim, ano, bitTrimestre, new EscritorCsv[] {writer}, null, cadastro,
+                new AgregadorDespesas[] {agregador}, contadores);
+    }
 
-    private static void gerarArquivoAgregado(Path path, Map<String, EstatisticaOperadora> map) throws IOException {
-        // 1. Converter Map para List para ordenar
-        List<EstatisticaOperadora> lista = new ArrayList<>(map.values());
-
-        // 2. Ordenação (Trade-off: Memória vs Disco - Escolhido Memória por volume baixo de operadoras)
-        // Critério: Valor Total (Maior para Menor)
-        lista.sort((o1, o2) -> Double.compare(o2.totalDespesas, o1.totalDespesas));
-
-        // 3. Escrita
-        try (BufferedWriter bw = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
-            bw.write("RazaoSocial;UF;TotalDespesas;MediaDespesasPorTrimestre;DesvioPadraoDespesas");
-            bw.newLine();
-
-            DecimalFormat df = new DecimalFormat("#0.00", new DecimalFormatSymbols(Locale.US));
-
-            for (EstatisticaOperadora op : lista) {
-                String linha = String.format("%s;%s;%s;%s;%s",
-                    op.razaoSocial,
-                    op.uf,
-                    df.format(op.totalDespesas),
-                    df.format(op.getMediaTrimestral()),
-                    df.format(op.getDesvioPadrao())
-                );
-                bw.write(linha);
-                bw.newLine();
+    static void processarCsvDemonstracoes(InputStream csv, String trim, String ano, int bitTrimestre,
+                                          EscritorCsv[] writers,
+                                          ConsolidadoColunar.DestinoTipado colunar,
+                                          CadastroOperadoras cadastro,
+                                          AgregadorDespesas[] agregadores,
+                                          MetricasExecucao.Contadores contadores) throws IOException {
+        // Leitura em bytes: filtro e valor são avaliados antes de decodificar qualquer String
+        LeitorCsvBytes leitor = new LeitorCsvBytes(csv);
+
+        if (leitor.proximaLinha()) {
+            int[] colunas = colunasDemonstracoes(leitor.linha());
+            if (colunas != null) {
+                processarLinhasDemonstracoes(leitor, colunas, trim, ano, bitTrimestre, writers, colunar, cadastro,
+                        agregadores, contadores);
             }
         }
     }
 
-    // --- UTILITÁRIOS ---
- // --- MÉTODOS DE VALIDAÇÃO DE CNPJ ---
+    // Posições de REG_ANS, DESCRICAO, VL_SALDO_FINAL e CD_CONTA_CONTABIL no cabeçalho, ou null se faltar
+    // alguma das três primeiras (sem o código da conta, só os filtros por descrição se aplicam: posição -1)
+    static int[] colunasDemonstracoes(String header) {
+        int iReg = findCol(header, "REG_ANS");
+        int iDesc = findCol(header, "DESCRICAO");
+        int iVal = findCol(header, "VL_SALDO_FINAL");
+        int iConta = findCol(header, "CD_CONTA_CONTABIL");
+        return iReg != -1 && iDesc != -1 && iVal != -1 ? new int[] {iReg, iDesc, iVal, iConta} : null;
+    }
 
- // 1. Arruma o CNPJ (Tira lixo e coloca zeros a esquerda)
- private static String padronizarCnpj(String cnpj) {
-     // Remove tudo que não é número
-     String apenasNumeros = cnpj.replaceAll("[^0-9]", "");
-     
-     // Se estiver vazio, retorna vazio
-     if (apenasNumeros.isEmpty()) return "";
-
-     // Se tiver menos de 14 dígitos (erro do Excel), preenche com zeros à esquerda
-     while (apenasNumeros.length() < 14) {
-         apenasNumeros = "0" + apenasNumeros;
-     }
-     
-     // Se tiver mais de 14 (erro grave), corta
-     if (apenasNumeros.length() > 14) {
-         apenasNumeros = apenasNumeros.substring(0, 14);
-     }
-
-     return apenasNumeros;
- }
+    /** Recebe as linhas filtradas e cruzadas na ordem do arquivo (escritores do consolidado ou lote do pipeline). */
+    interface DestinoLinhas {
+        /**
+         * contas: máscara das contas em que a linha entra (bit i = conta i do {@link FiltroContas}).
+         * id: operadora no cadastro, ou negativo com o REG_ANS como veio no arquivo em registroSemCadop.
+         */
+        void linha(long contas, int id, long valor, String registroSemCadop) throws IOException;
+    }
 
- // 2. Valida matemática (Dígitos Verificadores) - Algoritmo Padrão Receita Federal
- public static boolean isCnpjValido(String cnpj) {
-     cnpj = padronizarCnpj(cnpj);
-     if (cnpj.length() != 14 || cnpj.matches("(\\d)\\1{13}")) return false;
-
-     try {
-         int sm, i, r, num, peso;
-         char dig13, dig14;
-
-         // Calculo do 1o. Digito Verificador
-         sm = 0;
-         peso = 2;
-         for (i = 11; i >= 0; i--) {
-             num = (int) (cnpj.charAt(i) - 48);
-             sm = sm + (num * peso);
-             peso = peso + 1;
-             if (peso == 10) peso = 2;
-         }
-         r = sm % 11;
-         if ((r == 0) || (r == 1)) dig13 = '0';
-         else dig13 = (char) ((11 - r) + 48);
-
-         // Calculo do 2o. Digito Verificador
-         sm = 0;
-         peso = 2;
-         for (i = 12; i >= 0; i--) {
-             num = (int) (cnpj.charAt(i) - 48);
-             sm = sm + (num * peso);
-             peso = peso + 1;
-             if (peso == 10) peso = 2;
-         }
-         r = sm % 11;
-         if ((r == 0) || (r == 1)) dig14 = '0';
-         else dig14 = (char) ((11 - r) + 48);
-
-         return (dig13 == cnpj.charAt(12)) && (dig14 == cnpj.charAt(13));
-     } catch (InputMismatchException e) {
-         return false;
-     }
- }
- // Método para ler, limpar e sobrescrever o arquivo Relatorio_cadop.csv original em UTF-8
-    
-    private static void tratarArquivoCadop(Path caminhoArquivo) throws IOException {
-        System.out.println("Lendo e validando CNPJs no arquivo: " + caminhoArquivo);
-
-        List<String> linhas = Files.readAllLines(caminhoArquivo, StandardCharsets.UTF_8);
-        List<String> linhasTratadas = new ArrayList<>();
-
-        // Pega cabeçalho
-        String cabecalho = "";
-        int numColunas = 0;
-        if (!linhas.isEmpty()) {
-            cabecalho = linhas.get(0).replace("\t", ";").replace(",", ";");
-            // Força ponto e vírgula no cabeçalho
-            linhasTratadas.add(cabecalho);
-            numColunas = cabecalho.split(";").length;
+    // Laço quente: linhas de dados (depois do cabeçalho) de um CSV inteiro ou de um bloco dele
+    // colunar: recebe, já tipadas, as linhas da conta principal (ou null)
+    static void processarLinhasDemonstracoes(LeitorCsvBytes leitor, int[] colunas,
+                                             String trim, String ano, int bitTrimestre,
+                                             EscritorCsv[] writers,
+                                             ConsolidadoColunar.DestinoTipado colunar,
+                                             CadastroOperadoras cadastro,
+                                             AgregadorDespesas[] agregadores,
+                                             MetricasExecucao.Contadores contadores) throws IOException {
+        int trimestre = colunar != null ? numeroTrimestre(trim) : 0;
+        int anoNumero = colunar != null ? Integer.parseInt(ano) : 0;
+        processarLinhasDemonstracoes(leitor, colunas, bitTrimestre, (contas, id, valor, registroSemCadop) -> {
+            for (long c = contas; c != 0; c &= c - 1) {
+                escreverLinhaConsolidado(writers[Long.numberOfTrailingZeros(c)], cadastro, trim, ano, id, valor, registroSemCadop);
+            }
+            if (colunar != null && (contas & 1) != 0) {
+                colunar.linha(cadastro, trimestre, anoNumero, id, valor, registroSemCadop);
+            }
+        }, cadastro, agregadores, contadores);
+    }
+
+    // agregadores: um por conta; contas além do tamanho do array são ignoradas
+    static void processarLinhasDemonstracoes(LeitorCsvBytes leitor, int[] colunas, int bitTrimestre,
+                                             DestinoLinhas destino,
+                                             CadastroOperadoras cadastro,
+                                             AgregadorDespesas[] agregadores,
+                                             MetricasExecucao.Contadores contadores) throws IOException {
+        int iReg = colunas[0];
+        int iDesc = colunas[1];
+        int iVal = colunas[2];
+        int iConta = colunas[3];
+        long todas = agregadores.length >= Long.SIZE ? -1L : (1L << agregadores.length) - 1;
+
+        // Contadores locais (registradores); somados nos contadores do arquivo uma vez no final
+        long lidas = 0, filtradas = 0, acertos = 0, semRegistro = 0, semCadop = 0, escritas = 0;
+
+        while (leitor.proximaLinha()) {
+            lidas++;
+            // 1. Filtro (direto nos bytes; todas as contas numa passada só)
+            long contas = CONTAS.avaliar(leitor, iDesc, iConta) & todas;
+            if (contas != 0) {
+                filtradas++;
+                // 2. Extração de Dados (valor direto em centavos; só as linhas filtradas viram String)
+                long valor = leitor.campoCentavos(iVal);
+                if (valor == Centavos.INVALIDO) continue;
+
+                // 3. Lógica de JOIN (Complexa conforme requisito)
+                // Requisito: Usar CNPJ como chave.
+                // REG_ANS -> CNPJ -> operadora: os dois saltos já foram resolvidos na carga do cadastro,
+                // com chaves long; o REG_ANS só vira String se não for um número canônico
+                long chaveRegistro = leitor.campoInteiro(iReg);
+                String regAnsRaw = chaveRegistro >= 0 ? null : leitor.campo(iReg);
+                int id = regAnsRaw == null ? cadastro.idPorRegistro(chaveRegistro)
+                                           : cadastro.idPorRegistro(regAnsRaw);
+
+                if (id >= 0) {
+                    acertos++;
+                } else {
+                    if (regAnsRaw == null) regAnsRaw = leitor.campo(iReg);
+                    if (id == CadastroOperadoras.SEM_REGISTRO) semRegistro++;
+                    else semCadop++;
+                    // REGISTROS SEM MATCH NO CADASTRO
+                    // Decisão de Trade-off: Mantemos o registro financeiro, mas marcamos como desconhecido.
+                    // Isso evita "sumir" com dinheiro nas demonstrações.
+                }
+
+                // 4. Escrita no CONSOLIDADO (ver escreverLinhaConsolidado)
+                destino.linha(contas, id, valor, regAnsRaw);
+                escritas += Long.bitCount(contas);
+
+                // 5. Atualização da AGREGAÇÃO (Memória, arrays primitivos)
+                int idAgregacao = id >= 0 ? cadastro.idAgregacao(id) : -1;
+                if (idAgregacao >= 0) {
+                    for (long c = contas; c != 0; c &= c - 1) {
+                        agregadores[Long.numberOfTrailingZeros(c)].adicionar(idAgregacao, valor, bitTrimestre);
+                    }
+                }
+            }
         }
 
-        int cnpjsCorrigidos = 0;
-        int cnpjsInvalidos = 0;
+        contadores.linhasLidas += lidas;
+        contadores.linhasFiltradas += filtradas;
+        contadores.joinAcertos += acertos;
+        contadores.semRegistroAns += semRegistro;
+        contadores.semCadop += semCadop;
+        contadores.linhasEscritas += escritas;
+    }
 
-        for (int i = 1; i < linhas.size(); i++) {
-            String linha = linhas.get(i);
-            
-            // Normaliza separadores
-            if (linha.contains("\t")) linha = linha.replace("\t", ";");
-            else if (linha.contains(",") && !linha.contains(";")) linha = linha.replace(",", ";");
+    // Uma linha do consolidado (direto no buffer de bytes; valor com ponto decimal)
+    // Ordem: CNPJ;RazaoSocial;trimestre;Ano;ValorDespesas;RegistroANS;Modalidade;UF
+    static void escreverLinhaConsolidado(EscritorCsv writer, CadastroOperadoras cadastro, String trim, String ano,
+                                         int id, long valor, String registroSemCadop) throws IOException {
+        if (id >= 0) {
+            // CNPJ validado/formatado e razão social tratada na carga do cadastro; REG_ANS do cadastro (consistência)
+            writer.campo(cadastro.cnpjSaida(id)).campo(cadastro.razaoSaida(id)).campo(trim).campo(ano)
+                  .centavos(valor).campo(cadastro.registroAns(id)).campo(cadastro.modalidade(id)).campo(cadastro.uf(id));
+        } else {
+            writer.campo("").campo("null").campo(trim).campo(ano)
+                  .centavos(valor).campo(registroSemCadop).campo("DESCONHECIDO").campo("DESCONHECIDO");
+        }
+        writer.fimDeLinha();
+    }
+
+    // Cada trimestre gera um consolidado parcial (arquivo .parte ou do checkpoint) e um agregador próprio;
+    // com a saída colunar, também as linhas tipadas da parte (ConsolidadoColunar.linhasDaParte).
+    // No modo concorrente cada trimestre roda em sua própria thread; no incremental, trimestres com checkpoint
+    // válido não são reprocessados. No final, as partes são concatenadas e os agregadores mesclados na ordem
+    // de FILE_NAMES, então o resultado é determinístico e o tempo total fica limitado pelo trimestre mais lento.
+    private static void processarZipsEmPartes(Path tempDir, CacheDownloads cache, CheckpointTrimestres checkpoint,
+                                              EscritorCsv writer,
+                                              ConsolidadoColunar.Escritor colunar,
+                                              CadastroOperadoras cadastro,
+                                              AgregadorDespesas agregador)
+            throws IOException, InterruptedException {
+
+        List<Path> partes = new ArrayList<>();
+        List<Future<AgregadorDespesas>> futuros = new ArrayList<>();
+
+        ExecutorService executor = MODO_CONCORRENTE ? criarExecutorTrimestres() : Executors.newSingleThreadExecutor();
+        try {
+            for (String zipName : FILE_NAMES) {
+                Path parte = checkpoint != null
+                        ? checkpoint.parteConsolidado(zipName)
+                        : tempDir.resolve(zipName.replace(".zip", "") + ".parte.csv");
+                partes.add(parte);
+                futuros.add(executor.submit(() ->
+                        processarTrimestreEmParte(zipName, parte, cache, checkpoint, colunar != null, cadastro, agregador)));
+            }
 
-            String[] colunas = linha.split(";", -1);
-            List<String> colunasFinais = new ArrayList<>();
+            for (int i = 0; i < futuros.size(); i++) {
+                AgregadorDespesas aggLocal;
+                try {
+                    aggLocal = futuros.get(i).get();
+                } catch (ExecutionException e) {
+                    throw new IOException("Falha ao processar " + FILE_NAMES[i], e.getCause());
+                }
 
-            // O CNPJ geralmente é a coluna 1 (índice 1) ou 0 dependendo do arquivo. 
-            // No seu CSV enviado: Coluna 0 = Registro, Coluna 1 = CNPJ.
-            
-            for (int j = 0; j < numColunas; j++) {
-                String valor = (j < colunas.length) ? colunas[j] : "";
-                valor = valor.replace("\"", "").trim();
-                if (valor.isEmpty()) valor = "vazio";
-
-                // --- AQUI ENTRA A VALIDAÇÃO DO CNPJ (Coluna Index 1) ---
-                if (j == 1) { 
-                    String cnpjOriginal = valor;
-                    String cnpjNovo = padronizarCnpj(cnpjOriginal); // Coloca os zeros
-                    
-                    // Valida a matemática
-                    if (!isCnpjValido(cnpjNovo)) {
-                        // DECISÃO DE PROJETO: Não paramos o processo, apenas avisamos e salvamos o formatado
-                        System.out.println("⚠️ AVISO: CNPJ matematicamente inválido na linha " + (i+1) + ": " + cnpjNovo);
-                        cnpjsInvalidos++;
-                    } else if (!cnpjOriginal.equals(cnpjNovo)) {
-                        cnpjsCorrigidos++;
+                writer.anexar(partes.get(i));
+                if (checkpoint == null) Files.deleteIfExists(partes.get(i));
+                if (colunar != null) {
+                    Path linhas = ConsolidadoColunar.linhasDaParte(partes.get(i));
+                    try (InputStream in = Files.newInputStream(linhas)) {
+                        ConsolidadoColunar.repassar(in, cadastro, colunar);
                     }
-                    valor = cnpjNovo; // Salva o CNPJ arrumadinho no arquivo
+                    if (checkpoint == null) Files.deleteIfExists(linhas);
                 }
-                // -------------------------------------------------------
 
-                colunasFinais.add(valor);
+                agregador.mesclar(aggLocal);
             }
-            linhasTratadas.add(String.join(";", colunasFinais));
+        } finally {
+            executor.shutdownNow();
         }
-
-        Files.write(caminhoArquivo, linhasTratadas, StandardCharsets.UTF_8);
-        System.out.println("Processamento concluído!");
-        System.out.println("CNPJs corrigidos (zeros adicionados): " + cnpjsCorrigidos);
-        System.out.println("CNPJs matematicamente inválidos (mantidos): " + cnpjsInvalidos);
     }
-    private static String getVal(String[] parts, int idx) {
-        if (idx >= parts.length) return "";
-        return parts[idx].replace("\"", "").trim();
+
+    private static AgregadorDespesas processarTrimestreEmParte(String zipName, Path parte, CacheDownloads cache,
+                                                               CheckpointTrimestres checkpoint, boolean colunar,
+                                                               CadastroOperadoras cadastro,
+                                                               AgregadorDespesas agregador) throws IOException {
+        AgregadorDespesas aggLocal = agregador.novoParcial();
+        String trim = zipName.substring(0, 2);
+        Path linhas = ConsolidadoColunar.linhasDaParte(parte);
+
+        if (checkpoint != null) {
+            String sha256Zip;
+            try {
+                cache.obter(zipName); // revalida o ZIP: se a ANS republicou, o checksum muda e o trimestre é refeito
+                sha256Zip = cache.checksum(zipName);
+            } catch (IOException e) {
+                sha256Zip = null; // processarZip tenta de novo e registra o erro
+            }
+            // Checkpoint de uma execução sem a saída colunar não tem as linhas tipadas: refaz o trimestre
+            if (checkpoint.valido(zipName, sha256Zip) && (!colunar || Files.exists(linhas))
+                    && checkpoint.carregar(zipName, aggLocal, indiceTrimestre(trim))) {
+                System.out.println(" > Trimestre já processado, usando checkpoint: " + zipName);
+                MetricasExecucao.Contadores contadores = new MetricasExecucao.Contadores(zipName);
+                contadores.origem = "checkpoint";
+                contadores.bytesBaixados = cache.bytesBaixados(zipName);
+                METRICAS.registrarArquivo(contadores);
+                return aggLocal;
+            }
+            // A parte é sobrescrita a seguir: sem retirar antes, uma falha no meio deixaria o manifesto e o
+            // .bin antigos valendo para uma parte truncada (e a próxima execução a usaria como checkpoint)
+            checkpoint.retirar(zipName);
+        }
+
+        boolean processado;
+        if (!colunar) Files.deleteIfExists(linhas); // não fica de um checkpoint anterior, já desatualizado
+        try (EscritorCsv writerParte = EscritorCsv.arquivo(parte);
+             ConsolidadoColunar.Parte linhasParte = colunar ? ConsolidadoColunar.Parte.arquivo(linhas) : null) {
+            processado = processarZip(zipName, cache, new EscritorCsv[] {writerParte}, linhasParte, cadastro,
+                    new AgregadorDespesas[] {aggLocal});
+        }
+        if (checkpoint != null && processado) {
+            checkpoint.salvar(zipName, cache.checksum(zipName), trim, aggLocal);
+        }
+        return aggLocal;
     }
 
-    private static int findCol(String header, String name) {
-        String[] cols = header.split(header.contains(";") ? ";" : ",");
-        for (int i = 0; i < cols.length; i++) {
-            if (cols[i].replace("\"", "").trim().equalsIgnoreCase(name)) return i;
+    private static CheckpointTrimestres abrirCheckpoint(Path tempDir, CadastroOperadoras cadastro) throws IOException {
+        // Checkpoints só valem para o mesmo CADOP e o mesmo filtro
+        String assinatura = cadastro.sha256() + "|" + FILTER_TEXT;
+        CheckpointTrimestres checkpoint = new CheckpointTrimestres(tempDir.resolve(CHECKPOINT_FOLDER), assinatura);
+
+        for (String zipName : RETIRAR.split(",")) {
+            if (zipName.isBlank()) continue;
+            System.out.println(" > Retirando trimestre do checkpoint: " + zipName.trim());
+            checkpoint.retirar(zipName.trim());
         }
-        return -1;
+        return checkpoint;
     }
 
-    private static boolean contemTexto(String line, int idx, String txt) {
-        String[] p = line.split(";", -1);
-        return p.length > idx && p[idx].toLowerCase().contains(txt.toLowerCase());
+    // Virtual threads quando disponíveis (JDK 21+); o projeto compila com release 17, por isso a chamada reflexiva.
+    private static ExecutorService criarExecutorTrimestres() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
     }
 
-    private static String limparCnpj(String raw) {
-        return raw.replaceAll("[^0-9]", "");
+    // --- GERAÇÃO DO ARQUIVO AGREGADO (DESAFIO) ---
+
+    static void gerarArquivoAgregado(Path path, AgregadorDespesas agregador) throws IOException {
+        gerarArquivoAgregado(path, agregador, "");
     }
 
-    private static String formatarCnpj(String c) {
-        if (c == null) return "";
-        //  garantir  que vai gravar no CSV apenas "12345678000199"
-        return c.replaceAll("[^0-9]", "");
+    private static void gerarArquivoAgregado(Path path, AgregadorDespesas agregador, String sufixoMetricas) throws IOException {
+        try (EscritorCsv csv = new EscritorCsv(abrirSaida(path))) {
+            escreverAgregado(csv, agregador, path.resolveSibling(RANKING_FOLDER), sufixoMetricas);
+        }
     }
 
-    private static boolean isValidCNPJ(String cnpj) {
-        if (cnpj == null || cnpj.length() != 14) return false;
-        // Implementação simplificada para brevidade. 
-        return !cnpj.matches("(\\d)\\1{13}"); 
+    // Agregado de cada conta extra em TEMP/contas/<nome>, ao lado do consolidado dela (também no modo postgres)
+    private static void gerarAgregadosContas(Path tempDir, AgregadorDespesas[] agregadores) throws IOException {
+        for (int i = 1; i < agregadores.length; i++) {
+            String nome = CONTAS.nome(i);
+            gerarArquivoAgregado(tempDir.resolve(CONTAS_FOLDER).resolve(nome).resolve(OUTPUT_AGREGADO), agregadores[i], "." + nome);
+        }
     }
-    
-    private static boolean isNumeric(String str) { 
-        return str != null && str.matches("-?\\d+(\\.\\d+)?(,\\d+)?");
+
+    // sufixoMetricas separa as métricas do agregado de cada conta ("" na principal)
+    private static void escreverAgregado(EscritorCsv csv, AgregadorDespesas agregador, Path pastaRanking,
+                                         String sufixoMetricas) throws IOException {
+        // 1. Ordenação (Trade-off: Memória vs Disco - padrão em memória pelo volume baixo de operadoras;
+        //    -Dans.ranking=topk mantém só as K maiores e -Dans.ranking=externo despeja runs ordenados em disco).
+        //    Limita só a ordenação da saída: o agregador já tem todas as chaves em memória neste ponto
+        // Critério: Valor Total (Maior para Menor); empates por Razão Social/UF para manter a saída determinística
+        try (RankingDespesas ranking = RankingDespesas.configurado(pastaRanking)) {
+            for (int id = 0; id < agregador.tamanho(); id++) {
+                if (agregador.contagem(id) == 0) continue;
+                ranking.adicionar(agregador.razaoSocial(id), agregador.uf(id), agregador.totalDespesas(id),
+                        agregador.mediaTrimestral(id), Centavos.deDouble(agregador.desvioPadrao(id)),
+                        agregador.percentis(id));
+            }
+
+            // 2. Escrita (total e média exatos em centavos; desvio arredondado como o DecimalFormat("#0.00") de antes;
+            //    p50/p90/p99 das despesas, pelo sketch de quantis: com mais de ~k despesas na operadora são
+            //    aproximados e podem variar entre os modos de execução, dentro do erro de rank)
+            csv.campo("RazaoSocial").campo("UF").campo("TotalDespesas")
+               .campo("MediaDespesasPorTrimestre").campo("DesvioPadraoDespesas")
+               .campo("P50Despesas").campo("P90Despesas").campo("P99Despesas");
+            csv.fimDeLinha();
+
+            long[] linhas = {0};
+            ranking.escrever(linha -> {
+                csv.campo(linha.razaoSocial)
+                   .campo(linha.uf)
+                   .centavos(linha.total)
+                   .centavos(linha.media)
+                   .centavos(linha.desvio);
+                for (long percentil : linha.percentis) csv.centavos(percentil);
+                csv.fimDeLinha();
+                linhas[0]++;
+            });
+            METRICAS.registrar("linhasAgregado" + sufixoMetricas, linhas[0]);
+            METRICAS.registrar("runsRanking" + sufixoMetricas, ranking.quantidadeRuns());
+        }
     }
-    
-    private static double parseDouble(String val) {
-        return Double.parseDouble(val.replace(".", "").replace(",", "."));
+
+    // --- UTILITÁRIOS ---
+ // --- MÉTODOS DE VALIDAÇÃO DE CNPJ ---
+
+ // 1. Arruma o CNPJ (Tira lixo e coloca zeros a esquerda)
+ static String padronizarCnpj(String cnpj) {
+     return CodecCnpj.formatar(CodecCnpj.ler(cnpj));
+ }
+
+ // 2. Valida matemática (Dígitos Verificadores) - Algoritmo Padrão Receita Federal
+ public static boolean isCnpjValido(String cnpj) {
+     return CodecCnpj.valido(CodecCnpj.ler(cnpj));
+ }
+    static int findCol(String header, String name) {
+        String[] cols = header.split(header.contains(";") ? ";" : ",");
+        for (int i = 0; i < cols.length; i++) {
+            if (cols[i].replace("\"", "").trim().equalsIgnoreCase(name)) return i;
+        }
+        return -1;
     }
 
     private static void prepararDiretorio(Path dir) throws IOException {
@@ -0,0 +1,588 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Formato binário colunar do consolidado de despesas (consolidado_despesas.col), lido via memory-map.
+ *
+ * Layout: cabeçalho (MAGIC, versão, nº de linhas, nº de colunas) + diretório (tipo, nome e offsets de cada
+ * coluna) + seções alinhadas em 8 bytes. Colunas numéricas têm largura fixa (trimestre int8, ano int16,
+ * valor em centavos int64); colunas de texto guardam um id int32 por linha e um dicionário ordenado por bytes
+ * UTF-8. CNPJ, registro ANS e UF têm índice de linhas por valor (CSR: início por id + lista de linhas).
+ *
+ * As consultas ({@link #linhasDaOperadora}, {@link #somaPorUf}) só tocam as seções necessárias.
+ *
+ * Na escrita, as linhas chegam já tipadas (id da operadora no cadastro, trimestre, ano, centavos) pelo mesmo
+ * caminho que formata o consolidado em CSV, sem reler texto. Partes do modo concorrente/incremental e blocos do
+ * modo em blocos guardam as linhas numa {@link Parte} e são repassadas na ordem do consolidado.
+ */
+final class ConsolidadoColunar implements AutoCloseable {
+
+    static final int MAGIC = 0x414E5344; // "ANSD"
+    static final int VERSAO = 1;
+
+    static final byte TIPO_DICIONARIO = 0;
+    static final byte TIPO_INT8 = 1;
+    static final byte TIPO_INT16 = 2;
+    static final byte TIPO_INT64 = 3;
+
+    // Mesma ordem do consolidado_despesas.csv
+    static final int COL_CNPJ = 0;
+    static final int COL_RAZAO_SOCIAL = 1;
+    static final int COL_TRIMESTRE = 2;
+    static final int COL_ANO = 3;
+    static final int COL_VALOR = 4;
+    static final int COL_REGISTRO_ANS = 5;
+    static final int COL_MODALIDADE = 6;
+    static final int COL_UF = 7;
+
+    private static final String[] NOMES = {
+        "cnpj", "razao_social", "trimestre", "ano", "valor_centavos", "registro_ans", "modalidade", "uf"
+    };
+    private static final byte[] TIPOS = {
+        TIPO_DICIONARIO, TIPO_DICIONARIO, TIPO_INT8, TIPO_INT16, TIPO_INT64, TIPO_DICIONARIO, TIPO_DICIONARIO, TIPO_DICIONARIO
+    };
+    private static final boolean[] INDEXADAS = {true, false, false, false, false, true, false, true};
+
+    // Cada coluna é mapeada em um único buffer (até 2 GB): limita a coluna int64
+    static final int LIMITE_LINHAS = Integer.MAX_VALUE / Long.BYTES;
+
+    // --- LEITURA ---
+
+    private final FileChannel canal;
+    private final int numLinhas;
+    private final ByteBuffer[] dados = new ByteBuffer[NOMES.length];
+    private final Dicionario[] dicionarios = new Dicionario[NOMES.length];
+    private final IntBuffer[] indiceInicios = new IntBuffer[NOMES.length];
+    private final IntBuffer[] indiceLinhas = new IntBuffer[NOMES.length];
+
+    private ConsolidadoColunar(FileChannel canal) throws IOException {
+        this.canal = canal;
+
+        MappedByteBuffer cabecalho = canal.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(canal.size(), 4096));
+        if (cabecalho.getInt() != MAGIC || cabecalho.getInt() != VERSAO) {
+            throw new IOException("Arquivo colunar inválido ou de versão diferente");
+        }
+        long linhas = cabecalho.getLong();
+        int numColunas = cabecalho.getInt();
+        if (numColunas != NOMES.length) throw new IOException("Esquema inesperado: " + numColunas + " colunas");
+        this.numLinhas = (int) linhas;
+
+        for (int c = 0; c < numColunas; c++) {
+            byte tipo = cabecalho.get();
+            boolean indexada = cabecalho.get() != 0;
+            String nome = lerNome(cabecalho);
+            long offDados = cabecalho.getLong();
+            long offDicionario = cabecalho.getLong();
+            long offIndice = cabecalho.getLong();
+            if (tipo != TIPOS[c] || !nome.equals(NOMES[c])) throw new IOException("Coluna inesperada: " + nome);
+
+            dados[c] = mapear(offDados, (long) numLinhas * larguraBytes(tipo));
+            if (tipo == TIPO_DICIONARIO) dicionarios[c] = new Dicionario(this, offDicionario);
+            if (indexada) {
+                int tamanhoDic = dicionarios[c].tamanho;
+                indiceInicios[c] = mapear(offIndice, (tamanhoDic + 1L) * Integer.BYTES).asIntBuffer();
+                indiceLinhas[c] = mapear(offIndice + (tamanhoDic + 1L) * Integer.BYTES, (long) numLinhas * Integer.BYTES).asIntBuffer();
+            }
+        }
+    }
+
+    static ConsolidadoColunar abrir(Path arquivo) throws IOException {
+        FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+        try {
+            return new ConsolidadoColunar(canal);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    private MappedByteBuffer mapear(long offset, long tamanho) throws IOException {
+        return canal.map(FileChannel.MapMode.READ_ONLY, offset, tamanho);
+    }
+
+    int numeroLinhas() {
+        return numLinhas;
+    }
+
+    String cnpj(int linha) {
+        return texto(COL_CNPJ, linha);
+    }
+
+    String razaoSocial(int linha) {
+        return texto(COL_RAZAO_SOCIAL, linha);
+    }
+
+    String trimestre(int linha) {
+        return dados[COL_TRIMESTRE].get(linha) + "T";
+    }
+
+    int ano(int linha) {
+        return dados[COL_ANO].getShort(linha * Short.BYTES);
+    }
+
+    long valorCentavos(int linha) {
+        return dados[COL_VALOR].getLong(linha * Long.BYTES);
+    }
+
+    String registroAns(int linha) {
+        return texto(COL_REGISTRO_ANS, linha);
+    }
+
+    String modalidade(int linha) {
+        return texto(COL_MODALIDADE, linha);
+    }
+
+    String uf(int linha) {
+        return texto(COL_UF, linha);
+    }
+
+    private String texto(int coluna, int linha) {
+        return dicionarios[coluna].valor(dados[coluna].getInt(linha * Integer.BYTES));
+    }
+
+    /** Todas as linhas de uma operadora (pelo índice de registro ANS), em ordem do arquivo. */
+    int[] linhasDaOperadora(String registroAns) {
+        return linhasPorValor(COL_REGISTRO_ANS, registroAns);
+    }
+
+    /** Todas as linhas de um CNPJ (14 dígitos), em ordem do arquivo. */
+    int[] linhasPorCnpj(String cnpj) {
+        return linhasPorValor(COL_CNPJ, cnpj);
+    }
+
+    private int[] linhasPorValor(int coluna, String valor) {
+        int id = dicionarios[coluna].buscar(valor);
+        if (id < 0) return new int[0];
+
+        IntBuffer inicios = indiceInicios[coluna];
+        int de = inicios.get(id);
+        int ate = inicios.get(id + 1);
+        int[] linhas = new int[ate - de];
+        indiceLinhas[coluna].get(de, linhas);
+        return linhas;
+    }
+
+    /** Soma (em centavos) das despesas de uma UF em um trimestre, usando o índice por UF. */
+    long somaPorUf(String uf, int ano, int trimestre) {
+        int id = dicionarios[COL_UF].buscar(uf);
+        return id < 0 ? 0 : somaPorIdUf(id, ano, trimestre);
+    }
+
+    /** Soma (em centavos) por UF de um trimestre, ordenada por UF. */
+    Map<String, Long> somaPorUf(int ano, int trimestre) {
+        Map<String, Long> somas = new TreeMap<>();
+        Dicionario ufs = dicionarios[COL_UF];
+        for (int id = 0; id < ufs.tamanho; id++) {
+            long soma = somaPorIdUf(id, ano, trimestre);
+            if (soma != 0) somas.put(ufs.valor(id), soma);
+        }
+        return somas;
+    }
+
+    private long somaPorIdUf(int idUf, int ano, int trimestre) {
+        IntBuffer inicios = indiceInicios[COL_UF];
+        IntBuffer linhas = indiceLinhas[COL_UF];
+        ByteBuffer trimestres = dados[COL_TRIMESTRE];
+        ByteBuffer anos = dados[COL_ANO];
+        ByteBuffer valores = dados[COL_VALOR];
+
+        long soma = 0;
+        for (int i = inicios.get(idUf), fim = inicios.get(idUf + 1); i < fim; i++) {
+            int linha = linhas.get(i);
+            if (trimestres.get(linha) == trimestre && anos.getShort(linha * Short.BYTES) == ano) {
+                soma += valores.getLong(linha * Long.BYTES);
+            }
+        }
+        return soma;
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    private static int larguraBytes(byte tipo) {
+        switch (tipo) {
+            case TIPO_INT8: return 1;
+            case TIPO_INT16: return 2;
+            case TIPO_INT64: return 8;
+            default: return 4; // id do dicionário
+        }
+    }
+
+    private static String lerNome(ByteBuffer buf) {
+        byte[] b = new byte[buf.getShort()];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    // Dicionário mapeado: int tamanho, int[tamanho+1] offsets, bytes UTF-8 em ordem crescente (busca binária)
+    private static final class Dicionario {
+        private final int tamanho;
+        private final IntBuffer offsets;
+        private final ByteBuffer textos;
+        private final String[] decodificados;
+
+        Dicionario(ConsolidadoColunar arquivo, long offset) throws IOException {
+            this.tamanho = arquivo.mapear(offset, Integer.BYTES).getInt();
+            this.offsets = arquivo.mapear(offset + Integer.BYTES, (tamanho + 1L) * Integer.BYTES).asIntBuffer();
+            long inicioTextos = offset + Integer.BYTES + (tamanho + 1L) * Integer.BYTES;
+            this.textos = arquivo.mapear(inicioTextos, offsets.get(tamanho));
+            this.decodificados = new String[tamanho];
+        }
+
+        String valor(int id) {
+            String s = decodificados[id];
+            if (s == null) {
+                int de = offsets.get(id);
+                byte[] b = new byte[offsets.get(id + 1) - de];
+                textos.get(de, b);
+                s = new String(b, StandardCharsets.UTF_8);
+                decodificados[id] = s;
+            }
+            return s;
+        }
+
+        int buscar(String valor) {
+            byte[] alvo = valor.getBytes(StandardCharsets.UTF_8);
+            int baixo = 0;
+            int alto = tamanho - 1;
+            while (baixo <= alto) {
+                int meio = (baixo + alto) >>> 1;
+                int cmp = comparar(meio, alvo);
+                if (cmp < 0) baixo = meio + 1;
+                else if (cmp > 0) alto = meio - 1;
+                else return meio;
+            }
+            return -1;
+        }
+
+        private int comparar(int id, byte[] alvo) {
+            int de = offsets.get(id);
+            int tam = offsets.get(id + 1) - de;
+            int n = Math.min(tam, alvo.length);
+            for (int i = 0; i < n; i++) {
+                int cmp = Integer.compare(textos.get(de + i) & 0xFF, alvo[i] & 0xFF);
+                if (cmp != 0) return cmp;
+            }
+            return Integer.compare(tam, alvo.length);
+        }
+    }
+
+    // --- ESCRITA ---
+
+    /** Recebe as linhas tipadas do consolidado, na ordem do arquivo. */
+    interface DestinoTipado {
+        /** id: operadora no cadastro, ou negativo com o REG_ANS como veio no arquivo em registroSemCadop. */
+        void linha(CadastroOperadoras cadastro, int trimestre, int ano, int id, long valorCentavos,
+                   String registroSemCadop) throws IOException;
+    }
+
+    /** Arquivo com as linhas tipadas de uma parte do consolidado, ao lado dela. */
+    static Path linhasDaParte(Path parteCsv) {
+        return parteCsv.resolveSibling(parteCsv.getFileName() + ".linhas");
+    }
+
+    /** Repassa a destino as linhas gravadas por uma {@link Parte}. */
+    static void repassar(InputStream parte, CadastroOperadoras cadastro, DestinoTipado destino) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(parte, 1 << 16));
+        int trimestre;
+        while ((trimestre = in.read()) >= 0) {
+            int ano = in.readShort();
+            int id = in.readInt();
+            long valor = in.readLong();
+            destino.linha(cadastro, trimestre, ano, id, valor, id < 0 ? in.readUTF() : null);
+        }
+    }
+
+    /**
+     * Linhas tipadas guardadas para repassar depois ({@link #repassar}): por linha, trimestre (int8), ano (int16),
+     * id (int32), centavos (int64) e, sem cadastro, o REG_ANS (UTF). O cadastro é o mesmo da execução, então o id
+     * basta para recuperar os textos.
+     */
+    static final class Parte implements DestinoTipado, AutoCloseable {
+        private final DataOutputStream out;
+
+        Parte(OutputStream destino) {
+            this.out = new DataOutputStream(new BufferedOutputStream(destino, 1 << 16));
+        }
+
+        static Parte arquivo(Path arquivo) throws IOException {
+            return new Parte(Files.newOutputStream(arquivo));
+        }
+
+        @Override
+        public void linha(CadastroOperadoras cadastro, int trimestre, int ano, int id, long valorCentavos,
+                          String registroSemCadop) throws IOException {
+            out.writeByte(trimestre);
+            out.writeShort(ano);
+            out.writeInt(id);
+            out.writeLong(valorCentavos);
+            if (id < 0) out.writeUTF(registroSemCadop);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Monta o arquivo colunar a partir das linhas do consolidado. As colunas são despejadas em arquivos
+     * temporários durante o processamento e montadas (dicionários ordenados + índices) no {@link #publicar()}.
+     */
+    static final class Escritor implements DestinoTipado, AutoCloseable {
+        private static final int TAMANHO_BUFFER = 1 << 16;
+
+        private final Path destino;
+        private final Path[] temporarios = new Path[NOMES.length];
+        private final DataOutputStream[] colunas = new DataOutputStream[NOMES.length];
+        private final List<Map<String, Integer>> dicionarios = new ArrayList<>();
+        private long numLinhas;
+
+        Escritor(Path destino) throws IOException {
+            this.destino = destino;
+            for (int c = 0; c < NOMES.length; c++) {
+                temporarios[c] = destino.resolveSibling(destino.getFileName() + "." + NOMES[c] + ".tmp");
+                colunas[c] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporarios[c]), TAMANHO_BUFFER));
+                dicionarios.add(TIPOS[c] == TIPO_DICIONARIO ? new HashMap<>() : null);
+            }
+        }
+
+        // Mesmos campos do ColetaDadosAns.escreverLinhaConsolidado
+        @Override
+        public void linha(CadastroOperadoras cadastro, int trimestre, int ano, int id, long valorCentavos,
+                          String registroSemCadop) throws IOException {
+            if (id >= 0) {
+                adicionar(cadastro.cnpjSaida(id), cadastro.razaoSaida(id), trimestre, ano, valorCentavos,
+                        cadastro.registroAns(id), cadastro.modalidade(id), cadastro.uf(id));
+            } else {
+                adicionar("", "null", trimestre, ano, valorCentavos, registroSemCadop, "DESCONHECIDO", "DESCONHECIDO");
+            }
+        }
+
+        void adicionar(String cnpj, String razaoSocial, int trimestre, int ano, long valorCentavos,
+                       String registroAns, String modalidade, String uf) throws IOException {
+            if (numLinhas == LIMITE_LINHAS) throw new IOException("Limite de linhas do formato colunar atingido");
+            texto(COL_CNPJ, cnpj);
+            texto(COL_RAZAO_SOCIAL, razaoSocial);
+            colunas[COL_TRIMESTRE].writeByte(trimestre);
+            colunas[COL_ANO].writeShort(ano);
+            colunas[COL_VALOR].writeLong(valorCentavos);
+            texto(COL_REGISTRO_ANS, registroAns);
+            texto(COL_MODALIDADE, modalidade);
+            texto(COL_UF, uf);
+            numLinhas++;
+        }
+
+        private void texto(int coluna, String valor) throws IOException {
+            Map<String, Integer> dic = dicionarios.get(coluna);
+            Integer id = dic.get(valor);
+            if (id == null) {
+                id = dic.size();
+                dic.put(valor, id);
+            }
+            colunas[coluna].writeInt(id);
+        }
+
+        /** Monta o arquivo e o troca pelo destino. Sem isso, o close descarta tudo e o arquivo anterior fica. */
+        void publicar() throws IOException {
+            for (DataOutputStream out : colunas) out.close();
+
+            Path tmp = destino.resolveSibling(destino.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                montar(out);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(tmp);
+                throw e;
+            } finally {
+                for (Path t : temporarios) Files.deleteIfExists(t);
+            }
+            Files.move(tmp, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println(" > Consolidado colunar gravado (" + numLinhas + " linhas): " + destino.getFileName());
+        }
+
+        // Sem efeito depois do publicar; numa execução que falhou, apaga as colunas temporárias
+        @Override
+        public void close() throws IOException {
+            for (DataOutputStream out : colunas) out.close();
+            for (Path t : temporarios) Files.deleteIfExists(t);
+        }
+
+        private void montar(FileChannel out) throws IOException {
+            int n = (int) numLinhas;
+            long[][] offsets = new long[NOMES.length][3]; // dados, dicionário, índice
+
+            // Cabeçalho + diretório têm tamanho fixo para o esquema; as seções vêm depois
+            long pos = alinhar(tamanhoCabecalho());
+            out.position(pos);
+
+            for (int c = 0; c < NOMES.length; c++) {
+                if (TIPOS[c] != TIPO_DICIONARIO) {
+                    offsets[c][0] = pos;
+                    try (FileChannel in = FileChannel.open(temporarios[c], StandardOpenOption.READ)) {
+                        long copiado = 0;
+                        while (copiado < in.size()) copiado += in.transferTo(copiado, in.size() - copiado, out);
+                        pos += copiado;
+                    }
+                    pos = preencherAte(out, pos, alinhar(pos));
+                    continue;
+                }
+
+                // Dicionário ordenado por bytes UTF-8 e remapeamento dos ids gravados durante a carga
+                Map<String, Integer> dic = dicionarios.get(c);
+                byte[][] textos = new byte[dic.size()][];
+                int[] idsOriginais = new int[dic.size()];
+                Integer[] ordem = new Integer[dic.size()];
+                for (Map.Entry<String, Integer> e : dic.entrySet()) {
+                    textos[e.getValue()] = e.getKey().getBytes(StandardCharsets.UTF_8);
+                    ordem[e.getValue()] = e.getValue();
+                }
+                Arrays.sort(ordem, (a, b) -> Arrays.compareUnsigned(textos[a], textos[b]));
+                int[] remapeado = new int[dic.size()];
+                for (int novo = 0; novo < ordem.length; novo++) {
+                    remapeado[ordem[novo]] = novo;
+                    idsOriginais[novo] = ordem[novo];
+                }
+
+                // Coluna de ids (já remapeados) + contagem por valor para o índice
+                int[] contagens = new int[dic.size() + 1];
+                offsets[c][0] = pos;
+                ByteBuffer buf = ByteBuffer.allocate(TAMANHO_BUFFER);
+                try (DataInputStream in = abrirTemporario(c)) {
+                    for (int linha = 0; linha < n; linha++) {
+                        int id = remapeado[in.readInt()];
+                        contagens[id + 1]++;
+                        if (!buf.hasRemaining()) pos += escrever(out, buf);
+                        buf.putInt(id);
+                    }
+                }
+                pos += escrever(out, buf);
+                pos = preencherAte(out, pos, alinhar(pos));
+
+                // Dicionário: tamanho, offsets, textos
+                offsets[c][1] = pos;
+                int tamanhoTextos = 0;
+                buf.putInt(dic.size());
+                for (int id = 0; id <= ordem.length; id++) {
+                    if (!buf.hasRemaining()) pos += escrever(out, buf);
+                    buf.putInt(tamanhoTextos);
+                    if (id < ordem.length) tamanhoTextos += textos[idsOriginais[id]].length;
+                }
+                for (int id = 0; id < ordem.length; id++) {
+                    byte[] texto = textos[idsOriginais[id]];
+                    if (buf.remaining() < texto.length) pos += escrever(out, buf);
+                    if (texto.length > buf.capacity()) {
+                        ByteBuffer grande = ByteBuffer.wrap(texto);
+                        while (grande.hasRemaining()) out.write(grande);
+                        pos += texto.length;
+                    } else {
+                        buf.put(texto);
+                    }
+                }
+                pos += escrever(out, buf);
+                pos = preencherAte(out, pos, alinhar(pos));
+
+                if (INDEXADAS[c]) {
+                    offsets[c][2] = pos;
+                    pos = escreverIndice(out, c, pos, n, remapeado, contagens, buf);
+                }
+            }
+
+            // Cabeçalho e diretório por último, quando todos os offsets são conhecidos
+            ByteBuffer cabecalho = ByteBuffer.allocate(tamanhoCabecalho());
+            cabecalho.putInt(MAGIC).putInt(VERSAO).putLong(numLinhas).putInt(NOMES.length);
+            for (int c = 0; c < NOMES.length; c++) {
+                byte[] nome = NOMES[c].getBytes(StandardCharsets.UTF_8);
+                cabecalho.put(TIPOS[c]).put((byte) (INDEXADAS[c] ? 1 : 0)).putShort((short) nome.length).put(nome);
+                cabecalho.putLong(offsets[c][0]).putLong(offsets[c][1]).putLong(offsets[c][2]);
+            }
+            cabecalho.flip();
+            out.position(0);
+            while (cabecalho.hasRemaining()) out.write(cabecalho);
+        }
+
+        // Índice CSR: int[tamanhoDic+1] com o início de cada valor + int[n] com as linhas agrupadas por valor
+        private long escreverIndice(FileChannel out, int c, long pos, int n, int[] remapeado,
+                                    int[] contagens, ByteBuffer buf) throws IOException {
+            int[] inicios = contagens; // prefixo acumulado in-place
+            for (int i = 1; i < inicios.length; i++) inicios[i] += inicios[i - 1];
+
+            for (int inicio : inicios) {
+                if (!buf.hasRemaining()) pos += escrever(out, buf);
+                buf.putInt(inicio);
+            }
+            pos += escrever(out, buf);
+
+            int[] cursor = Arrays.copyOf(inicios, inicios.length - 1);
+            int[] linhas = new int[n];
+            try (DataInputStream in = abrirTemporario(c)) {
+                for (int linha = 0; linha < n; linha++) {
+                    linhas[cursor[remapeado[in.readInt()]]++] = linha;
+                }
+            }
+            for (int linha : linhas) {
+                if (!buf.hasRemaining()) pos += escrever(out, buf);
+                buf.putInt(linha);
+            }
+            pos += escrever(out, buf);
+            return preencherAte(out, pos, alinhar(pos));
+        }
+
+        private DataInputStream abrirTemporario(int c) throws IOException {
+            return new DataInputStream(new BufferedInputStream(Files.newInputStream(temporarios[c]), TAMANHO_BUFFER));
+        }
+
+        // Grava o conteúdo do buffer (de 0 até position) e o deixa vazio
+        private static int escrever(FileChannel out, ByteBuffer buf) throws IOException {
+            buf.flip();
+            int n = buf.remaining();
+            while (buf.hasRemaining()) out.write(buf);
+            buf.clear();
+            return n;
+        }
+
+        private static long preencherAte(FileChannel out, long pos, long alvo) throws IOException {
+            if (alvo > pos) {
+                ByteBuffer zeros = ByteBuffer.allocate((int) (alvo - pos));
+                while (zeros.hasRemaining()) out.write(zeros);
+            }
+            return alvo;
+        }
+
+        private static long alinhar(long pos) {
+            return (pos + 7) & ~7L;
+        }
+
+        private static int tamanhoCabecalho() {
+            int tamanho = Integer.BYTES * 2 + Long.BYTES + Integer.BYTES;
+            for (String nome : NOMES) {
+                tamanho += 2 + Short.BYTES + nome.getBytes(StandardCharsets.UTF_8).length + Long.BYTES * 3;
+            }
+            return tamanho;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Escritor de linhas CSV (separador ';', UTF-8) sobre um buffer de bytes reaproveitado, descarregado em
+ * blocos grandes no canal de destino (arquivo, COPY do PostgreSQL ou bloco em memória).
+ *
+ * Campos e valores em centavos são codificados direto no buffer, sem String.format, DecimalFormat ou
+ * Strings intermediárias, e sem depender do Locale. Um campo só vai entre aspas quando precisa (contém
+ * ';', aspas ou quebra de linha), com aspas internas dobradas: o mesmo CSV que o COPY do import.sql
+ * (FORMAT CSV, DELIMITER ';', QUOTE '"') lê de volta. Campo vazio sai vazio (NULL no COPY), como antes.
+ */
+final class EscritorCsv implements AutoCloseable {
+
+    private static final int TAMANHO_BUFFER_PADRAO = 1 << 16;
+    private static final byte SEPARADOR = ';';
+    private static final byte ASPAS = '"';
+    private static final byte[] FIM_DE_LINHA = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    // Pior caso de um char em UTF-8 (BMP); pares surrogate ocupam 4 bytes em 2 chars
+    private static final int MAX_BYTES_POR_CHAR = 3;
+
+    private final WritableByteChannel destino;
+    private final byte[] buf;
+    private final ByteBuffer janela;
+    private int pos;
+    private boolean inicioDeLinha = true;
+
+    EscritorCsv(WritableByteChannel destino) {
+        this(destino, TAMANHO_BUFFER_PADRAO);
+    }
+
+    EscritorCsv(WritableByteChannel destino, int tamanhoBuffer) {
+        this.destino = destino;
+        this.buf = new byte[Math.max(tamanhoBuffer, 1024)];
+        this.janela = ByteBuffer.wrap(buf);
+    }
+
+    /** Escritor para um arquivo novo (ou truncado). */
+    static EscritorCsv arquivo(Path arquivo) throws IOException {
+        return new EscritorCsv(FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    // --- CAMPOS ---
+
+    /** Campo de texto (null vira vazio), entre aspas só se necessário. */
+    EscritorCsv campo(String texto) throws IOException {
+        separar();
+        if (texto == null || texto.isEmpty()) return this;
+
+        boolean aspas = precisaAspas(texto);
+        if (aspas) byteBruto(ASPAS);
+        int n = texto.length();
+        for (int i = 0; i < n; i++) {
+            char c = texto.charAt(i);
+            if (pos + MAX_BYTES_POR_CHAR + 2 > buf.length) descarregar();
+            if (c < 0x80) {
+                if (c == '"' && aspas) buf[pos++] = ASPAS;
+                buf[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, texto.charAt(++i));
+                buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buf[pos++] = '?'; // surrogate solto: mesmo substituto do encoder UTF-8 do JDK
+            } else {
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        if (aspas) byteBruto(ASPAS);
+        return this;
+    }
+
+    private static boolean precisaAspas(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == ';' || c == '"' || c == '\n' || c == '\r') return true;
+        }
+        return false;
+    }
+
+    /** Valor em centavos com duas casas e ponto decimal ("-1234.56"), o formato do NUMERIC(18,2). */
+    EscritorCsv centavos(long centavos) throws IOException {
+        separar();
+        if (pos + 24 > buf.length) descarregar();
+        if (centavos < 0) buf[pos++] = '-';
+        // Divide antes do abs (Math.abs(Long.MIN_VALUE) estoura)
+        long inteiro = Math.abs(centavos / 100);
+        int fracao = (int) Math.abs(centavos % 100);
+        digitos(inteiro);
+        buf[pos++] = '.';
+        buf[pos++] = (byte) ('0' + fracao / 10);
+        buf[pos++] = (byte) ('0' + fracao % 10);
+        return this;
+    }
+
+    private void digitos(long valor) {
+        int inicio = pos;
+        do {
+            buf[pos++] = (byte) ('0' + valor % 10);
+            valor /= 10;
+        } while (valor != 0);
+        // Dígitos saíram do menos para o mais significativo
+        for (int i = inicio, j = pos - 1; i < j; i++, j--) {
+            byte t = buf[i];
+            buf[i] = buf[j];
+            buf[j] = t;
+        }
+    }
+
+    /** Encerra a linha atual. */
+    void fimDeLinha() throws IOException {
+        if (pos + FIM_DE_LINHA.length > buf.length) descarregar();
+        System.arraycopy(FIM_DE_LINHA, 0, buf, pos, FIM_DE_LINHA.length);
+        pos += FIM_DE_LINHA.length;
+        inicioDeLinha = true;
+    }
+
+    private void separar() throws IOException {
+        if (inicioDeLinha) {
+            inicioDeLinha = false;
+        } else {
+            byteBruto(SEPARADOR);
+        }
+    }
+
+    private void byteBruto(byte b) throws IOException {
+        if (pos == buf.length) descarregar();
+        buf[pos++] = b;
+    }
+
+    /** Campos de uma linha escrita por este escritor (desfaz as aspas: "a;b" e aspas dobradas). */
+    static List<String> lerLinha(String linha) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder atual = new StringBuilder();
+        boolean entreAspas = false;
+        for (int i = 0; i < linha.length(); i++) {
+            char c = linha.charAt(i);
+            if (entreAspas) {
+                if (c != '"') atual.append(c);
+                else if (i + 1 < linha.length() && linha.charAt(i + 1) == '"') atual.append(linha.charAt(++i));
+                else entreAspas = false;
+            } else if (c == '"') {
+                entreAspas = true;
+            } else if (c == ';') {
+                campos.add(atual.toString());
+                atual.setLength(0);
+            } else {
+                atual.append(c);
+            }
+        }
+        campos.add(atual.toString());
+        return campos;
+    }
+
+    // --- DESCARGA ---
+
+    /**
+     * Copia um CSV já pronto (ex: consolidado parcial de um trimestre) para o destino, depois do que já
+     * está no buffer. De arquivo para arquivo o JDK usa transferTo sem passar pelo heap.
+     */
+    void anexar(Path arquivo) throws IOException {
+        if (!inicioDeLinha) throw new IllegalStateException("Linha em aberto antes de anexar " + arquivo);
+        descarregar();
+        try (FileChannel origem = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = origem.size();
+            long enviados = 0;
+            while (enviados < tamanho) {
+                long n = origem.transferTo(enviados, tamanho - enviados, destino);
+                if (n <= 0) throw new IOException("Destino não aceitou bytes de " + arquivo);
+                enviados += n;
+            }
+        }
+    }
+
+    /** Copia linhas CSV já prontas (ex: saída de um bloco processado em paralelo) para depois do buffer. */
+    void anexar(byte[] bytes, int inicio, int tamanho) throws IOException {
+        if (!inicioDeLinha) throw new IllegalStateException("Linha em aberto antes de anexar");
+        if (tamanho <= buf.length - pos) {
+            System.arraycopy(bytes, inicio, buf, pos, tamanho);
+            pos += tamanho;
+            return;
+        }
+        descarregar();
+        ByteBuffer bloco = ByteBuffer.wrap(bytes, inicio, tamanho);
+        while (bloco.hasRemaining()) destino.write(bloco);
+    }
+
+    private void descarregar() throws IOException {
+        janela.clear().limit(pos);
+        while (janela.hasRemaining()) destino.write(janela);
+        pos = 0;
+    }
+
+    /** Descarrega o buffer no destino (sem fechar). */
+    void flush() throws IOException {
+        descarregar();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!destino.isOpen()) return;
+        try {
+            descarregar();
+        } finally {
+            destino.close();
+        }
+    }
+}
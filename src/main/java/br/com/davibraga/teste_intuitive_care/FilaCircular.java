@@ -0,0 +1,96 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.util.function.Supplier;
+
+/**
+ * Fila limitada sobre um array circular alocado uma vez, para passagem de blocos entre as etapas do
+ * {@link PipelineDemonstracoes}. Cheia, {@link #colocar} bloqueia o produtor (back-pressure); vazia,
+ * {@link #retirar} bloqueia o consumidor.
+ *
+ * Guarda a ocupação vista a cada inserção (média e máxima) e o tempo que produtor e consumidor passaram
+ * esperando: fila sempre cheia aponta o consumidor como gargalo; sempre vazia, o produtor.
+ */
+final class FilaCircular<T> {
+
+    private final String nome;
+    private final Object[] itens;
+    private int inicio;
+    private int tamanho;
+
+    private long insercoes;
+    private long somaOcupacao;
+    private int ocupacaoMaxima;
+    private long esperaProdutorNanos;
+    private long esperaConsumidorNanos;
+
+    FilaCircular(String nome, int capacidade) {
+        this.nome = nome;
+        this.itens = new Object[Math.max(1, capacidade)];
+    }
+
+    /** Fila já cheia de itens novos: o pool de blocos reutilizáveis de uma ligação do pipeline. */
+    static <T> FilaCircular<T> preenchida(String nome, int capacidade, Supplier<T> novo) {
+        FilaCircular<T> fila = new FilaCircular<>(nome, capacidade);
+        for (int i = 0; i < fila.itens.length; i++) fila.itens[i] = novo.get();
+        fila.tamanho = fila.itens.length;
+        return fila;
+    }
+
+    String nome() {
+        return nome;
+    }
+
+    int capacidade() {
+        return itens.length;
+    }
+
+    synchronized void colocar(T item) throws InterruptedException {
+        if (tamanho == itens.length) {
+            long inicioEspera = System.nanoTime();
+            while (tamanho == itens.length) wait();
+            esperaProdutorNanos += System.nanoTime() - inicioEspera;
+        }
+        int fim = inicio + tamanho;
+        itens[fim < itens.length ? fim : fim - itens.length] = item;
+        tamanho++;
+
+        insercoes++;
+        somaOcupacao += tamanho;
+        if (tamanho > ocupacaoMaxima) ocupacaoMaxima = tamanho;
+        notifyAll();
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized T retirar() throws InterruptedException {
+        if (tamanho == 0) {
+            long inicioEspera = System.nanoTime();
+            while (tamanho == 0) wait();
+            esperaConsumidorNanos += System.nanoTime() - inicioEspera;
+        }
+        T item = (T) itens[inicio];
+        itens[inicio] = null;
+        inicio = inicio + 1 < itens.length ? inicio + 1 : 0;
+        tamanho--;
+        notifyAll();
+        return item;
+    }
+
+    // --- MÉTRICAS ---
+
+    /** Ocupação média vista pelo produtor (itens na fila logo depois de cada inserção). */
+    synchronized double ocupacaoMedia() {
+        return insercoes == 0 ? 0 : (double) somaOcupacao / insercoes;
+    }
+
+    synchronized int ocupacaoMaxima() {
+        return ocupacaoMaxima;
+    }
+
+    synchronized long esperaProdutorNanos() {
+        return esperaProdutorNanos;
+    }
+
+    synchronized long esperaConsumidorNanos() {
+        return esperaConsumidorNanos;
+    }
+}
@@ -0,0 +1,105 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Contas contábeis extraídas das demonstrações, compiladas em dois {@link AutomatoPadroes}: um para a
+ * DESCRICAO (texto contido, sem diferenciar caixa, como o filtro original) e outro para o CD_CONTA_CONTABIL
+ * (prefixo do código). Cada linha passa uma vez por eles e sai com a máscara das contas em que entra, então
+ * um filtro a mais custa praticamente nada por linha.
+ *
+ * A conta 0 é a principal ("Despesas com Eventos / Sinistros"), com o consolidado e o agregado de sempre. As
+ * demais vêm de -Dans.contas=nome=descricao:Texto|nome=conta:Prefixo|..., cada uma com saídas próprias em
+ * TEMP/contas/&lt;nome&gt;; repetir um nome junta os critérios (a linha entra se casar com qualquer um).
+ */
+final class FiltroContas {
+
+    private static final Pattern NOME = Pattern.compile("[a-z0-9_-]+");
+
+    private final List<String> nomes;
+    private final AutomatoPadroes descricoes;
+    private final AutomatoPadroes codigos; // null sem filtros por código
+
+    private FiltroContas(List<String> nomes, AutomatoPadroes descricoes, AutomatoPadroes codigos) {
+        this.nomes = nomes;
+        this.descricoes = descricoes;
+        this.codigos = codigos;
+    }
+
+    /** Conta principal (descrição) mais as de config, no formato de -Dans.contas. */
+    static FiltroContas configurar(String nomePrincipal, String descricaoPrincipal, String config) {
+        List<String> nomes = new ArrayList<>();
+        List<byte[]> padroesDescricao = new ArrayList<>();
+        List<Integer> bitsDescricao = new ArrayList<>();
+        List<byte[]> padroesCodigo = new ArrayList<>();
+        List<Integer> bitsCodigo = new ArrayList<>();
+
+        nomes.add(nomePrincipal);
+        padroesDescricao.add(padrao(descricaoPrincipal));
+        bitsDescricao.add(0);
+
+        for (String item : config.split("\\|")) {
+            item = item.trim();
+            if (item.isEmpty()) continue;
+            int igual = item.indexOf('=');
+            int doisPontos = item.indexOf(':', igual + 1);
+            if (igual <= 0 || doisPontos < 0) {
+                throw new IllegalArgumentException(
+                        "ans.contas: esperado nome=descricao:texto ou nome=conta:prefixo em '" + item + "'");
+            }
+            String nome = item.substring(0, igual).trim();
+            String tipo = item.substring(igual + 1, doisPontos).trim();
+            String valor = item.substring(doisPontos + 1).trim();
+            if (!NOME.matcher(nome).matches() || nome.equals(nomePrincipal)) {
+                throw new IllegalArgumentException("ans.contas: nome inválido '" + nome + "'");
+            }
+            if (valor.isEmpty()) {
+                throw new IllegalArgumentException("ans.contas: critério vazio em '" + item + "'");
+            }
+
+            int bit = nomes.indexOf(nome);
+            if (bit < 0) {
+                if (nomes.size() == Long.SIZE) {
+                    throw new IllegalArgumentException("ans.contas: no máximo " + Long.SIZE + " contas");
+                }
+                bit = nomes.size();
+                nomes.add(nome);
+            }
+            if (tipo.equals("descricao")) {
+                padroesDescricao.add(padrao(valor));
+                bitsDescricao.add(bit);
+            } else if (tipo.equals("conta")) {
+                padroesCodigo.add(padrao(valor));
+                bitsCodigo.add(bit);
+            } else {
+                throw new IllegalArgumentException(
+                        "ans.contas: tipo desconhecido '" + tipo + "' (descricao ou conta)");
+            }
+        }
+
+        return new FiltroContas(List.copyOf(nomes), new AutomatoPadroes(padroesDescricao, bitsDescricao),
+                padroesCodigo.isEmpty() ? null : new AutomatoPadroes(padroesCodigo, bitsCodigo));
+    }
+
+    private static byte[] padrao(String texto) {
+        return LeitorCsvBytes.padraoBusca(texto.toLowerCase(Locale.ROOT));
+    }
+
+    int quantidade() {
+        return nomes.size();
+    }
+
+    String nome(int conta) {
+        return nomes.get(conta);
+    }
+
+    /** Máscara das contas da linha atual (bit i = conta i); iCodigo &lt; 0 se o CSV não tem a coluna. */
+    long avaliar(LeitorCsvBytes leitor, int iDescricao, int iCodigo) {
+        long contas = leitor.buscar(iDescricao, descricoes);
+        if (codigos != null && iCodigo >= 0) contas |= leitor.prefixos(iCodigo, codigos);
+        return contas;
+    }
+}
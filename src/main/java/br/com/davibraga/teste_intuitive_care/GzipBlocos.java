@@ -0,0 +1,281 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * CSV gzip em blocos independentes (-Dans.gzip=true), com índice para acesso direto a um bloco.
+ *
+ * O {@link Escritor} corta o CSV em blocos de ~{@code ans.gzip.blocoKb} no último '\n' (todo bloco tem só linhas
+ * inteiras) e comprime cada um como um membro gzip completo (cabeçalho, deflate, CRC32 e tamanho) num
+ * ForkJoinPool, no estilo do pigz; os membros são gravados na ordem. Membros concatenados são um único gzip
+ * válido (RFC 1952): zcat, gzip -d, GZIPInputStream e o COPY ... FROM PROGRAM 'zcat ...' leem o arquivo inteiro.
+ *
+ * O índice ao lado (&lt;arquivo&gt;.gz.idx) é um CSV com uma linha por bloco:
+ * bloco;offset_gz;bytes_gz;offset_csv;bytes_csv;primeira_linha;linhas (linhas do CSV a partir de 0, cabeçalho
+ * incluso). Com ele, {@link #ler} posiciona no membro e descomprime só o bloco pedido.
+ */
+final class GzipBlocos implements AutoCloseable {
+
+    static final String EXTENSAO = ".gz";
+    static final String EXTENSAO_INDICE = ".idx";
+
+    private static final int TAMANHO_BLOCO = Math.max(1, Integer.getInteger("ans.gzip.blocoKb", 1024)) * 1024;
+    private static final int PARALELISMO = Integer.getInteger("ans.gzip.threads", Runtime.getRuntime().availableProcessors());
+    private static final int NIVEL = Integer.getInteger("ans.gzip.nivel", Deflater.DEFAULT_COMPRESSION);
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(Math.max(1, PARALELISMO));
+
+    // ID1 ID2 CM=deflate FLG=0 MTIME=0 XFL=0 OS=desconhecido
+    private static final byte[] CABECALHO = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final String CABECALHO_INDICE = "bloco;offset_gz;bytes_gz;offset_csv;bytes_csv;primeira_linha;linhas";
+
+    private final FileChannel canal;
+    private final long[] offsetsGz;
+    private final int[] bytesGz;
+    private final int[] bytesCsv;
+    private final long[] primeirasLinhas;
+
+    private GzipBlocos(FileChannel canal, long[] offsetsGz, int[] bytesGz, int[] bytesCsv, long[] primeirasLinhas) {
+        this.canal = canal;
+        this.offsetsGz = offsetsGz;
+        this.bytesGz = bytesGz;
+        this.bytesCsv = bytesCsv;
+        this.primeirasLinhas = primeirasLinhas;
+    }
+
+    /** Caminho do arquivo gzip de um CSV (consolidado_despesas.csv -> consolidado_despesas.csv.gz). */
+    static Path comprimido(Path csv) {
+        return csv.resolveSibling(csv.getFileName() + EXTENSAO);
+    }
+
+    static Path indice(Path gz) {
+        return gz.resolveSibling(gz.getFileName() + EXTENSAO_INDICE);
+    }
+
+    // --- LEITURA ---
+
+    /** Abre o gzip e carrega o índice ao lado dele. */
+    static GzipBlocos abrir(Path gz) throws IOException {
+        List<String> linhas = Files.readAllLines(indice(gz));
+        if (linhas.isEmpty() || !CABECALHO_INDICE.equals(linhas.get(0))) throw new IOException("Índice inválido: " + indice(gz));
+        int n = linhas.size() - 1;
+        long[] offsetsGz = new long[n];
+        int[] bytesGz = new int[n];
+        int[] bytesCsv = new int[n];
+        long[] primeirasLinhas = new long[n];
+        for (int i = 0; i < n; i++) {
+            String[] campos = linhas.get(i + 1).split(";");
+            offsetsGz[i] = Long.parseLong(campos[1]);
+            bytesGz[i] = Integer.parseInt(campos[2]);
+            bytesCsv[i] = Integer.parseInt(campos[4]);
+            primeirasLinhas[i] = Long.parseLong(campos[5]);
+        }
+        return new GzipBlocos(FileChannel.open(gz, StandardOpenOption.READ), offsetsGz, bytesGz, bytesCsv, primeirasLinhas);
+    }
+
+    int quantidadeBlocos() {
+        return offsetsGz.length;
+    }
+
+    /** Bloco que contém a linha (a partir de 0, cabeçalho incluso). */
+    int blocoDaLinha(long linha) {
+        int i = Arrays.binarySearch(primeirasLinhas, linha);
+        // Todo bloco menos o último termina em '\n', então primeira_linha é estritamente crescente
+        return i >= 0 ? i : Math.max(0, -i - 2);
+    }
+
+    /** Linhas do bloco, descomprimidas (só o membro dele é lido do disco). */
+    byte[] ler(int bloco) throws IOException {
+        ByteBuffer membro = ByteBuffer.allocate(bytesGz[bloco]);
+        while (membro.hasRemaining()) {
+            if (canal.read(membro, offsetsGz[bloco] + membro.position()) < 0) throw new IOException("Bloco " + bloco + " truncado");
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(membro.array()))) {
+            byte[] csv = in.readNBytes(bytesCsv[bloco]);
+            if (csv.length != bytesCsv[bloco]) throw new IOException("Bloco " + bloco + " menor que o índice");
+            return csv;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    // --- ESCRITA ---
+
+    /**
+     * Canal de escrita do CSV (destino do {@link EscritorCsv}); os blocos são comprimidos em paralelo, com no
+     * máximo 2 por thread em voo. Fechar grava o que falta e o índice.
+     */
+    static final class Escritor implements WritableByteChannel {
+        private final Path arquivo;
+        private final FileChannel destino;
+        private final int tamanhoBloco;
+        private final int maxPendentes;
+
+        private byte[] bloco;
+        private int tamanho;
+        private final ArrayDeque<ForkJoinTask<Membro>> pendentes = new ArrayDeque<>();
+        private final StringBuilder indice = new StringBuilder(CABECALHO_INDICE).append('\n');
+        private int blocos;
+        private long offsetGz;
+        private long offsetCsv;
+        private long linhas;
+        private boolean aberto = true;
+
+        Escritor(Path arquivo) throws IOException {
+            this(arquivo, TAMANHO_BLOCO);
+        }
+
+        Escritor(Path arquivo, int tamanhoBloco) throws IOException {
+            this.arquivo = arquivo;
+            this.destino = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.tamanhoBloco = Math.max(1, tamanhoBloco);
+            this.maxPendentes = 2 * POOL.getParallelism();
+            this.bloco = new byte[this.tamanhoBloco];
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int n = src.remaining();
+            while (src.hasRemaining()) {
+                int k = Math.min(src.remaining(), bloco.length - tamanho);
+                src.get(bloco, tamanho, k);
+                tamanho += k;
+                if (tamanho == bloco.length) cortar();
+            }
+            return n;
+        }
+
+        // Bloco cheio: vai até o último '\n' e o resto abre o próximo; linha maior que o bloco aumenta o bloco
+        private void cortar() throws IOException {
+            int corte = tamanho;
+            while (corte > 0 && bloco[corte - 1] != '\n') corte--;
+            if (corte == 0) {
+                bloco = Arrays.copyOf(bloco, bloco.length * 2);
+                return;
+            }
+            int resto = tamanho - corte;
+            byte[] proximo = new byte[Math.max(tamanhoBloco, 2 * resto)];
+            System.arraycopy(bloco, corte, proximo, 0, resto);
+            enviar(bloco, corte);
+            bloco = proximo;
+            tamanho = resto;
+        }
+
+        private void enviar(byte[] dados, int n) throws IOException {
+            pendentes.add(POOL.submit(() -> comprimir(dados, n)));
+            // Grava na ordem os que já terminaram; acima do limite, espera o mais antigo
+            while (!pendentes.isEmpty() && (pendentes.size() > maxPendentes || pendentes.peek().isDone())) {
+                gravar(pendentes.poll());
+            }
+        }
+
+        private void gravar(ForkJoinTask<Membro> tarefa) throws IOException {
+            Membro membro;
+            try {
+                membro = tarefa.join();
+            } catch (RuntimeException e) {
+                throw new IOException("Falha ao comprimir bloco de " + arquivo, e);
+            }
+            ByteBuffer buf = ByteBuffer.wrap(membro.dados, 0, membro.tamanho);
+            while (buf.hasRemaining()) destino.write(buf);
+
+            indice.append(blocos++).append(';').append(offsetGz).append(';').append(membro.tamanho).append(';')
+                  .append(offsetCsv).append(';').append(membro.tamanhoCsv).append(';')
+                  .append(linhas).append(';').append(membro.linhas).append('\n');
+            offsetGz += membro.tamanho;
+            offsetCsv += membro.tamanhoCsv;
+            linhas += membro.linhas;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return aberto;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!aberto) return;
+            aberto = false;
+            try {
+                // Arquivo vazio ainda é um gzip válido (um membro vazio)
+                if (tamanho > 0 || blocos + pendentes.size() == 0) enviar(bloco, tamanho);
+                while (!pendentes.isEmpty()) gravar(pendentes.poll());
+                Files.writeString(indice(arquivo), indice);
+            } finally {
+                for (ForkJoinTask<Membro> tarefa : pendentes) tarefa.cancel(false);
+                destino.close();
+            }
+        }
+    }
+
+    // Membro gzip completo de um bloco
+    private static Membro comprimir(byte[] dados, int tamanho) {
+        CRC32 crc = new CRC32();
+        crc.update(dados, 0, tamanho);
+        long linhas = 0;
+        for (int i = 0; i < tamanho; i++) {
+            if (dados[i] == '\n') linhas++;
+        }
+
+        Deflater deflater = new Deflater(NIVEL, true);
+        try {
+            deflater.setInput(dados, 0, tamanho);
+            deflater.finish();
+            byte[] saida = new byte[CABECALHO.length + tamanho / 4 + 64];
+            System.arraycopy(CABECALHO, 0, saida, 0, CABECALHO.length);
+            int pos = CABECALHO.length;
+            while (!deflater.finished()) {
+                if (pos == saida.length) saida = Arrays.copyOf(saida, saida.length * 2);
+                pos += deflater.deflate(saida, pos, saida.length - pos);
+            }
+            if (pos + 8 > saida.length) saida = Arrays.copyOf(saida, pos + 8);
+            // Rodapé: CRC32 e tamanho original (mod 2^32), little-endian
+            escreverInt(saida, pos, (int) crc.getValue());
+            escreverInt(saida, pos + 4, tamanho);
+            return new Membro(saida, pos + 8, tamanho, linhas);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void escreverInt(byte[] b, int pos, int valor) {
+        b[pos] = (byte) valor;
+        b[pos + 1] = (byte) (valor >>> 8);
+        b[pos + 2] = (byte) (valor >>> 16);
+        b[pos + 3] = (byte) (valor >>> 24);
+    }
+
+    private static final class Membro {
+        final byte[] dados;
+        final int tamanho;
+        final int tamanhoCsv;
+        final long linhas;
+
+        Membro(byte[] dados, int tamanho, int tamanhoCsv, long linhas) {
+            this.dados = dados;
+            this.tamanho = tamanho;
+            this.tamanhoCsv = tamanhoCsv;
+            this.linhas = linhas;
+        }
+    }
+}
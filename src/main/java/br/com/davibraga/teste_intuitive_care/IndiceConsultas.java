@@ -0,0 +1,425 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Collator;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Índice em memória, imutável, para o serviço de consultas do dashboard: operadoras (CADOP normalizado),
+ * histórico de despesas (consolidado) e ranking do agregado, lidos uma vez dos arquivos gerados em TEMP.
+ *
+ * - Busca: trigramas da Razão Social sem acento e em minúsculas (mesma intenção do ILIKE '%x%') mais
+ *   prefixo de CNPJ e de registro ANS, sobre arrays ordenados; o resultado é um BitSet de posições.
+ * - Listagem: operadoras ordenadas por Razão Social (desempate pelo registro ANS), e a posição na ordem é
+ *   a chave do cursor; a página seguinte começa no próximo bit ligado depois do último registro devolvido.
+ * - Respostas: os objetos JSON de cada operadora, do detalhe e do ranking são serializados na carga.
+ */
+final class IndiceConsultas {
+
+    /** Colunas do tb_operadoras, na ordem do CADOP normalizado (o import.sql carrega por posição). */
+    static final String[] COLUNAS_OPERADORA = {
+            "registro_ans", "cnpj", "razao_social", "nome_fantasia", "modalidade", "logradouro", "numero",
+            "complemento", "bairro", "cidade", "uf", "cep", "ddd", "telefone", "fax", "endereco_eletronico",
+            "representante", "cargo_representante", "regiao_comercializacao", "data_registro"};
+    private static final int COL_REGISTRO = 0;
+    private static final int COL_CNPJ = 1;
+    private static final int COL_RAZAO = 2;
+    private static final int COL_MODALIDADE = 4;
+
+    // Layout do consolidado: CNPJ;RazaoSocial;trimestre;Ano;ValorDespesas;RegistroANS;Modalidade;UF
+    private static final int CONS_TRIMESTRE = 2;
+    private static final int CONS_ANO = 3;
+    private static final int CONS_VALOR = 4;
+    private static final int CONS_REGISTRO = 5;
+    private static final int CONS_UF = 7;
+
+    // Colunas do tb_despesas_agregadas depois do desvio padrão
+    private static final String[] COLUNAS_PERCENTIS = {"p50_despesas", "p90_despesas", "p99_despesas"};
+
+    private static final int UFS_DASHBOARD = 10;
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+
+    // Operadoras na ordem da listagem
+    private final String[] registros;
+    private final String[] nomesNormalizados;
+    private final String[] resumos;
+    private final String[] detalhes;
+    private final Map<String, Integer> posicaoPorRegistro;
+    private final BitSet todas;
+
+    // Trigrama da Razão Social normalizada -> posições em ordem crescente
+    private final MapaLongInt listaPorTrigrama;
+    private final int[][] posicoesPorTrigrama;
+
+    private final Prefixos prefixosCnpj;
+    private final Prefixos prefixosRegistro;
+
+    private final String despesasPorUf;
+
+    // Ranking do agregado na ordem do despesas_agregadas.csv (já ordenado pelo ETL)
+    private final String[] agregados;
+    private final int[] rankingGeral;
+    private final Map<String, int[]> rankingPorUf;
+
+    private IndiceConsultas(List<String[]> operadoras, Map<String, List<String[]>> historicos,
+                            Map<String, Long> totaisPorUf, List<String[]> linhasAgregado) {
+        int n = operadoras.size();
+        Collator collator = Collator.getInstance(new Locale("pt", "BR"));
+        operadoras.sort(Comparator.<String[], String>comparing(o -> o[COL_RAZAO], collator)
+                .thenComparing(o -> o[COL_REGISTRO]));
+
+        registros = new String[n];
+        nomesNormalizados = new String[n];
+        resumos = new String[n];
+        detalhes = new String[n];
+        posicaoPorRegistro = new HashMap<>(n * 2);
+        String[] cnpjs = new String[n];
+        for (int p = 0; p < n; p++) {
+            String[] o = operadoras.get(p);
+            registros[p] = o[COL_REGISTRO];
+            cnpjs[p] = o[COL_CNPJ];
+            nomesNormalizados[p] = normalizar(o[COL_RAZAO]);
+            posicaoPorRegistro.putIfAbsent(o[COL_REGISTRO], p);
+
+            StringBuilder resumo = new StringBuilder("{");
+            Json.campo(resumo, "registro_ans", o[COL_REGISTRO]);
+            Json.campo(resumo, "cnpj", o[COL_CNPJ]);
+            Json.campo(resumo, "razao_social", o[COL_RAZAO]);
+            Json.campo(resumo, "modalidade", o[COL_MODALIDADE]);
+            resumos[p] = resumo.append('}').toString();
+
+            detalhes[p] = detalhe(o, historicos.getOrDefault(o[COL_REGISTRO], List.of()));
+        }
+        todas = new BitSet(n);
+        todas.set(0, n);
+
+        int capacidade = 1;
+        for (String nome : nomesNormalizados) capacidade += Math.max(0, nome.length() - 2);
+        listaPorTrigrama = new MapaLongInt(capacidade);
+        posicoesPorTrigrama = indexarTrigramas(nomesNormalizados, listaPorTrigrama, capacidade);
+
+        prefixosCnpj = new Prefixos(cnpjs);
+        prefixosRegistro = new Prefixos(registros);
+
+        despesasPorUf = despesasPorUf(totaisPorUf);
+
+        agregados = new String[linhasAgregado.size()];
+        rankingGeral = new int[agregados.length];
+        Map<String, List<Integer>> porUf = new LinkedHashMap<>();
+        for (int i = 0; i < agregados.length; i++) {
+            String[] a = linhasAgregado.get(i);
+            StringBuilder sb = new StringBuilder("{");
+            Json.campo(sb, "posicao", i + 1);
+            Json.campo(sb, "razao_social", vazioComoNulo(a[0]));
+            Json.campo(sb, "uf", vazioComoNulo(a[1]));
+            Json.campo(sb, "total_despesas", vazioComoNulo(a[2]));
+            Json.campo(sb, "media_trimestral", vazioComoNulo(a[3]));
+            Json.campo(sb, "desvio_padrao", vazioComoNulo(a[4]));
+            for (int c = 0; c < COLUNAS_PERCENTIS.length && 5 + c < a.length; c++) {
+                Json.campo(sb, COLUNAS_PERCENTIS[c], vazioComoNulo(a[5 + c]));
+            }
+            agregados[i] = sb.append('}').toString();
+            rankingGeral[i] = i;
+            porUf.computeIfAbsent(a[1], uf -> new ArrayList<>()).add(i);
+        }
+        rankingPorUf = new HashMap<>();
+        porUf.forEach((uf, lista) -> rankingPorUf.put(uf, lista.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    // --- CARGA ---
+
+    /** Monta o índice a partir das saídas do ETL em TEMP. */
+    static IndiceConsultas carregar(Path cadop, Path consolidado, Path agregado) throws IOException {
+        List<String[]> operadoras = new ArrayList<>();
+        for (List<String> campos : linhas(cadop)) {
+            String[] o = new String[COLUNAS_OPERADORA.length];
+            for (int i = 0; i < o.length && i < campos.size(); i++) o[i] = vazioComoNulo(campos.get(i));
+            if (o[COL_REGISTRO] != null) operadoras.add(o);
+        }
+
+        Map<String, List<String[]>> historicos = new HashMap<>();
+        Map<String, Long> totaisPorUf = new HashMap<>();
+        for (List<String> campos : linhas(consolidado)) {
+            String registro = campos.get(CONS_REGISTRO);
+            if (!registro.isEmpty()) {
+                historicos.computeIfAbsent(registro, r -> new ArrayList<>()).add(new String[] {
+                        campos.get(CONS_ANO), campos.get(CONS_TRIMESTRE), campos.get(CONS_VALOR)});
+            }
+            String uf = campos.get(CONS_UF);
+            if (!uf.isEmpty()) totaisPorUf.merge(uf, Centavos.lerFormatado(campos.get(CONS_VALOR)), Math::addExact);
+        }
+
+        List<String[]> linhasAgregado = new ArrayList<>();
+        for (List<String> campos : linhas(agregado)) linhasAgregado.add(campos.toArray(new String[0]));
+
+        return new IndiceConsultas(operadoras, historicos, totaisPorUf, linhasAgregado);
+    }
+
+    // Linhas de dados (sem o cabeçalho) de um CSV escrito pelo ETL (ou do .csv.gz, lido de ponta a ponta)
+    private static List<List<String>> linhas(Path csv) throws IOException {
+        List<List<String>> linhas = new ArrayList<>();
+        boolean gzip = csv.getFileName().toString().endsWith(GzipBlocos.EXTENSAO);
+        try (InputStream arquivo = Files.newInputStream(csv);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(
+                     gzip ? new GZIPInputStream(arquivo, 1 << 16) : arquivo, StandardCharsets.UTF_8), 1 << 16)) {
+            reader.readLine();
+            String linha;
+            while ((linha = reader.readLine()) != null) {
+                if (!linha.isEmpty()) linhas.add(EscritorCsv.lerLinha(linha));
+            }
+        }
+        return linhas;
+    }
+
+    // Campo vazio é NULL no COPY do import.sql
+    private static String vazioComoNulo(String valor) {
+        return valor == null || valor.isEmpty() ? null : valor;
+    }
+
+    private static String detalhe(String[] operadora, List<String[]> historico) {
+        StringBuilder sb = new StringBuilder("{\"cadastro\":{");
+        for (int i = 0; i < COLUNAS_OPERADORA.length; i++) Json.campo(sb, COLUNAS_OPERADORA[i], operadora[i]);
+        sb.append("},\"historico_despesas\":[");
+
+        // ORDER BY ano DESC, trimestre DESC
+        List<String[]> ordenado = new ArrayList<>(historico);
+        ordenado.sort(Comparator.<String[]>comparingInt(h -> Integer.parseInt(h[0])).reversed()
+                .thenComparing(h -> h[1], Comparator.reverseOrder()));
+        for (int i = 0; i < ordenado.size(); i++) {
+            String[] h = ordenado.get(i);
+            if (i > 0) sb.append(',');
+            sb.append('{');
+            Json.campo(sb, "ano", Integer.parseInt(h[0]));
+            Json.campo(sb, "trimestre", h[1]);
+            Json.campo(sb, "valor_despesa", h[2]);
+            sb.append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    // Top 10 UFs por soma das despesas (o gráfico do dashboard), calculado uma vez
+    private static String despesasPorUf(Map<String, Long> totaisPorUf) {
+        List<Map.Entry<String, Long>> ufs = new ArrayList<>(totaisPorUf.entrySet());
+        ufs.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < Math.min(UFS_DASHBOARD, ufs.size()); i++) {
+            if (i > 0) sb.append(',');
+            sb.append('{');
+            Json.campo(sb, "uf", ufs.get(i).getKey());
+            Json.campo(sb, "total", Centavos.formatar(ufs.get(i).getValue()));
+            sb.append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    // --- BUSCA ---
+
+    /** Texto sem acentos e em minúsculas ("Saúde" -&gt; "saude"). */
+    static String normalizar(String texto) {
+        if (texto == null) return "";
+        return MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static long trigrama(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    private static int[][] indexarTrigramas(String[] nomes, MapaLongInt listaPorTrigrama, int capacidade) {
+        int[][] listas = new int[capacidade][];
+        int[] tamanhos = new int[capacidade];
+        int numListas = 0;
+        for (int p = 0; p < nomes.length; p++) {
+            String nome = nomes[p];
+            for (int i = 0; i + 3 <= nome.length(); i++) {
+                long chave = trigrama(nome, i);
+                int lista = listaPorTrigrama.obter(chave, -1);
+                if (lista < 0) {
+                    lista = numListas++;
+                    listaPorTrigrama.colocar(chave, lista);
+                    listas[lista] = new int[4];
+                }
+                int t = tamanhos[lista];
+                if (t > 0 && listas[lista][t - 1] == p) continue; // trigrama repetido no mesmo nome
+                if (t == listas[lista].length) listas[lista] = Arrays.copyOf(listas[lista], t * 2);
+                listas[lista][t] = p;
+                tamanhos[lista] = t + 1;
+            }
+        }
+        int[][] resultado = new int[numListas][];
+        for (int l = 0; l < numListas; l++) resultado[l] = Arrays.copyOf(listas[l], tamanhos[l]);
+        return resultado;
+    }
+
+    /**
+     * Posições que casam com o termo: Razão Social contém o termo (sem acento/caixa) ou CNPJ / registro ANS
+     * começa com os dígitos do termo (pontuação de CNPJ ignorada). Termo vazio casa com todas.
+     */
+    BitSet buscar(String termo) {
+        if (termo == null || termo.isBlank()) return todas;
+        BitSet resultado = new BitSet(registros.length);
+
+        String nome = normalizar(termo.trim());
+        if (nome.length() < 3) {
+            for (int p = 0; p < nomesNormalizados.length; p++) {
+                if (nomesNormalizados[p].contains(nome)) resultado.set(p);
+            }
+        } else {
+            // Todo nome que contém o termo está na menor lista entre os trigramas do termo
+            int[] candidatos = null;
+            for (int i = 0; i + 3 <= nome.length(); i++) {
+                int lista = listaPorTrigrama.obter(trigrama(nome, i), -1);
+                if (lista < 0) {
+                    candidatos = new int[0];
+                    break;
+                }
+                if (candidatos == null || posicoesPorTrigrama[lista].length < candidatos.length) {
+                    candidatos = posicoesPorTrigrama[lista];
+                }
+            }
+            for (int p : candidatos) {
+                if (nomesNormalizados[p].contains(nome)) resultado.set(p);
+            }
+        }
+
+        String digitos = termo.trim().replace(".", "").replace("/", "").replace("-", "");
+        if (!digitos.isEmpty() && digitos.chars().allMatch(c -> c >= '0' && c <= '9')) {
+            prefixosCnpj.marcar(digitos, resultado);
+            prefixosRegistro.marcar(digitos, resultado);
+        }
+        return resultado;
+    }
+
+    // --- CONSULTAS ---
+
+    /**
+     * Página da listagem de operadoras (mesmo JSON do GET /operadoras do backend Flask, mais next_cursor).
+     * Com cursor (registro ANS do último item recebido) a página começa logo depois dele; sem cursor,
+     * pela página numerada.
+     */
+    String listarOperadoras(String busca, int pagina, int limite, String cursor) {
+        BitSet encontradas = buscar(busca);
+        int total = encontradas.cardinality();
+
+        int p;
+        if (cursor != null) {
+            Integer depoisDe = posicaoPorRegistro.get(cursor);
+            if (depoisDe == null) throw new IllegalArgumentException("cursor inválido: " + cursor);
+            p = encontradas.nextSetBit(depoisDe + 1);
+        } else {
+            p = encontradas.nextSetBit(0);
+            for (long pular = (long) (pagina - 1) * limite; pular > 0 && p >= 0; pular--) p = encontradas.nextSetBit(p + 1);
+        }
+
+        StringBuilder sb = new StringBuilder(64 + limite * 160).append("{\"data\":[");
+        int ultima = -1;
+        for (int i = 0; i < limite && p >= 0; i++, p = encontradas.nextSetBit(p + 1)) {
+            if (i > 0) sb.append(',');
+            sb.append(resumos[p]);
+            ultima = p;
+        }
+        sb.append(']');
+        Json.campo(sb, "total", total);
+        Json.campo(sb, "page", pagina);
+        Json.campo(sb, "limit", limite);
+        Json.campo(sb, "total_pages", total / limite + 1);
+        Json.campo(sb, "next_cursor", p >= 0 && ultima >= 0 ? registros[ultima] : null);
+        return sb.append('}').toString();
+    }
+
+    /** {"cadastro": ..., "historico_despesas": [...]} da operadora, ou null se o registro não existe. */
+    String detalhes(String registroAns) {
+        Integer p = posicaoPorRegistro.get(registroAns);
+        return p == null ? null : detalhes[p];
+    }
+
+    /** Top 10 UFs por total de despesas. */
+    String despesasPorUf() {
+        return despesasPorUf;
+    }
+
+    /**
+     * Página do ranking do agregado (opcionalmente de uma UF). O cursor é a posição no ranking geral do
+     * último item recebido.
+     */
+    String listarAgregados(String uf, int limite, String cursor) {
+        int[] ranking = uf == null || uf.isEmpty() ? rankingGeral : rankingPorUf.getOrDefault(uf, new int[0]);
+        int i = 0;
+        if (cursor != null) {
+            int depoisDe;
+            try {
+                depoisDe = Integer.parseInt(cursor) - 1;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("cursor inválido: " + cursor);
+            }
+            i = Arrays.binarySearch(ranking, depoisDe);
+            i = i >= 0 ? i + 1 : -i - 1;
+        }
+
+        StringBuilder sb = new StringBuilder(64 + limite * 160).append("{\"data\":[");
+        int fim = Math.min(ranking.length, i + limite);
+        for (int j = i; j < fim; j++) {
+            if (j > i) sb.append(',');
+            sb.append(agregados[ranking[j]]);
+        }
+        sb.append(']');
+        Json.campo(sb, "total", ranking.length);
+        Json.campo(sb, "limit", limite);
+        Json.campo(sb, "next_cursor", fim < ranking.length && fim > i ? String.valueOf(ranking[fim - 1] + 1) : null);
+        return sb.append('}').toString();
+    }
+
+    int numeroOperadoras() {
+        return registros.length;
+    }
+
+    int numeroAgregados() {
+        return agregados.length;
+    }
+
+    // Valores ordenados com a posição da operadora, para busca por prefixo em O(log n + k)
+    private static final class Prefixos {
+        private final String[] valores;
+        private final int[] posicoes;
+
+        Prefixos(String[] porPosicao) {
+            Integer[] ordem = new Integer[porPosicao.length];
+            for (int p = 0; p < ordem.length; p++) ordem[p] = p;
+            Arrays.sort(ordem, Comparator.comparing((Integer p) -> porPosicao[p] == null ? "" : porPosicao[p]));
+            valores = new String[ordem.length];
+            posicoes = new int[ordem.length];
+            for (int i = 0; i < ordem.length; i++) {
+                valores[i] = porPosicao[ordem[i]] == null ? "" : porPosicao[ordem[i]];
+                posicoes[i] = ordem[i];
+            }
+        }
+
+        void marcar(String prefixo, BitSet destino) {
+            // Primeiro valor >= prefixo (binarySearch não garante o primeiro entre repetidos)
+            int ini = 0;
+            int fim = valores.length;
+            while (ini < fim) {
+                int meio = (ini + fim) >>> 1;
+                if (valores[meio].compareTo(prefixo) < 0) ini = meio + 1;
+                else fim = meio;
+            }
+            for (int i = ini; i < valores.length && valores[i].startsWith(prefixo); i++) destino.set(posicoes[i]);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package br.com.davibraga.teste_intuitive_care;
+
+/**
+ * Escrita mínima de JSON sobre StringBuilder (o projeto não tem biblioteca de JSON e as respostas do
+ * serviço de consultas são montadas a partir de fragmentos pré-serializados).
+ */
+final class Json {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private Json() {
+    }
+
+    /** String entre aspas com escape; null vira null. */
+    static StringBuilder texto(StringBuilder sb, String valor) {
+        if (valor == null) return sb.append("null");
+        sb.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"');
+    }
+
+    /** "chave": "valor" (com vírgula antes, se não for o primeiro campo do objeto). */
+    static StringBuilder campo(StringBuilder sb, String chave, String valor) {
+        separar(sb);
+        texto(sb, chave).append(':');
+        return texto(sb, valor);
+    }
+
+    /** "chave": número literal. */
+    static StringBuilder campo(StringBuilder sb, String chave, long valor) {
+        separar(sb);
+        texto(sb, chave).append(':');
+        return sb.append(valor);
+    }
+
+    /** "chave": JSON já serializado. */
+    static StringBuilder campoBruto(StringBuilder sb, String chave, String json) {
+        separar(sb);
+        texto(sb, chave).append(':');
+        return sb.append(json);
+    }
+
+    private static void separar(StringBuilder sb) {
+        char ultimo = sb.length() == 0 ? '{' : sb.charAt(sb.length() - 1);
+        if (ultimo != '{' && ultimo != '[') sb.append(',');
+    }
+}
@@ -0,0 +1,215 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Leitor de CSV que trabalha direto sobre os bytes (UTF-8) do stream, sem decodificar a linha inteira.
+ *
+ * Cada chamada de {@link #proximaLinha()} apenas localiza os delimitadores e guarda os offsets dos campos
+ * em um buffer reaproveitado. Filtro ({@link #buscar}, {@link #prefixos}) e leitura numérica
+ * ({@link #campoCentavos}, {@link #campoInteiro}) rodam sobre os bytes crus e não alocam nada por linha;
+ * Strings só são criadas em {@link #campo(int)}, ou seja, apenas para as linhas que passaram no filtro.
+ *
+ * Semântica dos campos igual ao split(";") + replace("\"", "") + trim() usado antes no processarZip.
+ */
+final class LeitorCsvBytes {
+
+    private static final int TAMANHO_BUFFER_PADRAO = 1 << 16;
+
+    private final InputStream in;
+    private final byte separador;
+
+    private byte[] buf;
+    private int pos;        // início da próxima linha ainda não consumida
+    private int lim;        // bytes válidos no buffer
+    private int varrido;    // até onde já procuramos '\n' (evita varrer de novo após um refill)
+    private boolean fimStream;
+
+    // Linha atual
+    private int inicioLinha;
+    private int fimLinha;
+    private int[] inicios = new int[32];
+    private int[] fins = new int[32];
+    private int numCampos;
+
+    LeitorCsvBytes(InputStream in) {
+        this(in, (byte) ';', TAMANHO_BUFFER_PADRAO);
+    }
+
+    LeitorCsvBytes(InputStream in, byte separador, int tamanhoBuffer) {
+        this.in = in;
+        this.separador = separador;
+        this.buf = new byte[Math.max(tamanhoBuffer, 1024)];
+    }
+
+    /** Avança para a próxima linha. Retorna false no fim do stream. */
+    boolean proximaLinha() throws IOException {
+        while (true) {
+            for (int i = varrido; i < lim; i++) {
+                if (buf[i] == '\n') {
+                    int fim = (i > pos && buf[i - 1] == '\r') ? i - 1 : i;
+                    marcarLinha(pos, fim);
+                    pos = i + 1;
+                    varrido = pos;
+                    return true;
+                }
+            }
+            varrido = lim;
+
+            if (fimStream) {
+                if (pos < lim) {
+                    int fim = (buf[lim - 1] == '\r') ? lim - 1 : lim;
+                    marcarLinha(pos, fim);
+                    pos = lim;
+                    varrido = lim;
+                    return true;
+                }
+                return false;
+            }
+            preencher();
+        }
+    }
+
+    private void preencher() throws IOException {
+        if (pos > 0) {
+            int restante = lim - pos;
+            System.arraycopy(buf, pos, buf, 0, restante);
+            varrido -= pos;
+            lim = restante;
+            pos = 0;
+        }
+        if (lim == buf.length) {
+            // Linha maior que o buffer: cresce (custo amortizado, não ocorre por linha)
+            byte[] maior = new byte[buf.length * 2];
+            System.arraycopy(buf, 0, maior, 0, lim);
+            buf = maior;
+        }
+        int n = in.read(buf, lim, buf.length - lim);
+        if (n < 0) fimStream = true;
+        else lim += n;
+    }
+
+    private void marcarLinha(int inicio, int fim) {
+        inicioLinha = inicio;
+        fimLinha = fim;
+        numCampos = 0;
+        int inicioCampo = inicio;
+        for (int i = inicio; i < fim; i++) {
+            if (buf[i] == separador) {
+                adicionarCampo(inicioCampo, i);
+                inicioCampo = i + 1;
+            }
+        }
+        adicionarCampo(inicioCampo, fim);
+    }
+
+    private void adicionarCampo(int inicio, int fim) {
+        if (numCampos == inicios.length) {
+            inicios = java.util.Arrays.copyOf(inicios, numCampos * 2);
+            fins = java.util.Arrays.copyOf(fins, numCampos * 2);
+        }
+        inicios[numCampos] = inicio;
+        fins[numCampos] = fim;
+        numCampos++;
+    }
+
+    /** Linha atual decodificada (uso pontual, ex: cabeçalho). */
+    String linha() {
+        return new String(buf, inicioLinha, fimLinha - inicioLinha, StandardCharsets.UTF_8);
+    }
+
+    // --- FILTRO SOBRE BYTES ---
+
+    /** Prepara o texto de busca para o {@link AutomatoPadroes}: bytes UTF-8 já em caixa baixa. */
+    static byte[] padraoBusca(String texto) {
+        byte[] b = texto.getBytes(StandardCharsets.UTF_8);
+        byte anterior = 0;
+        for (int i = 0; i < b.length; i++) {
+            byte original = b[i];
+            b[i] = minusculo(anterior, original);
+            anterior = original;
+        }
+        return b;
+    }
+
+    /** Máscara dos padrões do autômato contidos no campo (todos numa passada), sem diferenciar caixa. Não aloca. */
+    long buscar(int campo, AutomatoPadroes padroes) {
+        if (campo >= numCampos) return 0;
+        return padroes.buscar(buf, inicios[campo], fins[campo]);
+    }
+
+    /** Máscara dos padrões do autômato que são prefixo do campo (sem aspas e espaços nas pontas). Não aloca. */
+    long prefixos(int campo, AutomatoPadroes padroes) {
+        if (campo >= numCampos) return 0;
+        int inicio = inicioLimpo(campo);
+        return padroes.prefixos(buf, inicio, fimLimpo(campo, inicio));
+    }
+
+    // Caixa baixa em nível de byte: A-Z e as maiúsculas acentuadas do Latin-1 (U+00C0..U+00DE, em UTF-8 0xC3 0x80..0x9E)
+    static byte minusculo(byte anterior, byte b) {
+        if (b >= 'A' && b <= 'Z') return (byte) (b + 32);
+        if (anterior == (byte) 0xC3 && b >= (byte) 0x80 && b <= (byte) 0x9E && b != (byte) 0x97) return (byte) (b + 0x20);
+        return b;
+    }
+
+    // --- EXTRAÇÃO DE CAMPOS ---
+
+    // Limites do campo sem espaços e aspas nas pontas (equivalente ao getVal)
+    private int inicioLimpo(int campo) {
+        int i = inicios[campo];
+        int fim = fins[campo];
+        while (i < fim && (buf[i] == '"' || (buf[i] & 0xFF) <= ' ')) i++;
+        return i;
+    }
+
+    private int fimLimpo(int campo, int inicio) {
+        int fim = fins[campo];
+        while (fim > inicio && (buf[fim - 1] == '"' || (buf[fim - 1] & 0xFF) <= ' ')) fim--;
+        return fim;
+    }
+
+    /** Materializa o campo como String (aloca). Campo inexistente retorna "". */
+    String campo(int campo) {
+        if (campo >= numCampos) return "";
+        int inicio = inicioLimpo(campo);
+        int fim = fimLimpo(campo, inicio);
+        for (int i = inicio; i < fim; i++) {
+            if (buf[i] == '"') {
+                // Aspas no meio do campo (raro): mesmo resultado do replace("\"", "")
+                return new String(buf, inicio, fim - inicio, StandardCharsets.UTF_8).replace("\"", "").trim();
+            }
+        }
+        return new String(buf, inicio, fim - inicio, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Campo como inteiro não negativo canônico (só dígitos, sem zero à esquerda, até 18 dígitos), ou -1.
+     * Igual a {@link CadastroOperadoras#chaveRegistro}({@link #campo}) sem materializar a String.
+     */
+    long campoInteiro(int campo) {
+        if (campo >= numCampos) return -1;
+        int inicio = inicioLimpo(campo);
+        int fim = fimLimpo(campo, inicio);
+        int n = fim - inicio;
+        if (n == 0 || n > 18 || (n > 1 && buf[inicio] == '0')) return -1;
+        long valor = 0;
+        for (int i = inicio; i < fim; i++) {
+            byte b = buf[i];
+            if (b < '0' || b > '9') return -1;
+            valor = valor * 10 + (b - '0');
+        }
+        return valor;
+    }
+
+    /**
+     * Valor monetário do campo em centavos ("1.234,56" -&gt; 123456), ou {@link Centavos#INVALIDO} se o campo
+     * não segue a gramática do antigo isNumeric. Validação e conversão numa passada, sem alocar.
+     */
+    long campoCentavos(int campo) {
+        if (campo >= numCampos) return Centavos.INVALIDO;
+        int inicio = inicioLimpo(campo);
+        return Centavos.ler(buf, inicio, fimLimpo(campo, inicio));
+    }
+}
@@ -0,0 +1,60 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.util.Arrays;
+
+/**
+ * Mapa long -&gt; int com endereçamento aberto (sondagem linear) sobre dois arrays primitivos.
+ * Sem boxing nem objetos por entrada; chaves negativas não são aceitas (o sinal marca posição livre).
+ * Montado uma vez na carga e só consultado depois.
+ */
+final class MapaLongInt {
+
+    private static final long LIVRE = Long.MIN_VALUE;
+
+    private final long[] chaves;
+    private final int[] valores;
+    private final int mascara;
+    private int tamanho;
+
+    MapaLongInt(int capacidadeEsperada) {
+        // Fator de carga <= 0.5
+        int capacidade = Integer.highestOneBit(Math.max(4, capacidadeEsperada) * 2 - 1) << 1;
+        chaves = new long[capacidade];
+        valores = new int[capacidade];
+        mascara = capacidade - 1;
+        Arrays.fill(chaves, LIVRE);
+    }
+
+    /** Insere ou substitui. */
+    void colocar(long chave, int valor) {
+        if (chave < 0) throw new IllegalArgumentException("Chave negativa: " + chave);
+        if (tamanho >= chaves.length / 2) throw new IllegalStateException("MapaLongInt cheio");
+
+        int i = posicao(chave);
+        while (chaves[i] != LIVRE && chaves[i] != chave) i = (i + 1) & mascara;
+        if (chaves[i] == LIVRE) tamanho++;
+        chaves[i] = chave;
+        valores[i] = valor;
+    }
+
+    int obter(long chave, int padrao) {
+        if (chave < 0) return padrao;
+        int i = posicao(chave);
+        long k;
+        while ((k = chaves[i]) != LIVRE) {
+            if (k == chave) return valores[i];
+            i = (i + 1) & mascara;
+        }
+        return padrao;
+    }
+
+    int tamanho() {
+        return tamanho;
+    }
+
+    // Espalha os bits (chaves sequenciais, como registros ANS, não se amontoam)
+    private int posicao(long chave) {
+        long h = chave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mascara;
+    }
+}
@@ -0,0 +1,332 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Instrumentação da execução: tempo de parede e de CPU por etapa, e contadores por arquivo trimestral
+ * (bytes baixados/inflados, linhas lidas, filtradas, acertos e falhas do join, linhas escritas).
+ *
+ * Cada medição vira um evento JFR (br.com.davibraga.ans.*, visível com -XX:StartFlightRecording) e entra
+ * no relatório JSON gravado ao lado das saídas. No laço quente só há contadores locais, somados uma vez
+ * por arquivo; com -Dans.metricas=false nada é registrado nem gravado.
+ */
+final class MetricasExecucao {
+
+    static final boolean ATIVO = !"false".equalsIgnoreCase(System.getProperty("ans.metricas"));
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final OperatingSystemMXBean SO = ManagementFactory.getOperatingSystemMXBean();
+
+    private final Instant inicio = Instant.now();
+    private final long inicioNanos = System.nanoTime();
+    private final long inicioCpu = cpuProcesso();
+
+    private final List<Etapa> etapas = new ArrayList<>();
+    private final List<Contadores> arquivos = new ArrayList<>();
+    private final Map<String, Long> valores = new LinkedHashMap<>();
+
+    /** Abre uma etapa; fechar (try-with-resources) registra a duração. */
+    Etapa etapa(String nome) {
+        return new Etapa(nome);
+    }
+
+    /** Contadores de um arquivo trimestral, já preenchidos por quem o processou. */
+    void registrarArquivo(Contadores contadores) {
+        if (!ATIVO) return;
+        synchronized (arquivos) {
+            arquivos.add(contadores);
+        }
+        EventoArquivo evento = new EventoArquivo();
+        if (evento.isEnabled()) {
+            evento.arquivo = contadores.arquivo;
+            evento.origem = contadores.origem;
+            evento.bytesBaixados = contadores.bytesBaixados;
+            evento.bytesCompactados = contadores.bytesCompactados;
+            evento.bytesInflados = contadores.bytesInflados;
+            evento.linhasLidas = contadores.linhasLidas;
+            evento.linhasFiltradas = contadores.linhasFiltradas;
+            evento.joinAcertos = contadores.joinAcertos;
+            evento.semRegistroAns = contadores.semRegistroAns;
+            evento.semCadop = contadores.semCadop;
+            evento.linhasEscritas = contadores.linhasEscritas;
+            evento.download = contadores.downloadNanos;
+            evento.processamento = contadores.processamentoNanos;
+            evento.cpu = contadores.cpuNanos;
+            evento.commit();
+        }
+    }
+
+    /** Valor avulso do relatório (ex: operadoras no CADOP, linhas do agregado). */
+    void registrar(String chave, long valor) {
+        if (!ATIVO) return;
+        synchronized (valores) {
+            valores.merge(chave, valor, Long::sum);
+        }
+    }
+
+    // --- RELATÓRIO ---
+
+    void gravarRelatorio(Path destino, boolean sucesso, String modo) throws IOException {
+        if (!ATIVO) return;
+
+        long duracao = System.nanoTime() - inicioNanos;
+        long cpu = cpuProcesso() - inicioCpu;
+
+        StringBuilder json = new StringBuilder(4096);
+        json.append("{\n");
+        campo(json, 1, "inicio", inicio.toString()).append(",\n");
+        campo(json, 1, "sucesso", sucesso).append(",\n");
+        campo(json, 1, "modo", modo).append(",\n");
+        campo(json, 1, "duracaoMs", duracao / 1_000_000).append(",\n");
+        campo(json, 1, "cpuMs", cpu / 1_000_000).append(",\n");
+
+        json.append("  \"etapas\": [");
+        synchronized (etapas) {
+            for (int i = 0; i < etapas.size(); i++) {
+                Etapa e = etapas.get(i);
+                json.append(i == 0 ? "\n" : ",\n").append("    {");
+                campo(json, 0, "nome", e.nome).append(", ");
+                campo(json, 0, "paredeMs", e.paredeNanos / 1_000_000).append(", ");
+                campo(json, 0, "cpuMs", e.cpuNanos / 1_000_000).append('}');
+            }
+        }
+        json.append("\n  ],\n");
+
+        Contadores total = new Contadores("total");
+        total.origem = "todos";
+        json.append("  \"arquivos\": [");
+        synchronized (arquivos) {
+            for (int i = 0; i < arquivos.size(); i++) {
+                Contadores c = arquivos.get(i);
+                json.append(i == 0 ? "\n" : ",\n").append("    ");
+                c.escrever(json);
+                total.somar(c);
+            }
+        }
+        json.append("\n  ],\n");
+
+        json.append("  \"totais\": ");
+        total.escrever(json);
+        json.append(",\n");
+
+        json.append("  \"valores\": {");
+        synchronized (valores) {
+            int i = 0;
+            for (Map.Entry<String, Long> v : valores.entrySet()) {
+                json.append(i++ == 0 ? "\n" : ",\n");
+                campo(json, 2, v.getKey(), v.getValue());
+            }
+        }
+        json.append("\n  }\n}\n");
+
+        try (BufferedWriter w = Files.newBufferedWriter(destino, StandardCharsets.UTF_8)) {
+            w.write(json.toString());
+        }
+        System.out.println(" > Relatório da execução: " + destino);
+    }
+
+    private static StringBuilder campo(StringBuilder json, int nivel, String nome, Object valor) {
+        json.append("  ".repeat(nivel)).append('"').append(nome).append("\": ");
+        if (valor instanceof String) {
+            json.append('"');
+            String s = (String) valor;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') json.append('\\').append(c);
+                else if (c < 0x20) json.append(String.format("\\u%04x", (int) c));
+                else json.append(c);
+            }
+            json.append('"');
+        } else {
+            json.append(valor);
+        }
+        return json;
+    }
+
+    // --- RELÓGIOS ---
+
+    /** CPU de todas as threads do processo (as etapas podem usar várias threads), ou 0 se indisponível. */
+    static long cpuProcesso() {
+        if (SO instanceof com.sun.management.OperatingSystemMXBean) {
+            return Math.max(0, ((com.sun.management.OperatingSystemMXBean) SO).getProcessCpuTime());
+        }
+        return 0;
+    }
+
+    /** CPU da thread atual, ou 0 se a JVM não mede. */
+    static long cpuThread() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    // --- TIPOS ---
+
+    final class Etapa implements AutoCloseable {
+        private final String nome;
+        private final long inicioNanos = System.nanoTime();
+        private final long inicioCpu = ATIVO ? cpuProcesso() : 0;
+        private final EventoEtapa evento = new EventoEtapa();
+        private long paredeNanos;
+        private long cpuNanos;
+
+        private Etapa(String nome) {
+            this.nome = nome;
+            evento.begin();
+        }
+
+        @Override
+        public void close() {
+            if (!ATIVO) return;
+            paredeNanos = System.nanoTime() - inicioNanos;
+            cpuNanos = cpuProcesso() - inicioCpu;
+            synchronized (etapas) {
+                etapas.add(this);
+            }
+            if (evento.shouldCommit()) {
+                evento.etapa = nome;
+                evento.cpu = cpuNanos;
+                evento.commit();
+            }
+        }
+    }
+
+    /** Contadores de um arquivo. Cada campo é preenchido por uma única thread (no pipeline, pela etapa dele). */
+    static final class Contadores {
+        final String arquivo;
+        String origem = "zip";
+        long bytesBaixados;
+        long bytesCompactados;
+        long bytesInflados;
+        long linhasLidas;
+        long linhasFiltradas;
+        long joinAcertos;
+        long semRegistroAns; // REG_ANS fora do regToCnpjMap
+        long semCadop;       // CNPJ encontrado, mas fora do cadopMap
+        long linhasEscritas;
+        long downloadNanos;
+        long processamentoNanos;
+        long cpuNanos;
+
+        Contadores(String arquivo) {
+            this.arquivo = arquivo;
+        }
+
+        private void somar(Contadores c) {
+            bytesBaixados += c.bytesBaixados;
+            bytesCompactados += c.bytesCompactados;
+            bytesInflados += c.bytesInflados;
+            linhasLidas += c.linhasLidas;
+            linhasFiltradas += c.linhasFiltradas;
+            joinAcertos += c.joinAcertos;
+            semRegistroAns += c.semRegistroAns;
+            semCadop += c.semCadop;
+            linhasEscritas += c.linhasEscritas;
+            downloadNanos += c.downloadNanos;
+            processamentoNanos += c.processamentoNanos;
+            cpuNanos += c.cpuNanos;
+        }
+
+        private void escrever(StringBuilder json) {
+            json.append('{');
+            campo(json, 0, "arquivo", arquivo).append(", ");
+            campo(json, 0, "origem", origem).append(", ");
+            campo(json, 0, "bytesBaixados", bytesBaixados).append(", ");
+            campo(json, 0, "bytesCompactados", bytesCompactados).append(", ");
+            campo(json, 0, "bytesInflados", bytesInflados).append(", ");
+            campo(json, 0, "linhasLidas", linhasLidas).append(", ");
+            campo(json, 0, "linhasFiltradas", linhasFiltradas).append(", ");
+            campo(json, 0, "joinAcertos", joinAcertos).append(", ");
+            campo(json, 0, "semRegistroAns", semRegistroAns).append(", ");
+            campo(json, 0, "semCadop", semCadop).append(", ");
+            campo(json, 0, "linhasEscritas", linhasEscritas).append(", ");
+            campo(json, 0, "downloadMs", downloadNanos / 1_000_000).append(", ");
+            campo(json, 0, "processamentoMs", processamentoNanos / 1_000_000).append(", ");
+            campo(json, 0, "cpuMs", cpuNanos / 1_000_000).append('}');
+        }
+    }
+
+    // --- EVENTOS JFR ---
+
+    @Name("br.com.davibraga.ans.Etapa")
+    @Label("Etapa do ETL")
+    @Category({"ANS", "ETL"})
+    static final class EventoEtapa extends Event {
+        @Label("Etapa")
+        String etapa;
+
+        @Label("CPU do processo")
+        @Timespan(Timespan.NANOSECONDS)
+        long cpu;
+    }
+
+    @Name("br.com.davibraga.ans.Arquivo")
+    @Label("Arquivo trimestral processado")
+    @Category({"ANS", "ETL"})
+    static final class EventoArquivo extends Event {
+        @Label("Arquivo")
+        String arquivo;
+
+        @Label("Origem")
+        String origem;
+
+        @Label("Bytes baixados")
+        @DataAmount
+        long bytesBaixados;
+
+        @Label("Bytes compactados")
+        @DataAmount
+        long bytesCompactados;
+
+        @Label("Bytes inflados")
+        @DataAmount
+        long bytesInflados;
+
+        @Label("Linhas lidas")
+        long linhasLidas;
+
+        @Label("Linhas filtradas")
+        long linhasFiltradas;
+
+        @Label("Acertos do join")
+        long joinAcertos;
+
+        @Label("REG_ANS sem CNPJ")
+        long semRegistroAns;
+
+        @Label("CNPJ fora do CADOP")
+        long semCadop;
+
+        @Label("Linhas escritas")
+        long linhasEscritas;
+
+        @Label("Download")
+        @Timespan(Timespan.NANOSECONDS)
+        long download;
+
+        @Label("Processamento")
+        @Timespan(Timespan.NANOSECONDS)
+        long processamento;
+
+        @Label("CPU da thread")
+        @Timespan(Timespan.NANOSECONDS)
+        long cpu;
+    }
+}
@@ -0,0 +1,604 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Ingestão dos trimestres em pipeline (-Dans.pipeline=true): download, leitura dos bytes do ZIP, inflate,
+ * filtro/join/agregação e escrita do consolidado, cada etapa na sua thread.
+ *
+ * As etapas trocam blocos de bytes ({@code ans.pipeline.blocoKb}) e lotes de linhas ({@code ans.pipeline.lote})
+ * por {@link FilaCircular}s de {@code ans.pipeline.profundidade} posições. Os blocos e lotes são alocados uma
+ * vez: cada ligação tem a fila dos cheios e a dos livres, e o produtor só avança quando o consumidor devolve
+ * um livre (back-pressure). Os arquivos passam pelas mesmas filas, um atrás do outro; a ordem das linhas e das
+ * somas no agregador é a do modo sequencial, e a saída é idêntica.
+ *
+ * O download (ou revalidação) via {@link CacheDownloads} roda à frente da leitura, com até
+ * {@code ans.pipeline.downloadsAdiante} arquivos prontos esperando (padrão 1) além do que está baixando: a rede
+ * do trimestre seguinte corre enquanto o anterior é descompactado e analisado. O download não alimenta os
+ * blocos direto porque o cache retoma com Range depois de uma falha, e o que já tivesse entrado no pipeline
+ * seria repetido. A espera da leitura na fila "downloads" é o tempo de rede que não ficou sobreposto.
+ *
+ * Cada linha do lote leva a máscara das contas em que entra e a escrita a repete no consolidado de cada uma.
+ *
+ * Falha num arquivo (download, ZIP ou CSV) marca o arquivo como "falha" e o resto dele é descartado, como no
+ * sequencial; falha na escrita interrompe o pipeline e é relançada para quem chamou.
+ */
+final class PipelineDemonstracoes {
+
+    private static final int TAMANHO_BLOCO = Math.max(1, Integer.getInteger("ans.pipeline.blocoKb", 64)) * 1024;
+    private static final int TAMANHO_LOTE = Math.max(1, Integer.getInteger("ans.pipeline.lote", 1024));
+    private static final int PROFUNDIDADE = Math.max(1, Integer.getInteger("ans.pipeline.profundidade", 8));
+    private static final int DOWNLOADS_ADIANTE = Math.max(1, Integer.getInteger("ans.pipeline.downloadsAdiante", 1));
+
+    // Tipos de bloco/lote: um arquivo (ou entrada CSV) chega como INICIO, DADOS..., FIM; ENCERRAR fecha a etapa
+    private static final int INICIO = 0;
+    private static final int DADOS = 1;
+    private static final int FIM = 2;
+    private static final int ENCERRAR = 3;
+
+    private static final String[] ETAPAS = {"download", "leitura", "inflate", "analise", "escrita"};
+
+    private final String[] arquivos;
+    private final String[] trimestres;
+    private final String[] anos;
+    private final int[] bitsTrimestre;
+    private final CacheDownloads cache;
+    private final EscritorCsv[] writers;
+    private final ConsolidadoColunar.Escritor colunar; // linhas tipadas da conta principal, ou null
+    private final CadastroOperadoras cadastro;
+    private final AgregadorDespesas[] agregadores;
+    private final MetricasExecucao metricas;
+
+    // Cada etapa preenche os seus campos dos contadores; a thread que chamou lê depois do join
+    private final MetricasExecucao.Contadores[] contadores;
+    private final long[][] cpuPorArquivo;
+    private final boolean[] falhou;
+    private final long[] cpuEtapas = new long[ETAPAS.length];
+
+    private final FilaCircular<Download> downloads;
+    private final Ligacao<Bloco> compactados;
+    private final Ligacao<Bloco> inflados;
+    private final Ligacao<Lote> lotes;
+
+    private final AtomicReference<Throwable> erroFatal = new AtomicReference<>();
+    private final Thread[] threads = new Thread[ETAPAS.length];
+
+    PipelineDemonstracoes(String[] arquivos, String[] trimestres, String[] anos, int[] bitsTrimestre,
+                          CacheDownloads cache, EscritorCsv[] writers, ConsolidadoColunar.Escritor colunar,
+                          CadastroOperadoras cadastro, AgregadorDespesas[] agregadores,
+                          MetricasExecucao metricas) {
+        this.arquivos = arquivos;
+        this.trimestres = trimestres;
+        this.anos = anos;
+        this.bitsTrimestre = bitsTrimestre;
+        this.cache = cache;
+        this.writers = writers;
+        this.colunar = colunar;
+        this.cadastro = cadastro;
+        this.agregadores = agregadores;
+        this.metricas = metricas;
+
+        this.contadores = new MetricasExecucao.Contadores[arquivos.length];
+        for (int i = 0; i < arquivos.length; i++) contadores[i] = new MetricasExecucao.Contadores(arquivos[i]);
+        this.cpuPorArquivo = new long[ETAPAS.length][arquivos.length];
+        this.falhou = new boolean[arquivos.length];
+
+        this.downloads = new FilaCircular<>("downloads", DOWNLOADS_ADIANTE);
+        this.compactados = new Ligacao<>("compactados", () -> new Bloco(TAMANHO_BLOCO));
+        this.inflados = new Ligacao<>("inflados", () -> new Bloco(TAMANHO_BLOCO));
+        this.lotes = new Ligacao<>("lotes", () -> new Lote(TAMANHO_LOTE));
+    }
+
+    /** Processa todos os arquivos e registra os contadores (na ordem dos arquivos) e as métricas das filas. */
+    void executar() throws IOException, InterruptedException {
+        long inicio = System.nanoTime();
+        // Todas criadas antes de iniciar: uma falha fatal logo no começo ainda interrompe as demais
+        threads[0] = criar(0, this::download);
+        threads[1] = criar(1, this::leitura);
+        threads[2] = criar(2, this::inflate);
+        threads[3] = criar(3, this::analise);
+        threads[4] = criar(4, this::escrita);
+        for (Thread t : threads) t.start();
+        try {
+            for (Thread t : threads) t.join();
+        } catch (InterruptedException e) {
+            interromper();
+            throw e;
+        }
+        long parede = System.nanoTime() - inicio;
+
+        for (int i = 0; i < arquivos.length; i++) {
+            for (long[] cpu : cpuPorArquivo) contadores[i].cpuNanos += cpu[i];
+            if (falhou[i]) contadores[i].origem = "falha";
+            metricas.registrarArquivo(contadores[i]);
+        }
+        registrarFilas(parede);
+
+        Throwable erro = erroFatal.get();
+        if (erro instanceof IOException) throw (IOException) erro;
+        if (erro instanceof RuntimeException) throw (RuntimeException) erro;
+        if (erro instanceof Error) throw (Error) erro;
+        if (erro != null) throw new IOException(erro);
+    }
+
+    private interface Etapa {
+        void executar() throws IOException, InterruptedException;
+    }
+
+    private Thread criar(int indice, Etapa etapa) {
+        Thread t = new Thread(() -> {
+            long inicioCpu = MetricasExecucao.cpuThread();
+            try {
+                etapa.executar();
+            } catch (InterruptedException e) {
+                // Interrompida por falha fatal em outra etapa
+            } catch (Throwable e) {
+                if (erroFatal.compareAndSet(null, e)) interromper();
+            } finally {
+                cpuEtapas[indice] = MetricasExecucao.cpuThread() - inicioCpu;
+            }
+        }, "pipeline-" + ETAPAS[indice]);
+        t.setDaemon(true);
+        return t;
+    }
+
+    private void interromper() {
+        for (Thread t : threads) {
+            if (t != Thread.currentThread()) t.interrupt();
+        }
+    }
+
+    private void falhar(int arquivo, Exception e) {
+        falhou[arquivo] = true;
+        // A etapa que falhou primeiro já mostrou o erro
+        if (!(e instanceof FalhaAnterior) && !Thread.currentThread().isInterrupted()) e.printStackTrace();
+    }
+
+    // --- ETAPAS ---
+
+    // 0. Download ou revalidação via cache, na ordem dos arquivos, à frente da leitura
+    private void download() throws InterruptedException {
+        for (int i = 0; i < arquivos.length; i++) {
+            System.out.println(" > Baixando e processando: " + arquivos[i]);
+            long inicioCpu = MetricasExecucao.cpuThread();
+            long inicio = System.nanoTime();
+            Path zipLocal = null;
+            Exception erro = null;
+            try {
+                zipLocal = cache.obter(arquivos[i]);
+            } catch (IOException | RuntimeException e) {
+                erro = e;
+            }
+            contadores[i].bytesBaixados = cache.bytesBaixados(arquivos[i]);
+            contadores[i].downloadNanos = System.nanoTime() - inicio;
+            cpuPorArquivo[0][i] = MetricasExecucao.cpuThread() - inicioCpu;
+            downloads.colocar(new Download(zipLocal, erro));
+        }
+    }
+
+    // 1. Bytes do ZIP já no cache, em blocos
+    private void leitura() throws InterruptedException {
+        for (int i = 0; i < arquivos.length; i++) {
+            Download baixado = downloads.retirar();
+            long inicioCpu = MetricasExecucao.cpuThread();
+            compactados.marcar(INICIO, i, false);
+            boolean erro = baixado.erro != null;
+            if (erro) {
+                falhar(i, baixado.erro);
+            } else {
+                try (InputStream in = Files.newInputStream(baixado.zip)) {
+                    copiarEmBlocos(in, compactados, i);
+                } catch (IOException | RuntimeException e) {
+                    falhar(i, e);
+                    erro = true;
+                }
+            }
+            compactados.marcar(FIM, i, erro);
+            cpuPorArquivo[1][i] = MetricasExecucao.cpuThread() - inicioCpu;
+        }
+        compactados.marcar(ENCERRAR, -1, false);
+    }
+
+    // 2. Inflate: cada entrada CSV do ZIP vira INICIO, blocos descompactados, FIM
+    private void inflate() throws InterruptedException {
+        while (true) {
+            Bloco marca = compactados.proximo();
+            int tipo = marca.tipo;
+            int i = marca.arquivo;
+            compactados.devolver(marca);
+            if (tipo == ENCERRAR) break;
+
+            long inicioCpu = MetricasExecucao.cpuThread();
+            EntradaBlocos zip = new EntradaBlocos(compactados);
+            try (ZipInputStream zis = new ZipInputStream(zip, StandardCharsets.UTF_8)) {
+                ZipEntry entry;
+                while ((entry = zis.getNextEntry()) != null) {
+                    if (!entry.isDirectory() && entry.getName().toLowerCase().endsWith(".csv")) {
+                        inflados.marcar(INICIO, i, false);
+                        try {
+                            copiarEmBlocos(zis, inflados, i);
+                        } catch (IOException | RuntimeException e) {
+                            inflados.marcar(FIM, i, true);
+                            throw e;
+                        }
+                        inflados.marcar(FIM, i, false);
+                        // Tamanhos da entrada ficam conhecidos depois de lida até o fim
+                        contadores[i].bytesCompactados += Math.max(0, entry.getCompressedSize());
+                        contadores[i].bytesInflados += Math.max(0, entry.getSize());
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                falhar(i, e);
+            }
+            // Diretório central do ZIP (ou o resto de um arquivo com falha)
+            zip.descartarRestante();
+            cpuPorArquivo[2][i] = MetricasExecucao.cpuThread() - inicioCpu;
+        }
+        inflados.marcar(ENCERRAR, -1, false);
+    }
+
+    // Blocos cheios (o último, parcial) até o fim de in. Numa falha, o que já foi lido segue adiante antes do
+    // FIM com erro: a análise processa as mesmas linhas completas que o modo sequencial teria processado
+    private static void copiarEmBlocos(InputStream in, Ligacao<Bloco> destino, int arquivo)
+            throws IOException, InterruptedException {
+        while (true) {
+            Bloco bloco = destino.livre();
+            int lidos = 0;
+            try {
+                while (lidos < bloco.dados.length) {
+                    int n = in.read(bloco.dados, lidos, bloco.dados.length - lidos);
+                    if (n < 0) break;
+                    lidos += n;
+                }
+            } catch (IOException | RuntimeException e) {
+                if (lidos > 0) destino.enviar(bloco.preencher(DADOS, arquivo, lidos));
+                else destino.devolver(bloco);
+                throw e;
+            }
+            if (lidos == 0) {
+                destino.devolver(bloco);
+                return;
+            }
+            destino.enviar(bloco.preencher(DADOS, arquivo, lidos));
+            if (lidos < bloco.dados.length) return;
+        }
+    }
+
+    // 3. Filtro, join e agregação (o laço do modo sequencial), com as linhas saindo em lotes
+    private void analise() throws InterruptedException, IOException {
+        EmissorLotes emissor = new EmissorLotes();
+        int arquivoComFalha = -1;
+        while (true) {
+            Bloco marca = inflados.proximo();
+            int tipo = marca.tipo;
+            int i = marca.arquivo;
+            inflados.devolver(marca);
+            if (tipo == ENCERRAR) break;
+
+            long inicio = System.nanoTime();
+            long inicioCpu = MetricasExecucao.cpuThread();
+            EntradaBlocos csv = new EntradaBlocos(inflados);
+            // Depois de uma falha, as demais entradas do mesmo ZIP são ignoradas (como no sequencial)
+            if (i != arquivoComFalha) {
+                emissor.arquivo = i;
+                try {
+                    LeitorCsvBytes leitor = new LeitorCsvBytes(csv);
+                    if (leitor.proximaLinha()) {
+                        int[] colunas = ColetaDadosAns.colunasDemonstracoes(leitor.linha());
+                        if (colunas != null) {
+                            ColetaDadosAns.processarLinhasDemonstracoes(leitor, colunas, bitsTrimestre[i], emissor,
+                                    cadastro, agregadores, contadores[i]);
+                        }
+                    }
+                } catch (InterruptedIOException e) {
+                    throw new InterruptedException();
+                } catch (IOException | RuntimeException e) {
+                    falhar(i, e);
+                    arquivoComFalha = i;
+                }
+                // Linhas já emitidas ficam no consolidado também numa falha, como no sequencial
+                emissor.enviar();
+            }
+            csv.descartarRestante();
+            contadores[i].processamentoNanos += System.nanoTime() - inicio;
+            cpuPorArquivo[3][i] += MetricasExecucao.cpuThread() - inicioCpu;
+        }
+        lotes.marcar(ENCERRAR, -1, false);
+    }
+
+    // 4. Formatação e escrita no consolidado
+    private void escrita() throws InterruptedException, IOException {
+        while (true) {
+            Lote lote = lotes.proximo();
+            if (lote.tipo == ENCERRAR) {
+                lotes.devolver(lote);
+                return;
+            }
+            String trim = trimestres[lote.arquivo];
+            String ano = anos[lote.arquivo];
+            for (int j = 0; j < lote.tamanho; j++) {
+                for (long c = lote.contas[j]; c != 0; c &= c - 1) {
+                    ColetaDadosAns.escreverLinhaConsolidado(writers[Long.numberOfTrailingZeros(c)], cadastro, trim,
+                            ano, lote.ids[j], lote.valores[j], lote.registros[j]);
+                }
+            }
+            if (colunar != null) {
+                int trimestre = ColetaDadosAns.numeroTrimestre(trim);
+                int anoNumero = Integer.parseInt(ano);
+                for (int j = 0; j < lote.tamanho; j++) {
+                    if ((lote.contas[j] & 1) != 0) {
+                        colunar.linha(cadastro, trimestre, anoNumero, lote.ids[j], lote.valores[j],
+                                lote.registros[j]);
+                    }
+                }
+            }
+            lotes.devolver(lote);
+        }
+    }
+
+    // --- MÉTRICAS ---
+
+    // Ocupação e esperas de cada fila; a etapa que menos esperou (entrada vazia ou sem bloco livre) é o gargalo
+    private void registrarFilas(long parede) {
+        long[] esperas = new long[ETAPAS.length];
+        // Downloads: o produtor espera quando está adiantado; a leitura espera pela rede não sobreposta
+        esperas[0] += downloads.esperaProdutorNanos();
+        esperas[1] += downloads.esperaConsumidorNanos();
+        registrarFila(downloads, downloads.esperaProdutorNanos(), downloads.esperaConsumidorNanos());
+        long rede = 0;
+        for (MetricasExecucao.Contadores c : contadores) rede += c.downloadNanos;
+        long sobreposta = Math.max(0, rede - downloads.esperaConsumidorNanos());
+        metricas.registrar("pipeline.downloads.sobrepostoMs", sobreposta / 1_000_000);
+        System.out.println(" > Downloads: " + rede / 1_000_000 + " ms, " + sobreposta / 1_000_000
+                + " ms sobrepostos ao processamento");
+
+        Ligacao<?>[] ligacoes = {compactados, inflados, lotes};
+        for (int l = 0; l < ligacoes.length; l++) {
+            Ligacao<?> ligacao = ligacoes[l];
+            long esperaProdutor = ligacao.livres.esperaConsumidorNanos();
+            long esperaConsumidor = ligacao.cheios.esperaConsumidorNanos();
+            esperas[l + 1] += esperaProdutor;
+            esperas[l + 2] += esperaConsumidor;
+            registrarFila(ligacao.cheios, esperaProdutor, esperaConsumidor);
+        }
+
+        int gargalo = 0;
+        for (int e = 0; e < ETAPAS.length; e++) {
+            long ocupada = Math.max(0, parede - esperas[e]);
+            metricas.registrar("pipeline." + ETAPAS[e] + ".ocupadaMs", ocupada / 1_000_000);
+            metricas.registrar("pipeline." + ETAPAS[e] + ".cpuMs", cpuEtapas[e] / 1_000_000);
+            if (esperas[e] < esperas[gargalo]) gargalo = e;
+        }
+        long ocupadaPct = parede == 0 ? 0 : Math.max(0, parede - esperas[gargalo]) * 100 / parede;
+        System.out.println(" > Pipeline: gargalo na etapa " + ETAPAS[gargalo] + " (ocupada " + ocupadaPct
+                + "% do tempo)");
+    }
+
+    private void registrarFila(FilaCircular<?> fila, long esperaProdutor, long esperaConsumidor) {
+        String prefixo = "pipeline." + fila.nome() + ".";
+        long ocupacaoPct = Math.round(fila.ocupacaoMedia() * 100 / fila.capacidade());
+        metricas.registrar(prefixo + "ocupacaoMediaPct", ocupacaoPct);
+        metricas.registrar(prefixo + "ocupacaoMaxima", fila.ocupacaoMaxima());
+        metricas.registrar(prefixo + "esperaProdutorMs", esperaProdutor / 1_000_000);
+        metricas.registrar(prefixo + "esperaConsumidorMs", esperaConsumidor / 1_000_000);
+        System.out.println(" > Fila " + fila.nome() + ": ocupação média " + ocupacaoPct + "% (máx. "
+                + fila.ocupacaoMaxima() + "/" + fila.capacidade() + "), produtor esperou "
+                + esperaProdutor / 1_000_000 + " ms, consumidor " + esperaConsumidor / 1_000_000 + " ms");
+    }
+
+    // --- LIGAÇÕES ENTRE ETAPAS ---
+
+    // ZIP já no cache, ou o erro do download (o arquivo segue como falha, como no sequencial)
+    private static final class Download {
+        final Path zip;
+        final Exception erro;
+
+        Download(Path zip, Exception erro) {
+            this.zip = zip;
+            this.erro = erro;
+        }
+    }
+
+    // Fila dos itens cheios (produtor -> consumidor) e pool dos livres (consumidor -> produtor), mesma capacidade
+    private static final class Ligacao<T extends Marcavel> {
+        final FilaCircular<T> cheios;
+        final FilaCircular<T> livres;
+
+        Ligacao(String nome, Supplier<T> novo) {
+            this.cheios = new FilaCircular<>(nome, PROFUNDIDADE);
+            this.livres = FilaCircular.preenchida(nome + ".livres", PROFUNDIDADE, novo);
+        }
+
+        T livre() throws InterruptedException {
+            return livres.retirar();
+        }
+
+        void enviar(T item) throws InterruptedException {
+            cheios.colocar(item);
+        }
+
+        T proximo() throws InterruptedException {
+            return cheios.retirar();
+        }
+
+        void devolver(T item) throws InterruptedException {
+            livres.colocar(item);
+        }
+
+        void marcar(int tipo, int arquivo, boolean erro) throws InterruptedException {
+            T item = livre();
+            item.marcar(tipo, arquivo, erro);
+            enviar(item);
+        }
+    }
+
+    private abstract static class Marcavel {
+        int tipo;
+        int arquivo;
+        boolean erro; // FIM de um arquivo/entrada que falhou antes do fim
+        int tamanho;
+
+        void marcar(int tipo, int arquivo, boolean erro) {
+            this.tipo = tipo;
+            this.arquivo = arquivo;
+            this.erro = erro;
+            this.tamanho = 0;
+        }
+    }
+
+    private static final class Bloco extends Marcavel {
+        final byte[] dados;
+
+        Bloco(int capacidade) {
+            this.dados = new byte[capacidade];
+        }
+
+        Bloco preencher(int tipo, int arquivo, int tamanho) {
+            marcar(tipo, arquivo, false);
+            this.tamanho = tamanho;
+            return this;
+        }
+    }
+
+    // Linhas do consolidado antes da formatação: contas, id no cadastro, valor em centavos e o REG_ANS sem
+    // cadastro
+    private static final class Lote extends Marcavel {
+        final long[] contas;
+        final int[] ids;
+        final long[] valores;
+        final String[] registros;
+
+        Lote(int capacidade) {
+            this.contas = new long[capacidade];
+            this.ids = new int[capacidade];
+            this.valores = new long[capacidade];
+            this.registros = new String[capacidade];
+        }
+    }
+
+    // Junta as linhas do laço de análise em lotes; um lote nunca mistura arquivos
+    private final class EmissorLotes implements ColetaDadosAns.DestinoLinhas {
+        int arquivo;
+        private Lote atual;
+
+        @Override
+        public void linha(long contas, int id, long valor, String registroSemCadop) throws IOException {
+            try {
+                if (atual == null) {
+                    atual = lotes.livre();
+                    atual.marcar(DADOS, arquivo, false);
+                }
+                int n = atual.tamanho;
+                atual.contas[n] = contas;
+                atual.ids[n] = id;
+                atual.valores[n] = valor;
+                atual.registros[n] = registroSemCadop;
+                atual.tamanho = n + 1;
+                if (atual.tamanho == atual.ids.length) enviar();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+
+        void enviar() throws InterruptedException {
+            if (atual == null) return;
+            lotes.enviar(atual);
+            atual = null;
+        }
+    }
+
+    // Lê os blocos DADOS de uma ligação até o FIM; um FIM com erro vira IOException para quem lê
+    private static final class EntradaBlocos extends InputStream {
+        private final Ligacao<Bloco> ligacao;
+        private Bloco atual;
+        private int posicao;
+        private boolean fim;
+
+        EntradaBlocos(Ligacao<Bloco> ligacao) {
+            this.ligacao = ligacao;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!disponivel()) return -1;
+            return atual.dados[posicao++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (!disponivel()) return -1;
+            int n = Math.min(len, atual.tamanho - posicao);
+            System.arraycopy(atual.dados, posicao, b, off, n);
+            posicao += n;
+            return n;
+        }
+
+        private boolean disponivel() throws IOException {
+            try {
+                while (atual == null || posicao == atual.tamanho) {
+                    if (fim) return false;
+                    avancar();
+                }
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+
+        private void avancar() throws InterruptedException, FalhaAnterior {
+            if (atual != null) {
+                ligacao.devolver(atual);
+                atual = null;
+            }
+            Bloco bloco = ligacao.proximo();
+            if (bloco.tipo == DADOS) {
+                atual = bloco;
+                posicao = 0;
+                return;
+            }
+            fim = true;
+            boolean erro = bloco.erro;
+            ligacao.devolver(bloco);
+            if (erro) throw new FalhaAnterior();
+        }
+
+        /** Consome o que sobrou até o FIM (bloco corrente inclusive). */
+        void descartarRestante() throws InterruptedException {
+            if (atual != null) {
+                ligacao.devolver(atual);
+                atual = null;
+            }
+            while (!fim) {
+                Bloco bloco = ligacao.proximo();
+                if (bloco.tipo != DADOS) fim = true;
+                ligacao.devolver(bloco);
+            }
+        }
+
+        @Override
+        public void close() {
+            // Fechar o ZipInputStream não descarta nada; ver descartarRestante
+        }
+    }
+
+    // A etapa anterior não entregou o arquivo inteiro (o erro original já foi mostrado por ela)
+    private static final class FalhaAnterior extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        FalhaAnterior() {
+            super("arquivo incompleto: falha em etapa anterior do pipeline");
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Processamento de um CSV de demonstrações dividido em blocos paralelos (-Dans.blocos=true), para
+ * trimestres com milhões de linhas num único arquivo.
+ *
+ * A entrada do ZIP é extraída para um arquivo temporário, dividida em blocos alinhados em '\n' e cada
+ * bloco é mapeado em memória e varrido (filtro, join, agregação) por uma tarefa do ForkJoinPool, com o
+ * mesmo laço do modo sequencial. No máximo 2x o paralelismo de blocos fica em voo (mapeado, em
+ * processamento ou esperando a junção), então a memória não cresce com o tamanho do arquivo. Cada bloco
+ * tem seu próprio agregador parcial, contadores e saída em memória (um de cada por conta do
+ * {@link FiltroContas}, mais as linhas tipadas da saída colunar); a thread que chamou junta os blocos na
+ * ordem do arquivo, então o consolidado sai na mesma ordem e a mesclagem dos agregadores é determinística.
+ */
+final class ProcessamentoEmBlocos {
+
+    private static final int PARALELISMO =
+            Integer.getInteger("ans.blocos.threads", Runtime.getRuntime().availableProcessors());
+    private static final long TAMANHO_BLOCO = Math.max(1, Long.getLong("ans.blocos.tamanhoKb", 8 * 1024)) * 1024;
+    // Janela lida em cada fronteira nominal até achar o '\n' seguinte
+    private static final int JANELA_FRONTEIRA = 1 << 16;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(Math.max(1, PARALELISMO));
+    // Blocos submetidos e ainda não juntados (como no GzipBlocos.Escritor)
+    private static final int MAX_PENDENTES = 2 * POOL.getParallelism();
+
+    private ProcessamentoEmBlocos() {
+    }
+
+    /**
+     * Extrai o CSV (posicionado no início da entrada do ZIP) para pastaTemporaria e o processa em blocos.
+     * Mesmo contrato do {@link ColetaDadosAns#processarCsvDemonstracoes}.
+     */
+    static void processar(InputStream csv, Path pastaTemporaria, String trim, String ano, int bitTrimestre,
+                          EscritorCsv writer,
+                          CadastroOperadoras cadastro,
+                          AgregadorDespesas agregador,
+                          MetricasExecucao.Contadores contadores) throws IOException {
+        processar(csv, pastaTemporaria, trim, ano, bitTrimestre, new EscritorCsv[] {writer}, null, cadastro,
+                new AgregadorDespesas[] {agregador}, contadores);
+    }
+
+    /** Uma saída e um agregador por conta, como no {@link ColetaDadosAns#processarLinhasDemonstracoes}. */
+    static void processar(InputStream csv, Path pastaTemporaria, String trim, String ano, int bitTrimestre,
+                          EscritorCsv[] writers,
+                          ConsolidadoColunar.DestinoTipado colunar,
+                          CadastroOperadoras cadastro,
+                          AgregadorDespesas[] agregadores,
+                          MetricasExecucao.Contadores contadores) throws IOException {
+        Path extraido = Files.createTempFile(pastaTemporaria, "entrada-", ".csv");
+        try {
+            Files.copy(csv, extraido, StandardCopyOption.REPLACE_EXISTING);
+            try (FileChannel canal = FileChannel.open(extraido, StandardOpenOption.READ)) {
+                processar(canal, trim, ano, bitTrimestre, writers, colunar, cadastro, agregadores, contadores);
+            }
+        } finally {
+            Files.deleteIfExists(extraido);
+        }
+    }
+
+    private static void processar(FileChannel canal, String trim, String ano, int bitTrimestre,
+                                  EscritorCsv[] writers,
+                                  ConsolidadoColunar.DestinoTipado colunar,
+                                  CadastroOperadoras cadastro,
+                                  AgregadorDespesas[] agregadores,
+                                  MetricasExecucao.Contadores contadores) throws IOException {
+        long tamanho = canal.size();
+        if (tamanho == 0) return;
+
+        // Cabeçalho na thread atual (a 1ª linha, com o mesmo leitor do modo sequencial)
+        long fimCabecalho = proximaQuebra(canal, 0, tamanho);
+        LeitorCsvBytes leitorCabecalho =
+                new LeitorCsvBytes(entrada(canal.map(FileChannel.MapMode.READ_ONLY, 0, fimCabecalho)));
+        if (!leitorCabecalho.proximaLinha()) return;
+        int[] colunas = ColetaDadosAns.colunasDemonstracoes(leitorCabecalho.linha());
+        if (colunas == null) return;
+
+        ArrayDeque<ForkJoinTask<Bloco>> pendentes = new ArrayDeque<>();
+        try {
+            for (long inicio = fimCabecalho; inicio < tamanho; ) {
+                long fim = proximaQuebra(canal, Math.min(inicio + TAMANHO_BLOCO, tamanho) - 1, tamanho);
+                MappedByteBuffer regiao = canal.map(FileChannel.MapMode.READ_ONLY, inicio, fim - inicio);
+                pendentes.add(POOL.submit(() -> processarBloco(regiao, colunas, trim, ano, bitTrimestre,
+                        colunar != null, cadastro, agregadores)));
+                inicio = fim;
+
+                // Junta na ordem do arquivo os que já terminaram; acima do limite, espera o mais antigo
+                // (os blocos seguintes continuam rodando enquanto este é escrito)
+                while (!pendentes.isEmpty() && (pendentes.size() > MAX_PENDENTES || pendentes.peek().isDone())) {
+                    juntar(pendentes.poll().join(), writers, colunar, cadastro, agregadores, contadores);
+                }
+            }
+            while (!pendentes.isEmpty()) {
+                juntar(pendentes.poll().join(), writers, colunar, cadastro, agregadores, contadores);
+            }
+        } finally {
+            for (ForkJoinTask<Bloco> tarefa : pendentes) tarefa.cancel(false);
+        }
+    }
+
+    private static void juntar(Bloco bloco, EscritorCsv[] writers, ConsolidadoColunar.DestinoTipado colunar,
+                               CadastroOperadoras cadastro, AgregadorDespesas[] agregadores,
+                               MetricasExecucao.Contadores contadores) throws IOException {
+        for (int i = 0; i < writers.length; i++) {
+            bloco.saidas[i].enviar(writers[i]);
+            agregadores[i].mesclar(bloco.agregadores[i]);
+        }
+        if (colunar != null) ConsolidadoColunar.repassar(bloco.linhas.entrada(), cadastro, colunar);
+        somar(contadores, bloco.contadores);
+    }
+
+    // Posição logo depois do primeiro '\n' em [de, tamanho), ou o fim do arquivo
+    private static long proximaQuebra(FileChannel canal, long de, long tamanho) throws IOException {
+        ByteBuffer janela = ByteBuffer.allocate(JANELA_FRONTEIRA);
+        for (long pos = de; pos < tamanho; ) {
+            janela.clear();
+            int lidos = canal.read(janela, pos);
+            if (lidos <= 0) break;
+            for (int i = 0; i < lidos; i++) {
+                if (janela.get(i) == '\n') return pos + i + 1;
+            }
+            pos += lidos;
+        }
+        return tamanho;
+    }
+
+    private static Bloco processarBloco(ByteBuffer regiao, int[] colunas, String trim, String ano, int bitTrimestre,
+                                        boolean colunar, CadastroOperadoras cadastro,
+                                        AgregadorDespesas[] agregadores) throws IOException {
+        long inicioCpu = MetricasExecucao.cpuThread();
+        Bloco bloco = new Bloco(agregadores, colunar);
+        EscritorCsv[] escritores = new EscritorCsv[agregadores.length];
+        for (int i = 0; i < escritores.length; i++) {
+            escritores[i] = new EscritorCsv(Channels.newChannel(bloco.saidas[i]));
+        }
+        ConsolidadoColunar.Parte linhas = colunar ? new ConsolidadoColunar.Parte(bloco.linhas) : null;
+        LeitorCsvBytes leitor = new LeitorCsvBytes(entrada(regiao));
+        ColetaDadosAns.processarLinhasDemonstracoes(leitor, colunas, trim, ano, bitTrimestre, escritores, linhas,
+                cadastro, bloco.agregadores, bloco.contadores);
+        // Saídas em memória: fechar só descarrega o buffer do escritor
+        for (EscritorCsv escritor : escritores) escritor.close();
+        if (linhas != null) linhas.close();
+        bloco.contadores.cpuNanos = MetricasExecucao.cpuThread() - inicioCpu;
+        return bloco;
+    }
+
+    private static void somar(MetricasExecucao.Contadores total, MetricasExecucao.Contadores bloco) {
+        total.linhasLidas += bloco.linhasLidas;
+        total.linhasFiltradas += bloco.linhasFiltradas;
+        total.joinAcertos += bloco.joinAcertos;
+        total.semRegistroAns += bloco.semRegistroAns;
+        total.semCadop += bloco.semCadop;
+        total.linhasEscritas += bloco.linhasEscritas;
+        total.cpuNanos += bloco.cpuNanos;
+    }
+
+    // O LeitorCsvBytes lê de um InputStream; sobre a região mapeada é só uma cópia para o buffer dele
+    private static InputStream entrada(ByteBuffer regiao) {
+        return new InputStream() {
+            @Override
+            public int read() {
+                return regiao.hasRemaining() ? regiao.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (!regiao.hasRemaining()) return -1;
+                int n = Math.min(len, regiao.remaining());
+                regiao.get(b, off, n);
+                return n;
+            }
+        };
+    }
+
+    // Resultado de um bloco, consumido uma única vez pela thread que junta
+    private static final class Bloco {
+        final SaidaBloco[] saidas;
+        final AgregadorDespesas[] agregadores;
+        final SaidaBloco linhas; // linhas tipadas para a saída colunar, ou null
+        final MetricasExecucao.Contadores contadores = new MetricasExecucao.Contadores("bloco");
+
+        // Saída e agregador parcial por conta
+        Bloco(AgregadorDespesas[] principais, boolean colunar) {
+            linhas = colunar ? new SaidaBloco() : null;
+            saidas = new SaidaBloco[principais.length];
+            agregadores = new AgregadorDespesas[principais.length];
+            for (int i = 0; i < principais.length; i++) {
+                saidas[i] = new SaidaBloco();
+                agregadores[i] = principais[i].novoParcial();
+            }
+        }
+    }
+
+    // Consolidado do bloco em memória, repassado ao escritor principal sem cópia extra
+    private static final class SaidaBloco extends ByteArrayOutputStream {
+        void enviar(EscritorCsv destino) throws IOException {
+            destino.anexar(buf, 0, count);
+        }
+
+        InputStream entrada() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Ordenação das linhas do agregado (total desc, desempate por Razão Social e UF) na etapa de saída, com
+ * memória limitada para as cópias das linhas.
+ *
+ * Modos (-Dans.ranking):
+ * - "memoria" (padrão): todas as linhas em memória e um sort, como antes.
+ * - "topk": heap limitado às {@code ans.ranking.k} maiores enquanto as linhas chegam; só elas são escritas.
+ * - "externo": ordena em memória até {@code ans.ranking.memoriaKb}; acima disso grava runs ordenados em
+ *   TEMP/ranking e faz o merge de k vias na escrita.
+ * Os três produzem a mesma ordem (o topk, o prefixo dela).
+ *
+ * O limite vale só para a ordenação: as linhas chegam depois da ingestão, lidas do {@link AgregadorDespesas},
+ * que continua com O(chaves) de memória (arrays por operadora e um {@link SketchQuantis} por chave). As chaves
+ * são as do CADOP, atribuídas na carga do cadastro, então esse custo não cresce com o volume das demonstrações.
+ */
+final class RankingDespesas implements AutoCloseable {
+
+    static final String MODO = System.getProperty("ans.ranking", "memoria").toLowerCase(Locale.ROOT);
+    private static final int K = Integer.getInteger("ans.ranking.k", 100);
+    private static final long MEMORIA_KB = Long.getLong("ans.ranking.memoriaKb", 64 * 1024);
+
+    /** Ordem do agregado: maior total primeiro; (Razão Social, UF) é único, então a ordem é total. */
+    static final Comparator<Linha> ORDEM = Comparator.comparingLong((Linha l) -> l.total).reversed()
+            .thenComparing(l -> l.razaoSocial)
+            .thenComparing(l -> l.uf);
+
+    /** Recebe as linhas já na ordem final. */
+    interface Destino {
+        void linha(Linha linha) throws IOException;
+    }
+
+    private final boolean topK;
+    private final boolean externo;
+    private final int k;
+    private final long memoriaBytes;
+    private final Path pastaRuns;
+
+    private final List<Linha> memoria = new ArrayList<>();
+    private final PriorityQueue<Linha> heap;
+    private long bytesEmMemoria;
+    private final List<Path> runs = new ArrayList<>();
+    private final List<Integer> tamanhosRuns = new ArrayList<>();
+
+    /** Ranking no modo configurado pelas propriedades ans.ranking*, com runs em pastaRuns. */
+    static RankingDespesas configurado(Path pastaRuns) {
+        return new RankingDespesas(MODO, K, MEMORIA_KB * 1024, pastaRuns);
+    }
+
+    RankingDespesas(String modo, int k, long memoriaBytes, Path pastaRuns) {
+        this.topK = "topk".equals(modo);
+        this.externo = "externo".equals(modo);
+        if (!topK && !externo && !"memoria".equals(modo)) throw new IllegalArgumentException("ans.ranking desconhecido: " + modo);
+        this.k = k;
+        this.memoriaBytes = memoriaBytes;
+        this.pastaRuns = pastaRuns;
+        // Min-heap na ordem do ranking: o topo é a pior das k mantidas
+        this.heap = topK ? new PriorityQueue<>(Math.max(1, k) + 1, ORDEM.reversed()) : null;
+    }
+
+    void adicionar(String razaoSocial, String uf, long total, long media, long desvio, long[] percentis) throws IOException {
+        Linha linha = new Linha(razaoSocial, uf, total, media, desvio, percentis);
+        if (topK) {
+            if (k <= 0) return;
+            if (heap.size() < k) {
+                heap.add(linha);
+            } else if (ORDEM.compare(linha, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(linha);
+            }
+            return;
+        }
+        memoria.add(linha);
+        if (externo) {
+            bytesEmMemoria += linha.bytesEstimados();
+            if (bytesEmMemoria >= memoriaBytes) gravarRun();
+        }
+    }
+
+    /** Número de runs gravados em disco (modo externo). */
+    int quantidadeRuns() {
+        return runs.size();
+    }
+
+    /** Entrega as linhas em ordem; chamar uma única vez, depois de todos os {@link #adicionar}. */
+    void escrever(Destino destino) throws IOException {
+        if (topK) {
+            List<Linha> melhores = new ArrayList<>(heap);
+            melhores.sort(ORDEM);
+            for (Linha l : melhores) destino.linha(l);
+            return;
+        }
+        if (runs.isEmpty()) {
+            memoria.sort(ORDEM);
+            for (Linha l : memoria) destino.linha(l);
+            return;
+        }
+        if (!memoria.isEmpty()) gravarRun();
+        mesclarRuns(destino);
+    }
+
+    // --- ORDENAÇÃO EXTERNA ---
+
+    private void gravarRun() throws IOException {
+        memoria.sort(ORDEM);
+        Files.createDirectories(pastaRuns);
+        Path run = Files.createTempFile(pastaRuns, "run-", ".bin");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+            for (Linha l : memoria) {
+                out.writeUTF(l.razaoSocial);
+                out.writeUTF(l.uf);
+                out.writeLong(l.total);
+                out.writeLong(l.media);
+                out.writeLong(l.desvio);
+                out.writeByte(l.percentis.length);
+                for (long p : l.percentis) out.writeLong(p);
+            }
+        }
+        runs.add(run);
+        tamanhosRuns.add(memoria.size());
+        memoria.clear();
+        bytesEmMemoria = 0;
+    }
+
+    // Merge de k vias: um cursor por run, sempre avançando o de menor linha
+    private void mesclarRuns(Destino destino) throws IOException {
+        List<Cursor> cursores = new ArrayList<>();
+        try {
+            PriorityQueue<Cursor> fila = new PriorityQueue<>(runs.size(), (a, b) -> ORDEM.compare(a.atual, b.atual));
+            for (int i = 0; i < runs.size(); i++) {
+                Cursor c = new Cursor(runs.get(i), tamanhosRuns.get(i));
+                cursores.add(c);
+                if (c.avancar()) fila.add(c);
+            }
+            while (!fila.isEmpty()) {
+                Cursor c = fila.poll();
+                destino.linha(c.atual);
+                if (c.avancar()) fila.add(c);
+            }
+        } finally {
+            for (Cursor c : cursores) c.in.close();
+        }
+    }
+
+    private static final class Cursor {
+        final DataInputStream in;
+        int restantes;
+        Linha atual;
+
+        Cursor(Path run, int linhas) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 1 << 16));
+            this.restantes = linhas;
+        }
+
+        boolean avancar() throws IOException {
+            if (restantes == 0) return false;
+            restantes--;
+            String razaoSocial = in.readUTF();
+            String uf = in.readUTF();
+            long total = in.readLong();
+            long media = in.readLong();
+            long desvio = in.readLong();
+            long[] percentis = new long[in.readUnsignedByte()];
+            for (int i = 0; i < percentis.length; i++) percentis[i] = in.readLong();
+            atual = new Linha(razaoSocial, uf, total, media, desvio, percentis);
+            return true;
+        }
+    }
+
+    /** Remove os runs temporários. */
+    @Override
+    public void close() throws IOException {
+        for (Path run : runs) Files.deleteIfExists(run);
+        runs.clear();
+    }
+
+    // --- LINHA ---
+
+    /** Linha do agregado, com valores em centavos. */
+    static final class Linha {
+        final String razaoSocial;
+        final String uf;
+        final long total;
+        final long media;
+        final long desvio;
+        final long[] percentis; // AgregadorDespesas.PERCENTIS
+
+        Linha(String razaoSocial, String uf, long total, long media, long desvio, long[] percentis) {
+            this.razaoSocial = razaoSocial;
+            this.uf = uf;
+            this.total = total;
+            this.media = media;
+            this.desvio = desvio;
+            this.percentis = percentis;
+        }
+
+        // Objeto + 3 longs + array de percentis + as duas Strings (cabeçalho + 1 byte por char em LATIN1)
+        long bytesEstimados() {
+            return 56 + 16 + 8L * percentis.length + 2L * 40 + razaoSocial.length() + uf.length();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serviço HTTP de consultas para o dashboard, servido do {@link IndiceConsultas} em memória, sem ida ao
+ * banco. Mesmas rotas e JSON do backend Flask (backend/app.py), na mesma porta 8000, então o frontend
+ * não muda; rodar depois do ETL, na raiz do projeto (lê TEMP/).
+ *
+ * - GET /operadoras?page=&limit=&search=   (+ cursor=&lt;registro_ans&gt; para paginação por chave)
+ * - GET /operadoras/{registro_ans}/detalhes
+ * - GET /dashboard/despesas-por-uf
+ * - GET /agregados?limit=&uf=&cursor=&lt;posicao&gt;   (ranking do despesas_agregadas.csv)
+ */
+public class ServicoConsultas {
+
+    private static final String TEMP_FOLDER = "TEMP";
+    private static final String CADASTRO_FOLDER = "cadastro";
+    private static final String OUTPUT_CONSOLIDADO = "consolidado_despesas.csv";
+    private static final String OUTPUT_AGREGADO = "despesas_agregadas.csv";
+
+    private static final int PORTA = Integer.getInteger("ans.servico.porta", 8000);
+    private static final int LIMITE_PADRAO = 10;
+    private static final int LIMITE_MAXIMO = 1000;
+
+    public static void main(String[] args) throws IOException {
+        Path tempDir = Paths.get(System.getProperty("user.dir"), TEMP_FOLDER);
+
+        long inicio = System.nanoTime();
+        IndiceConsultas indice = IndiceConsultas.carregar(
+                tempDir.resolve(CADASTRO_FOLDER).resolve(CadastroOperadoras.ARQUIVO_NORMALIZADO),
+                saida(tempDir.resolve(OUTPUT_CONSOLIDADO)),
+                saida(tempDir.resolve(OUTPUT_AGREGADO)));
+        System.out.println(" > Índice carregado em " + (System.nanoTime() - inicio) / 1_000_000 + " ms ("
+                + indice.numeroOperadoras() + " operadoras, " + indice.numeroAgregados() + " linhas do agregado)");
+
+        iniciar(indice, PORTA);
+        System.out.println("Serviço de consultas ouvindo na porta " + PORTA);
+    }
+
+    // CSV do ETL ou, se ele rodou com -Dans.gzip, o .csv.gz
+    private static Path saida(Path csv) {
+        Path gz = GzipBlocos.comprimido(csv);
+        return !Files.exists(csv) && Files.exists(gz) ? gz : csv;
+    }
+
+    static HttpServer iniciar(IndiceConsultas indice, int porta) throws IOException {
+        HttpServer servidor = HttpServer.create(new InetSocketAddress(porta), 0);
+        servidor.createContext("/", troca -> atender(indice, troca));
+        servidor.setExecutor(executor());
+        servidor.start();
+        return servidor;
+    }
+
+    // Uma thread virtual por requisição quando a JVM oferece (21+); no Java 17 do projeto, pool fixo
+    private static Executor executor() {
+        try {
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        }
+    }
+
+    // --- ROTAS ---
+
+    private static void atender(IndiceConsultas indice, HttpExchange troca) throws IOException {
+        try {
+            troca.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+            String metodo = troca.getRequestMethod();
+            if ("OPTIONS".equals(metodo)) {
+                troca.getResponseHeaders().set("Access-Control-Allow-Methods", "GET, OPTIONS");
+                troca.getResponseHeaders().set("Access-Control-Allow-Headers", "*");
+                troca.sendResponseHeaders(204, -1);
+                return;
+            }
+            if (!"GET".equals(metodo)) {
+                responder(troca, 405, erro("Método não suportado"));
+                return;
+            }
+
+            String caminho = troca.getRequestURI().getPath();
+            Map<String, String> params = parametros(troca.getRequestURI().getRawQuery());
+            try {
+                if (caminho.equals("/")) {
+                    responder(troca, 200, "{\"status\":\"API Java Online\"}");
+                } else if (caminho.equals("/operadoras")) {
+                    responder(troca, 200, indice.listarOperadoras(params.get("search"),
+                            Math.max(1, inteiro(params.get("page"), 1)), limite(params), params.get("cursor")));
+                } else if (caminho.startsWith("/operadoras/") && caminho.endsWith("/detalhes")) {
+                    String registro = caminho.substring("/operadoras/".length(), caminho.length() - "/detalhes".length());
+                    String detalhes = indice.detalhes(registro);
+                    if (detalhes == null) responder(troca, 404, erro("Operadora não encontrada"));
+                    else responder(troca, 200, detalhes);
+                } else if (caminho.equals("/dashboard/despesas-por-uf")) {
+                    responder(troca, 200, indice.despesasPorUf());
+                } else if (caminho.equals("/agregados")) {
+                    responder(troca, 200, indice.listarAgregados(params.get("uf"), limite(params), params.get("cursor")));
+                } else {
+                    responder(troca, 404, erro("Rota não encontrada"));
+                }
+            } catch (IllegalArgumentException e) {
+                responder(troca, 400, erro(e.getMessage()));
+            }
+        } finally {
+            troca.close();
+        }
+    }
+
+    private static void responder(HttpExchange troca, int status, String json) throws IOException {
+        byte[] corpo = json.getBytes(StandardCharsets.UTF_8);
+        troca.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        troca.sendResponseHeaders(status, corpo.length);
+        try (OutputStream out = troca.getResponseBody()) {
+            out.write(corpo);
+        }
+    }
+
+    private static String erro(String mensagem) {
+        StringBuilder sb = new StringBuilder("{");
+        Json.campo(sb, "erro", mensagem);
+        return sb.append('}').toString();
+    }
+
+    // --- PARÂMETROS ---
+
+    private static Map<String, String> parametros(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) return params;
+        for (String par : query.split("&")) {
+            int igual = par.indexOf('=');
+            String chave = URLDecoder.decode(igual < 0 ? par : par.substring(0, igual), StandardCharsets.UTF_8);
+            String valor = igual < 0 ? "" : URLDecoder.decode(par.substring(igual + 1), StandardCharsets.UTF_8);
+            params.putIfAbsent(chave, valor);
+        }
+        return params;
+    }
+
+    // Como o request.args.get(..., type=int) do Flask: valor inválido vira o padrão
+    private static int inteiro(String valor, int padrao) {
+        if (valor == null) return padrao;
+        try {
+            return Integer.parseInt(valor.trim());
+        } catch (NumberFormatException e) {
+            return padrao;
+        }
+    }
+
+    private static int limite(Map<String, String> params) {
+        return Math.min(LIMITE_MAXIMO, Math.max(1, inteiro(params.get("limit"), LIMITE_PADRAO)));
+    }
+}
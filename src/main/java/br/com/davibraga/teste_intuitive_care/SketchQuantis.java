@@ -0,0 +1,192 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Sketch de quantis no estilo KLL (Karnin, Lang e Liberty) para valores em centavos: memória limitada
+ * (O(k) valores, independente de quantas despesas a operadora tem) e mesclável, então trimestres,
+ * blocos paralelos e checkpoints se combinam sem guardar os valores originais.
+ *
+ * Os valores ficam em níveis; um item no nível h vale 2^h. Quando o total de itens passa da capacidade,
+ * o nível mais baixo cheio é ordenado e metade dos itens (posições pares ou ímpares, alternando) sobe
+ * para o nível seguinte. Os níveis abaixo do topo têm capacidade decrescente (fator 2/3), e o erro de
+ * rank fica em torno de 1,7/k (k = 200: ~1%). A alternância é determinística, então a mesma sequência de
+ * adições e mesclagens dá sempre o mesmo resultado; enquanto nada foi compactado (até ~k valores) o
+ * sketch é exato. Acima disso o resultado depende da ordem das mesclas: os modos concorrente, blocos e
+ * incremental mesclam em outra ordem que o sequencial e podem dar percentis diferentes, dentro desse erro.
+ *
+ * O quantil é o de rank mais próximo (o menor valor com pelo menos ceil(q * n) valores &lt;= a ele), como
+ * o percentile_disc do PostgreSQL.
+ */
+final class SketchQuantis {
+
+    /** Precisão padrão (-Dans.quantis.k); maior = mais preciso e mais memória. */
+    static final int K_PADRAO = Integer.getInteger("ans.quantis.k", 200);
+
+    private static final int CAPACIDADE_MINIMA = 2;
+    private static final double FATOR = 2.0 / 3.0;
+
+    private final int k;
+    private long[][] niveis;
+    private int[] tamanhos;
+    private int numNiveis;
+    private int retidos;
+    private int capacidadeTotal; // muda só quando um nível é criado
+    private long alternancia; // um bit por nível: de qual posição começa a próxima compactação
+    private long n;
+
+    SketchQuantis(int k) {
+        this.k = Math.max(CAPACIDADE_MINIMA, k);
+        this.niveis = new long[4][];
+        this.tamanhos = new int[4];
+        this.niveis[0] = new long[4];
+        this.numNiveis = 1;
+        this.capacidadeTotal = calcularCapacidadeTotal();
+    }
+
+    void adicionar(long valor) {
+        anexar(0, valor);
+        n++;
+        if (retidos > capacidadeTotal) comprimir();
+    }
+
+    /** Acrescenta os itens do outro sketch (que não é alterado). */
+    void mesclar(SketchQuantis outro) {
+        if (outro == null || outro.n == 0) return;
+        for (int h = 0; h < outro.numNiveis; h++) {
+            while (numNiveis <= h) novoNivel();
+            for (int i = 0; i < outro.tamanhos[h]; i++) anexar(h, outro.niveis[h][i]);
+        }
+        n += outro.n;
+        while (retidos > capacidadeTotal) comprimir();
+    }
+
+    long quantidade() {
+        return n;
+    }
+
+    // --- COMPACTAÇÃO ---
+
+    private void anexar(int nivel, long valor) {
+        long[] itens = niveis[nivel];
+        int t = tamanhos[nivel];
+        if (t == itens.length) niveis[nivel] = itens = Arrays.copyOf(itens, t * 2);
+        itens[t] = valor;
+        tamanhos[nivel] = t + 1;
+        retidos++;
+    }
+
+    private void novoNivel() {
+        if (numNiveis == niveis.length) {
+            niveis = Arrays.copyOf(niveis, numNiveis * 2);
+            tamanhos = Arrays.copyOf(tamanhos, numNiveis * 2);
+        }
+        niveis[numNiveis++] = new long[4];
+        capacidadeTotal = calcularCapacidadeTotal();
+    }
+
+    private int capacidade(int nivel) {
+        return Math.max(CAPACIDADE_MINIMA, (int) Math.ceil(k * Math.pow(FATOR, numNiveis - 1 - nivel)));
+    }
+
+    private int calcularCapacidadeTotal() {
+        int total = 0;
+        for (int h = 0; h < numNiveis; h++) total += capacidade(h);
+        return total;
+    }
+
+    // Compacta o nível mais baixo que está na capacidade (sempre existe um quando o total passou dela)
+    private void comprimir() {
+        for (int h = 0; h < numNiveis; h++) {
+            if (tamanhos[h] >= capacidade(h)) {
+                compactar(h);
+                return;
+            }
+        }
+    }
+
+    private void compactar(int h) {
+        if (h + 1 == numNiveis) novoNivel();
+        long[] itens = niveis[h];
+        int t = tamanhos[h];
+        Arrays.sort(itens, 0, t);
+
+        // Com quantidade ímpar, o último (maior) fica no nível
+        int pares = t & ~1;
+        int inicio = (int) ((alternancia >>> h) & 1);
+        alternancia ^= 1L << h;
+        for (int i = inicio; i < pares; i += 2) anexar(h + 1, itens[i]);
+
+        if (pares < t) itens[0] = itens[t - 1];
+        tamanhos[h] = t - pares;
+        retidos -= pares;
+    }
+
+    // --- CONSULTA ---
+
+    /** Quantis de rank mais próximo para cada q em (0, 1], numa única ordenação; 0 se o sketch está vazio. */
+    long[] quantis(double... qs) {
+        long[] resultado = new long[qs.length];
+        if (n == 0) return resultado;
+
+        // (valor, peso) de todos os níveis, ordenados por valor
+        long[] valores = new long[retidos];
+        int[] niveisDe = new int[retidos];
+        Integer[] ordem = new Integer[retidos];
+        for (int h = 0, i = 0; h < numNiveis; h++) {
+            for (int j = 0; j < tamanhos[h]; j++, i++) {
+                valores[i] = niveis[h][j];
+                niveisDe[i] = h;
+                ordem[i] = i;
+            }
+        }
+        Arrays.sort(ordem, (a, b) -> Long.compare(valores[a], valores[b]));
+
+        for (int q = 0; q < qs.length; q++) {
+            long alvo = Math.max(1, (long) Math.ceil(qs[q] * n));
+            long acumulado = 0;
+            long valor = valores[ordem[retidos - 1]];
+            for (int i = 0; i < retidos; i++) {
+                acumulado += 1L << niveisDe[ordem[i]];
+                if (acumulado >= alvo) {
+                    valor = valores[ordem[i]];
+                    break;
+                }
+            }
+            resultado[q] = valor;
+        }
+        return resultado;
+    }
+
+    // --- SERIALIZAÇÃO (checkpoint) ---
+
+    void escrever(DataOutputStream out) throws IOException {
+        out.writeLong(n);
+        out.writeLong(alternancia);
+        out.writeInt(numNiveis);
+        for (int h = 0; h < numNiveis; h++) {
+            out.writeInt(tamanhos[h]);
+            for (int i = 0; i < tamanhos[h]; i++) out.writeLong(niveis[h][i]);
+        }
+    }
+
+    static SketchQuantis ler(DataInputStream in, int k) throws IOException {
+        SketchQuantis s = new SketchQuantis(k);
+        long n = in.readLong();
+        s.alternancia = in.readLong();
+        int numNiveis = in.readInt();
+        if (numNiveis < 0 || numNiveis > 64) throw new IOException("Sketch com " + numNiveis + " níveis");
+        for (int h = 0; h < numNiveis; h++) {
+            while (s.numNiveis <= h) s.novoNivel();
+            int t = in.readInt();
+            for (int i = 0; i < t; i++) s.anexar(h, in.readLong());
+        }
+        s.n = n;
+        // Lido com outro k: ajusta à capacidade atual
+        while (s.retidos > s.capacidadeTotal) s.comprimir();
+        return s;
+    }
+}
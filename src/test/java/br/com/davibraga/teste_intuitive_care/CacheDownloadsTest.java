@@ -0,0 +1,180 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * CacheDownloads contra um servidor HTTP local (com.sun.net.httpserver) que entende If-None-Match, Range e
+ * If-Range pelo ETag, e que pode derrubar a conexão no meio de um download.
+ */
+class CacheDownloadsTest {
+
+    private static final String ARQUIVO = "1T2025.zip";
+
+    @TempDir
+    Path pasta;
+
+    private HttpServer servidor;
+    private final List<Map<String, String>> pedidos = new CopyOnWriteArrayList<>();
+    private volatile byte[] conteudo = bytes(1, 300_000);
+    private volatile String etag = "\"v1\"";
+    private volatile boolean cortarProximo;
+    private volatile boolean publicarAoCortar;
+
+    @BeforeEach
+    void iniciarServidor() throws IOException {
+        servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        servidor.createContext("/", this::responder);
+        servidor.start();
+    }
+
+    @AfterEach
+    void pararServidor() {
+        servidor.stop(0);
+    }
+
+    @Test
+    void arquivoSemAlteracaoNoServidorReaproveitaOCacheCom304() throws IOException {
+        Path primeiro = novoCache().obter(ARQUIVO);
+        assertArrayEquals(conteudo, Files.readAllBytes(primeiro));
+
+        // Nova execução (manifesto relido do disco)
+        CacheDownloads cache = novoCache();
+        Path segundo = cache.obter(ARQUIVO);
+
+        assertEquals(primeiro, segundo);
+        assertArrayEquals(conteudo, Files.readAllBytes(segundo));
+        assertEquals(0, cache.bytesBaixados(ARQUIVO));
+        assertEquals(2, pedidos.size());
+        assertEquals(etag, pedidos.get(1).get("If-None-Match"));
+        assertEquals("304", pedidos.get(1).get("status"));
+    }
+
+    @Test
+    void conexaoInterrompidaRetomaComRangeEIfRange() throws IOException {
+        cortarProximo = true;
+        CacheDownloads cache = novoCache();
+        Path arquivo = cache.obter(ARQUIVO);
+
+        assertArrayEquals(conteudo, Files.readAllBytes(arquivo));
+        assertEquals(2, pedidos.size());
+        assertNull(pedidos.get(0).get("Range"));
+        assertEquals("bytes=" + conteudo.length / 2 + "-", pedidos.get(1).get("Range"));
+        assertEquals(etag, pedidos.get(1).get("If-Range"));
+        assertEquals("206", pedidos.get(1).get("status"));
+        // Metade na tentativa que caiu, metade na retomada: nada baixado duas vezes
+        assertEquals(conteudo.length, cache.bytesBaixados(ARQUIVO));
+        assertEquals(CacheDownloads.sha256(arquivo), cache.checksum(ARQUIVO));
+    }
+
+    @Test
+    void retomadaDeOutraVersaoRecomecaDoZero() throws IOException {
+        // O download cai e o servidor publica outra versão antes da retomada: o If-Range não confere mais
+        cortarProximo = true;
+        publicarAoCortar = true;
+        CacheDownloads cache = novoCache();
+        Path arquivo = cache.obter(ARQUIVO);
+
+        assertArrayEquals(bytes(2, 300_000), Files.readAllBytes(arquivo));
+        assertEquals(2, pedidos.size());
+        assertEquals("\"v1\"", pedidos.get(1).get("If-Range"));
+        assertEquals("200", pedidos.get(1).get("status"));
+        assertEquals(CacheDownloads.sha256(arquivo), cache.checksum(ARQUIVO));
+    }
+
+    @Test
+    void checksumDiferenteDoManifestoForcaNovoDownload() throws IOException {
+        Path arquivo = novoCache().obter(ARQUIVO);
+
+        // Mesmo tamanho, um byte trocado: só o SHA-256 do manifesto pega
+        byte[] corrompido = Files.readAllBytes(arquivo);
+        corrompido[corrompido.length / 3] ^= 1;
+        Files.write(arquivo, corrompido);
+
+        CacheDownloads cache = novoCache();
+        Path baixado = cache.obter(ARQUIVO);
+
+        assertArrayEquals(conteudo, Files.readAllBytes(baixado));
+        assertEquals(2, pedidos.size());
+        assertNull(pedidos.get(1).get("If-None-Match"), "cache corrompido não pode ser revalidado");
+        assertEquals("200", pedidos.get(1).get("status"));
+        assertEquals(conteudo.length, cache.bytesBaixados(ARQUIVO));
+    }
+
+    private CacheDownloads novoCache() throws IOException {
+        return new CacheDownloads("http://127.0.0.1:" + servidor.getAddress().getPort() + "/", pasta.resolve("cache"));
+    }
+
+    private void responder(HttpExchange troca) throws IOException {
+        Map<String, String> pedido = new HashMap<>();
+        for (String cabecalho : new String[] {"If-None-Match", "Range", "If-Range"}) {
+            String valor = troca.getRequestHeaders().getFirst(cabecalho);
+            if (valor != null) pedido.put(cabecalho, valor);
+        }
+        pedidos.add(pedido);
+
+        byte[] corpo = conteudo;
+        String versao = etag;
+        troca.getResponseHeaders().set("ETag", versao);
+        if (versao.equals(pedido.get("If-None-Match"))) {
+            pedido.put("status", "304");
+            troca.sendResponseHeaders(304, -1);
+            troca.close();
+            return;
+        }
+
+        int inicio = 0;
+        String range = pedido.get("Range");
+        if (range != null && (pedido.get("If-Range") == null || versao.equals(pedido.get("If-Range")))) {
+            inicio = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+            troca.getResponseHeaders().set("Content-Range",
+                    "bytes " + inicio + "-" + (corpo.length - 1) + "/" + corpo.length);
+        }
+        int status = inicio > 0 ? 206 : 200;
+        pedido.put("status", String.valueOf(status));
+        troca.sendResponseHeaders(status, corpo.length - inicio);
+
+        OutputStream out = troca.getResponseBody();
+        if (cortarProximo) {
+            // Metade do corpo e a conexão cai (o cliente recebe menos que o Content-Length)
+            cortarProximo = false;
+            out.write(corpo, inicio, (corpo.length - inicio) / 2);
+            out.flush();
+            if (publicarAoCortar) {
+                conteudo = bytes(2, corpo.length);
+                etag = "\"v2\"";
+            }
+            troca.close(); // corpo menor que o anunciado: o servidor fecha a conexão
+            return;
+        }
+        out.write(corpo, inicio, corpo.length - inicio);
+        troca.close();
+    }
+
+    private static byte[] bytes(long semente, int tamanho) {
+        byte[] b = new byte[tamanho];
+        SplittableRandom random = new SplittableRandom(semente);
+        for (int i = 0; i < b.length; i++) b[i] = (byte) random.nextInt(256);
+        return b;
+    }
+}
@@ -0,0 +1,113 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Integração com o PostgreSQL: COPY na tabela de carga, troca pela definitiva e nomes de índices (os da tabela
+ * definitiva) e sequências depois de cargas repetidas. Só roda com -Dans.db.url (e ans.db.usuario/ans.db.senha,
+ * se diferentes do padrão); usa uma tabela própria, sem tocar nas do ETL.
+ */
+class CargaPostgresTest {
+
+    private static final String URL = System.getProperty("ans.db.url");
+    private static final String TABELA = "tb_teste_publicacao";
+    private static final String COLUNAS = "razao_social, valor";
+
+    @BeforeEach
+    void criarTabela() throws SQLException {
+        assumeTrue(URL != null, "sem -Dans.db.url: integração com o PostgreSQL não testada");
+        try (Connection conn = conectar(); Statement st = conn.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS " + TABELA + "_carga");
+            st.execute("DROP TABLE IF EXISTS " + TABELA);
+            st.execute("CREATE TABLE " + TABELA + " (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "razao_social VARCHAR(255), valor NUMERIC(18,2))");
+            // Nomes fora do padrão do LIKE, como no ddl.sql (idx_agregadas_total)
+            st.execute("CREATE INDEX idx_teste_valor ON " + TABELA + "(valor DESC)");
+            st.execute("CREATE UNIQUE INDEX idx_teste_razao ON " + TABELA + "(razao_social)");
+            st.execute("INSERT INTO " + TABELA + "(razao_social, valor) VALUES ('ANTIGA', 1)");
+        }
+    }
+
+    @Test
+    void publicarTrocaTabelaComIndicesESequenciaNosNomesDaDefinitiva() throws Exception {
+        carregar(true, "OPERADORA A", "OPERADORA \"B\"; LTDA");
+        assertEquals(List.of("1;OPERADORA A;1.50", "2;OPERADORA \"B\"; LTDA;3.00"), linhas());
+
+        // Cargas seguintes não acumulam nomes (..._carga_id_seq1, índices com _carga)
+        carregar(true, "OPERADORA C");
+        carregar(true, "OPERADORA D", "OPERADORA E");
+        assertEquals(List.of("1;OPERADORA D;1.50", "2;OPERADORA E;3.00"), linhas());
+
+        assertEquals(List.of("idx_teste_razao", "idx_teste_valor", TABELA + "_pkey"),
+                nomes("SELECT indexname FROM pg_indexes WHERE schemaname = current_schema() AND tablename = ? "
+                        + "ORDER BY 1", TABELA));
+        assertEquals(List.of(TABELA + "_id_seq"),
+                nomes("SELECT relname FROM pg_class WHERE relkind = 'S' AND relname LIKE ? "
+                        + "AND relnamespace = current_schema()::regnamespace ORDER BY 1", TABELA + "%"));
+        assertEquals(List.of(),
+                nomes("SELECT relname FROM pg_class WHERE relname LIKE ? "
+                        + "AND relnamespace = current_schema()::regnamespace", TABELA + "\\_carga%"));
+    }
+
+    @Test
+    void semPublicarATabelaDefinitivaNaoMuda() throws Exception {
+        carregar(false, "OPERADORA A");
+        assertEquals(List.of("1;ANTIGA;1.00"), linhas());
+        assertEquals(List.of(),
+                nomes("SELECT relname FROM pg_class WHERE relname LIKE ? "
+                        + "AND relnamespace = current_schema()::regnamespace", TABELA + "\\_carga%"));
+    }
+
+    // Mesmo caminho do ETL: EscritorCsv (com cabeçalho) sobre o canal do COPY; valores de 1,50 em 1,50
+    private static void carregar(boolean publicar, String... razoes) throws Exception {
+        try (CargaPostgres carga = CargaPostgres.conectar()) {
+            try (EscritorCsv csv = new EscritorCsv(carga.copiar(TABELA, COLUNAS))) {
+                csv.campo("razao_social").campo("valor").fimDeLinha();
+                for (int i = 0; i < razoes.length; i++) {
+                    csv.campo(razoes[i]).centavos(150L * (i + 1)).fimDeLinha();
+                }
+            }
+            if (publicar) carga.publicar();
+        }
+    }
+
+    private static List<String> linhas() throws SQLException {
+        List<String> linhas = new ArrayList<>();
+        try (Connection conn = conectar(); Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id, razao_social, valor FROM " + TABELA + " ORDER BY id")) {
+            while (rs.next()) {
+                linhas.add(rs.getLong(1) + ";" + rs.getString(2) + ";" + rs.getBigDecimal(3).toPlainString());
+            }
+        }
+        return linhas;
+    }
+
+    private static List<String> nomes(String sql, String parametro) throws SQLException {
+        List<String> nomes = new ArrayList<>();
+        try (Connection conn = conectar(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, parametro);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) nomes.add(rs.getString(1));
+            }
+        }
+        return nomes;
+    }
+
+    private static Connection conectar() throws SQLException {
+        return DriverManager.getConnection(URL, System.getProperty("ans.db.usuario", "postgres"),
+                System.getProperty("ans.db.senha", "password"));
+    }
+}
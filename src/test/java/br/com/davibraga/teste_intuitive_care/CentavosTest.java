@@ -0,0 +1,114 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/** Leitura no formato das demonstrações (texto e bytes), arredondamento e formatação do {@link Centavos}. */
+class CentavosTest {
+
+    // Texto -> centavos; mesma tabela para ler(CharSequence) e ler(byte[], int, int)
+    private static final Object[][] VALORES = {
+        {"1.234,56", 123456L},
+        {"1234,56", 123456L},
+        {"-1.234,56", -123456L},
+        {"-0,5", -50L},
+        {"0,5", 50L},
+        {"0,05", 5L},
+        {"-0,01", -1L},
+        {"0", 0L},
+        {"-0", 0L},
+        {"0,00", 0L},
+        {"42", 4200L},
+        {"1.000", 100000L},
+        {"1234.56", 12345600L}, // ponto é milhar, não decimal
+        {"007,10", 710L},
+        // Mais de duas casas: arredonda como o NUMERIC(18,2), metade para longe do zero, só pela 3ª casa
+        {"1,234", 123L},
+        {"1,235", 124L},
+        {"1,2349999", 123L},
+        {"-1,235", -124L},
+        {"-1,234", -123L},
+        {"0,999", 100L},
+        {"-0,995", -100L},
+        {"92233720368547758,07", Long.MAX_VALUE},
+        {"-92233720368547758,07", -Long.MAX_VALUE},
+        // Fora da gramática do antigo isNumeric: -?\d+(\.\d+)?(,\d+)?
+        {",99", Centavos.INVALIDO},
+        {"-,99", Centavos.INVALIDO},
+        {"", Centavos.INVALIDO},
+        {"-", Centavos.INVALIDO},
+        {"n/d", Centavos.INVALIDO},
+        {"abc", Centavos.INVALIDO},
+        {"1,", Centavos.INVALIDO},
+        {"1.", Centavos.INVALIDO},
+        {".5", Centavos.INVALIDO},
+        {"1,5,0", Centavos.INVALIDO},
+        {"1,2.3", Centavos.INVALIDO},
+        {"1.234.567,89", Centavos.INVALIDO}, // um só grupo de milhar
+        {"+1", Centavos.INVALIDO},
+        {"--1", Centavos.INVALIDO},
+        {" 1", Centavos.INVALIDO},
+        {"1 ", Centavos.INVALIDO},
+        {"1e3", Centavos.INVALIDO},
+        {"١٢", Centavos.INVALIDO} // dígitos não ASCII
+    };
+
+    @Test
+    void lerTextoEBytes() {
+        for (Object[] caso : VALORES) {
+            String texto = (String) caso[0];
+            long esperado = (Long) caso[1];
+            assertEquals(esperado, Centavos.ler(texto), "\"" + texto + "\"");
+
+            // No meio de uma linha, como o LeitorCsvBytes entrega os campos
+            byte[] linha = ("x;" + texto + ";y").getBytes(StandardCharsets.UTF_8);
+            int fim = linha.length - 2;
+            assertEquals(esperado, Centavos.ler(linha, 2, fim), "bytes \"" + texto + "\"");
+        }
+    }
+
+    @Test
+    void foraDoLongEstoura() {
+        String[] grandes = {"92233720368547758,08", "99999999999999999999", "-92233720368547758,99"};
+        for (String texto : grandes) {
+            assertThrows(ArithmeticException.class, () -> Centavos.ler(texto), texto);
+            byte[] bytes = texto.getBytes(StandardCharsets.US_ASCII);
+            assertThrows(ArithmeticException.class, () -> Centavos.ler(bytes, 0, bytes.length), texto);
+        }
+    }
+
+    @Test
+    void formatarELerFormatadoSaoInversos() {
+        assertEquals("0.00", Centavos.formatar(0));
+        assertEquals("0.07", Centavos.formatar(7));
+        assertEquals("-0.50", Centavos.formatar(-50));
+        assertEquals("-1234.56", Centavos.formatar(-123456));
+        assertEquals("92233720368547758.07", Centavos.formatar(Long.MAX_VALUE));
+        assertEquals("-92233720368547758.08", Centavos.formatar(Long.MIN_VALUE));
+
+        SplittableRandom random = new SplittableRandom(12);
+        for (int i = 0; i < 10_000; i++) {
+            long centavos = i % 2 == 0 ? random.nextLong(-100_000, 100_000) : random.nextLong();
+            if (centavos == Long.MIN_VALUE) continue;
+            String texto = Centavos.formatar(centavos);
+            assertEquals(centavos, Centavos.lerFormatado(texto), texto);
+            // O mesmo valor no formato das demonstrações
+            assertEquals(centavos, Centavos.ler(texto.replace('.', ',')), texto);
+        }
+    }
+
+    @Test
+    void dividirArredondaMetadeParaLongeDoZero() {
+        long[][] casos = {
+            // valor, divisor, esperado
+            {10, 4, 3}, {-10, 4, -3}, {10, -4, -3}, {-10, -4, 3},
+            {9, 4, 2}, {11, 4, 3}, {1, 3, 0}, {2, 3, 1}, {-2, 3, -1}, {0, 7, 0}
+        };
+        for (long[] c : casos) assertEquals(c[2], Centavos.dividir(c[0], c[1]), c[0] + " / " + c[1]);
+    }
+}
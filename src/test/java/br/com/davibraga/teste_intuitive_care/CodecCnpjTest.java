@@ -0,0 +1,99 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/** Leitura, validação (uma a uma e em lote) e formatação do {@link CodecCnpj}. */
+class CodecCnpjTest {
+
+    // CNPJs públicos conhecidos (exemplo da Receita, Petrobras, Banco do Brasil, Itaú)
+    private static final String[] VALIDOS = {"11222333000181", "33000167000101", "00000000000191", "60701190000104"};
+    private static final String[] INVALIDOS = {
+        "11222333000182", // segundo verificador errado
+        "11222333000191", // primeiro verificador errado
+        "11111111111111", // todos os dígitos iguais passam na conta, mas não valem
+        "00000000000000",
+        "1122233300018"   // 13 dígitos: vira 01122233300018
+    };
+
+    @Test
+    void leComPontuacaoESemPontuacao() {
+        assertEquals(11222333000181L, CodecCnpj.ler("11.222.333/0001-81"));
+        assertEquals(11222333000181L, CodecCnpj.ler("11222333000181"));
+        assertEquals(11222333000181L, CodecCnpj.ler(" \"11.222.333/0001-81\" "));
+        assertEquals(191L, CodecCnpj.ler("00.000.000/0001-91"));
+        // Só os 14 primeiros dígitos contam
+        assertEquals(11222333000181L, CodecCnpj.ler("11222333000181999"));
+        assertEquals(CodecCnpj.VAZIO, CodecCnpj.ler(""));
+        assertEquals(CodecCnpj.VAZIO, CodecCnpj.ler("vazio"));
+    }
+
+    @Test
+    void completaZerosAEsquerda() {
+        assertEquals("00000000000191", CodecCnpj.formatar(CodecCnpj.ler("191")));
+        assertEquals("00000000000191", ColetaDadosAns.padronizarCnpj("0001-91"));
+        assertEquals("01122233300018", ColetaDadosAns.padronizarCnpj("1122233300018"));
+        assertEquals("00000000000000", CodecCnpj.formatar(0));
+        assertEquals("", CodecCnpj.formatar(CodecCnpj.VAZIO));
+    }
+
+    @Test
+    void digitosVerificadores() {
+        for (String cnpj : VALIDOS) {
+            assertTrue(CodecCnpj.valido(CodecCnpj.ler(cnpj)), cnpj);
+            assertTrue(ColetaDadosAns.isCnpjValido(cnpj.substring(0, 2) + "." + cnpj.substring(2, 5) + "."
+                    + cnpj.substring(5, 8) + "/" + cnpj.substring(8, 12) + "-" + cnpj.substring(12)), cnpj);
+        }
+        for (String cnpj : INVALIDOS) assertFalse(CodecCnpj.valido(CodecCnpj.ler(cnpj)), cnpj);
+        assertFalse(CodecCnpj.valido(CodecCnpj.VAZIO));
+
+        assertTrue(CodecCnpj.formatoValido(11222333000182L));
+        assertFalse(CodecCnpj.formatoValido(11111111111111L));
+        assertFalse(CodecCnpj.formatoValido(CodecCnpj.VAZIO));
+    }
+
+    @Test
+    void validacaoEmLoteIgualAUmaAUma() {
+        SplittableRandom random = new SplittableRandom(11);
+        long[] cnpjs = new long[1_000];
+        for (int i = 0; i < cnpjs.length; i++) {
+            cnpjs[i] = i % 3 == 0 ? CodecCnpj.ler(VALIDOS[i % VALIDOS.length])
+                    : random.nextLong(-1, 100_000_000_000_000L);
+        }
+
+        // Só as primeiras "quantidade" posições são escritas
+        int quantidade = cnpjs.length - 10;
+        boolean[] validos = new boolean[cnpjs.length];
+        validos[quantidade] = true;
+        int total = CodecCnpj.validar(cnpjs, quantidade, validos);
+
+        boolean[] esperado = new boolean[cnpjs.length];
+        esperado[quantidade] = true;
+        int totalEsperado = 0;
+        for (int i = 0; i < quantidade; i++) {
+            esperado[i] = CodecCnpj.valido(cnpjs[i]);
+            if (esperado[i]) totalEsperado++;
+        }
+        assertArrayEquals(esperado, validos);
+        assertEquals(totalEsperado, total);
+        assertTrue(total >= quantidade / 3, "só " + total + " válidos");
+    }
+
+    @Test
+    void formatarELerSaoInversos() {
+        SplittableRandom random = new SplittableRandom(12);
+        for (int i = 0; i < 10_000; i++) {
+            long cnpj = random.nextLong(0, 100_000_000_000_000L);
+            String texto = CodecCnpj.formatar(cnpj);
+            assertEquals(14, texto.length(), texto);
+            assertEquals(cnpj, CodecCnpj.ler(texto));
+        }
+        for (String cnpj : VALIDOS) assertEquals(cnpj, CodecCnpj.formatar(CodecCnpj.ler(cnpj)));
+    }
+}
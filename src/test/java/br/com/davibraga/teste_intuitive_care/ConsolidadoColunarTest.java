@@ -0,0 +1,126 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Consolidado colunar gravado pelo ETL (-Dans.colunar=true) contra o consolidado_despesas.csv da mesma execução:
+ * linha a linha, pelos índices de operadora e CNPJ e nas somas por UF e trimestre.
+ */
+class ConsolidadoColunarTest {
+
+    @TempDir
+    Path pasta;
+
+    @Test
+    void mesmoConteudoDoCsv() throws Exception {
+        Path temp;
+        try (ExecucaoEtl etl = new ExecucaoEtl()) {
+            temp = etl.executar(pasta, "-Dans.colunar=true");
+        }
+        List<String> linhas = Files.readAllLines(temp.resolve("consolidado_despesas.csv"));
+        List<String[]> csv = new ArrayList<>();
+        for (String linha : linhas.subList(1, linhas.size())) csv.add(linha.split(";", -1));
+        assertTrue(csv.size() > 10_000, "só " + csv.size() + " linhas");
+
+        Map<String, List<Integer>> porRegistro = new HashMap<>();
+        Map<String, List<Integer>> porCnpj = new HashMap<>();
+        Map<String, Map<String, Long>> somas = new HashMap<>(); // "ano;trimestre" -> UF -> centavos
+        for (int i = 0; i < csv.size(); i++) {
+            String[] c = csv.get(i);
+            porRegistro.computeIfAbsent(c[5], chave -> new ArrayList<>()).add(i);
+            porCnpj.computeIfAbsent(c[0], chave -> new ArrayList<>()).add(i);
+            somas.computeIfAbsent(c[3] + ";" + c[2].charAt(0), chave -> new TreeMap<>())
+                 .merge(c[7], centavos(c[4]), Long::sum);
+        }
+
+        try (ConsolidadoColunar colunar = ConsolidadoColunar.abrir(temp.resolve("consolidado_despesas.col"))) {
+            assertEquals(csv.size(), colunar.numeroLinhas());
+            for (int i = 0; i < csv.size(); i++) {
+                String[] c = csv.get(i);
+                String[] lido = {
+                    colunar.cnpj(i), colunar.razaoSocial(i), colunar.trimestre(i), String.valueOf(colunar.ano(i)),
+                    c[4], colunar.registroAns(i), colunar.modalidade(i), colunar.uf(i)
+                };
+                assertArrayEquals(c, lido, "linha " + i);
+                assertEquals(centavos(c[4]), colunar.valorCentavos(i), "linha " + i);
+            }
+
+            // Operadoras do CADOP, registros fora dele (inclusive o não numérico) e um que não existe
+            assertTrue(porRegistro.containsKey("999999") && porRegistro.containsKey("ABC"),
+                    porRegistro.keySet().toString());
+            for (Map.Entry<String, List<Integer>> e : porRegistro.entrySet()) {
+                assertArrayEquals(indices(e.getValue()), colunar.linhasDaOperadora(e.getKey()),
+                        "registro " + e.getKey());
+            }
+            assertEquals(0, colunar.linhasDaOperadora("000000").length);
+            for (Map.Entry<String, List<Integer>> e : porCnpj.entrySet()) {
+                assertArrayEquals(indices(e.getValue()), colunar.linhasPorCnpj(e.getKey()), "CNPJ " + e.getKey());
+            }
+            assertEquals(0, colunar.linhasPorCnpj("00000000000191").length);
+
+            assertEquals(ExecucaoEtl.ARQUIVOS.length, somas.size(), somas.keySet().toString());
+            for (Map.Entry<String, Map<String, Long>> e : somas.entrySet()) {
+                int ano = Integer.parseInt(e.getKey().split(";")[0]);
+                int trimestre = Integer.parseInt(e.getKey().split(";")[1]);
+                Map<String, Long> esperado = new TreeMap<>(e.getValue());
+                esperado.values().removeIf(soma -> soma == 0);
+                assertEquals(esperado, colunar.somaPorUf(ano, trimestre), e.getKey());
+                for (Map.Entry<String, Long> uf : e.getValue().entrySet()) {
+                    assertEquals(uf.getValue().longValue(), colunar.somaPorUf(uf.getKey(), ano, trimestre),
+                            uf.getKey() + " " + e.getKey());
+                }
+            }
+            assertEquals(0, colunar.somaPorUf("SP", 2024, 1));
+            assertEquals(0, colunar.somaPorUf("XX", 2025, 1));
+        }
+    }
+
+    @Test
+    void semPublicarOArquivoAnteriorFica() throws IOException {
+        Path destino = pasta.resolve("consolidado_despesas.col");
+        try (ConsolidadoColunar.Escritor escritor = new ConsolidadoColunar.Escritor(destino)) {
+            escritor.adicionar("11222333000181", "OPERADORA", 1, 2025, 150, "400000", "Autogestão", "SP");
+            escritor.publicar();
+        }
+        byte[] publicado = Files.readAllBytes(destino);
+
+        // Execução que falha no meio: o close descarta as colunas e não toca no .col publicado
+        try (ConsolidadoColunar.Escritor escritor = new ConsolidadoColunar.Escritor(destino)) {
+            escritor.adicionar("33000167000101", "OUTRA", 2, 2025, 99, "400001", "Autogestão", "RJ");
+        }
+        assertArrayEquals(publicado, Files.readAllBytes(destino));
+        try (Stream<Path> arquivos = Files.list(pasta)) {
+            assertEquals(List.of(destino), arquivos.toList());
+        }
+        try (ConsolidadoColunar colunar = ConsolidadoColunar.abrir(destino)) {
+            assertEquals(1, colunar.numeroLinhas());
+            assertEquals(150, colunar.somaPorUf("SP", 2025, 1));
+            assertFalse(colunar.somaPorUf(2025, 2).containsKey("RJ"));
+        }
+    }
+
+    private static long centavos(String campo) {
+        return new BigDecimal(campo).movePointRight(2).longValueExact();
+    }
+
+    private static int[] indices(List<Integer> lista) {
+        return lista.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
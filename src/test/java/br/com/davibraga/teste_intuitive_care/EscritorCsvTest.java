@@ -0,0 +1,96 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/** Aspas, UTF-8 e centavos do {@link EscritorCsv}, conferidos byte a byte e relidos com o lerLinha. */
+class EscritorCsvTest {
+
+    private static final String FIM = System.lineSeparator();
+
+    // Campo -> como sai no CSV
+    private static final String[][] CAMPOS = {
+        {"OPERADORA", "OPERADORA"},
+        {"a;b", "\"a;b\""},
+        {"diz \"oi\"", "\"diz \"\"oi\"\"\""},
+        {"\"", "\"\"\"\""},
+        {"linha1\nlinha2", "\"linha1\nlinha2\""},
+        {"a\rb", "\"a\rb\""},
+        {"1,5", "1,5"}, // vírgula não é o separador
+        {"a, b, c", "a, b, c"},
+        {"'simples'", "'simples'"},
+        {"ASSISTÊNCIA À SAÚDE", "ASSISTÊNCIA À SAÚDE"},
+        {"x;\"ç\"", "\"x;\"\"ç\"\"\""},
+        {"€ 😀", "€ 😀"}, // 3 e 4 bytes em UTF-8
+        {"", ""},
+        {" ", " "}
+    };
+
+    @Test
+    void aspasSoQuandoPrecisa() throws IOException {
+        for (String[] caso : CAMPOS) {
+            String csv = escrever(e -> e.campo("antes").campo(caso[0]).campo("depois").fimDeLinha());
+            assertEquals("antes;" + caso[1] + ";depois" + FIM, csv, caso[0]);
+            String linha = csv.substring(0, csv.length() - FIM.length());
+            assertEquals(List.of("antes", caso[0], "depois"), EscritorCsv.lerLinha(linha), caso[0]);
+        }
+        // null sai vazio, como o campo vazio (NULL no COPY)
+        assertEquals(";;x" + FIM, escrever(e -> e.campo(null).campo("").campo("x").fimDeLinha()));
+        // Surrogate solto: '?', como o encoder UTF-8 do JDK
+        assertEquals("a?b" + FIM, escrever(e -> e.campo("a\uD83Db").fimDeLinha()));
+    }
+
+    @Test
+    void centavosComDuasCasas() throws IOException {
+        long[] valores = {
+            0, 1, -1, 7, 10, 99, 100, -50, 123456, -123456, 100_000_000_00L, Long.MAX_VALUE, Long.MIN_VALUE
+        };
+        String[] esperados = {
+            "0.00", "0.01", "-0.01", "0.07", "0.10", "0.99", "1.00", "-0.50", "1234.56", "-1234.56",
+            "100000000.00", "92233720368547758.07", "-92233720368547758.08"
+        };
+        for (int i = 0; i < valores.length; i++) {
+            long valor = valores[i];
+            assertEquals(esperados[i] + FIM, escrever(e -> e.centavos(valor).fimDeLinha()), esperados[i]);
+            assertEquals(Centavos.formatar(valor), esperados[i]);
+        }
+        assertEquals("x;-0.05;;0.00" + FIM,
+                escrever(e -> e.campo("x").centavos(-5).campo(null).centavos(0).fimDeLinha()));
+    }
+
+    @Test
+    void linhasMaioresQueOBufferSaemInteiras() throws IOException {
+        // Buffer mínimo (1 KiB) com campos que o atravessam, multibyte e entre aspas no meio da descarga
+        String longo = "AÇÃO;\"".repeat(700);
+        StringBuilder esperado = new StringBuilder();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (EscritorCsv csv = new EscritorCsv(Channels.newChannel(bytes), 16)) {
+            for (int i = 0; i < 50; i++) {
+                csv.campo(longo).centavos(-i * 101L).campo("fim").fimDeLinha();
+                esperado.append('"').append(longo.replace("\"", "\"\"")).append("\";")
+                        .append(Centavos.formatar(-i * 101L)).append(";fim").append(FIM);
+            }
+        }
+        assertArrayEquals(esperado.toString().getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+    }
+
+    private interface Escrita {
+        void em(EscritorCsv csv) throws IOException;
+    }
+
+    private static String escrever(Escrita escrita) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (EscritorCsv csv = new EscritorCsv(Channels.newChannel(bytes))) {
+            escrita.em(csv);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,220 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * ETL completo numa JVM filha, para os testes que comparam modos de execução.
+ *
+ * O ETL lê a configuração em constantes estáticas, então cada execução é um processo com o mesmo classpath,
+ * baixando de um servidor HTTP local ZIPs gerados aqui no layout da ANS, com um CADOP correspondente.
+ */
+final class ExecucaoEtl implements AutoCloseable {
+
+    static final String[] ARQUIVOS = {"1T2025.zip", "2T2025.zip", "3T2025.zip"};
+    static final int OPERADORAS = 40;
+    // ~450 despesas por operadora: acima do k padrão do sketch de quantis
+    static final int LINHAS_POR_TRIMESTRE = 12_000;
+    private static final double[] QUANTIS = {0.5, 0.9, 0.99}; // colunas P50/P90/P99 do agregado
+    // Erro de rank aceito nos percentis (o do sketch com k = 200 fica em torno de 1%)
+    private static final double ERRO_RANK = 0.02;
+    private static final String[] DESCRICOES = {
+        "Despesas com Eventos / Sinistros", "DESPESAS COM EVENTOS / SINISTROS", "Despesas Administrativas",
+        "Contraprestações Efetivas de Operações de Planos de Assistência à Saúde"
+    };
+
+    private final HttpServer servidor;
+    private final Map<String, byte[]> zips = new ConcurrentHashMap<>();
+    private final Set<String> indisponiveis = ConcurrentHashMap.newKeySet();
+
+    ExecucaoEtl() throws IOException {
+        for (int i = 0; i < ARQUIVOS.length; i++) zips.put(ARQUIVOS[i], zipDemonstracoes(ARQUIVOS[i], i + 1));
+        servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        servidor.createContext("/", troca -> {
+            String nome = troca.getRequestURI().getPath().substring(1);
+            byte[] zip = zips.get(nome);
+            if (zip == null) {
+                troca.sendResponseHeaders(404, -1);
+            } else if (indisponiveis.contains(nome)) {
+                troca.sendResponseHeaders(500, -1);
+            } else {
+                troca.sendResponseHeaders(200, zip.length);
+                try (OutputStream out = troca.getResponseBody()) {
+                    out.write(zip);
+                }
+            }
+            troca.close();
+        });
+        servidor.start();
+    }
+
+    /** O servidor passa a responder 500 para o arquivo (ou volta a servi-lo). */
+    void indisponivel(String arquivo, boolean indisponivel) {
+        if (indisponivel) indisponiveis.add(arquivo); else indisponiveis.remove(arquivo);
+    }
+
+    /** ETL com a pasta de trabalho raiz (CADOP em raiz/AUX_CSV); exige sucesso e devolve a pasta TEMP. */
+    Path executar(Path raiz, String... propriedades) throws IOException, InterruptedException {
+        String saida = executarComLog(raiz, propriedades);
+        assertTrue(!saida.contains("Exception"), raiz + ":\n" + saida);
+        return raiz.resolve("TEMP");
+    }
+
+    /** Como {@link #executar}, mas devolve o log e aceita falhas por arquivo (o ETL segue sem o trimestre). */
+    String executarComLog(Path raiz, String... propriedades) throws IOException, InterruptedException {
+        escreverCadop(raiz.resolve("AUX_CSV"));
+
+        List<String> comando = new ArrayList<>();
+        comando.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        comando.add("-cp");
+        comando.add(System.getProperty("java.class.path"));
+        comando.add("-Dans.baseUrl=http://127.0.0.1:" + servidor.getAddress().getPort() + "/");
+        comando.add("-Dans.arquivos=" + String.join(",", ARQUIVOS));
+        comando.add("-Dans.metricas=false");
+        comando.addAll(List.of(propriedades));
+        comando.add(ColetaDadosAns.class.getName());
+
+        Path log = raiz.resolve("log.txt");
+        Process processo = new ProcessBuilder(comando).directory(raiz.toFile())
+                .redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        assertEquals(0, processo.waitFor());
+        String saida = Files.readString(log, StandardCharsets.UTF_8);
+        assertTrue(saida.contains("Processo finalizado"), raiz + ":\n" + saida);
+        return saida;
+    }
+
+    /**
+     * Mesmo consolidado, byte a byte, e mesmo agregado; nos percentis basta cada modo ficar dentro do erro de
+     * rank do sketch, que acima de k despesas por operadora depende da ordem das mesclas. Os valores exatos de
+     * cada operadora vêm do próprio consolidado.
+     */
+    static void assertMesmoResultado(Path esperado, Path obtido) throws IOException {
+        byte[] consolidado = Files.readAllBytes(esperado.resolve("consolidado_despesas.csv"));
+        assertArrayEquals(consolidado, Files.readAllBytes(obtido.resolve("consolidado_despesas.csv")),
+                "consolidado " + obtido);
+
+        Map<String, long[]> valores = valoresPorOperadora(esperado);
+        List<String> linhasEsperadas = Files.readAllLines(esperado.resolve("despesas_agregadas.csv"));
+        List<String> linhasObtidas = Files.readAllLines(obtido.resolve("despesas_agregadas.csv"));
+        assertEquals(linhasEsperadas.size(), linhasObtidas.size(), "agregado " + obtido);
+        assertEquals(linhasEsperadas.get(0), linhasObtidas.get(0));
+        for (int i = 1; i < linhasEsperadas.size(); i++) {
+            String[] e = linhasEsperadas.get(i).split(";");
+            String[] o = linhasObtidas.get(i).split(";");
+            // Razão social, UF, total, média e desvio: exatos
+            assertArrayEquals(Arrays.copyOf(e, 5), Arrays.copyOf(o, 5), "agregado " + obtido + ", linha " + i);
+            long[] daOperadora = valores.get(e[0] + ";" + e[1]);
+            for (int q = 0; q < QUANTIS.length; q++) {
+                assertPercentil(daOperadora, QUANTIS[q], e[5 + q], "sequencial, linha " + i);
+                assertPercentil(daOperadora, QUANTIS[q], o[5 + q], obtido + ", linha " + i);
+            }
+        }
+    }
+
+    /** Valores (centavos, ordenados) de cada RazaoSocial;UF no consolidado da pasta TEMP. */
+    static Map<String, long[]> valoresPorOperadora(Path temp) throws IOException {
+        Map<String, List<Long>> listas = new HashMap<>();
+        List<String> linhas = Files.readAllLines(temp.resolve("consolidado_despesas.csv"));
+        for (String linha : linhas.subList(1, linhas.size())) {
+            String[] c = linha.split(";");
+            listas.computeIfAbsent(c[1] + ";" + c[7], chave -> new ArrayList<>()).add(centavos(c[4]));
+        }
+        Map<String, long[]> valores = new HashMap<>();
+        listas.forEach((chave, lista) -> valores.put(chave, lista.stream().mapToLong(Long::longValue).sorted().toArray()));
+        return valores;
+    }
+
+    // O valor tem de ser uma das despesas, com rank a até ERRO_RANK * n do rank exato do quantil
+    private static void assertPercentil(long[] valores, double q, String campo, String onde) {
+        long valor = centavos(campo);
+        int n = valores.length;
+        int menores = 0;
+        while (menores < n && valores[menores] < valor) menores++;
+        int ateIgual = menores;
+        while (ateIgual < n && valores[ateIgual] == valor) ateIgual++;
+        long alvo = Math.max(1, (long) Math.ceil(q * n));
+        long tolerancia = (long) Math.ceil(ERRO_RANK * n);
+        assertTrue(ateIgual > menores && ateIgual >= alvo - tolerancia && menores + 1 <= alvo + tolerancia,
+                "P" + Math.round(q * 100) + " " + campo + " com rank [" + (menores + 1) + ", " + ateIgual + "], esperado "
+                        + alvo + " ± " + tolerancia + " de " + n + " (" + onde + ")");
+    }
+
+    private static long centavos(String campo) {
+        return new BigDecimal(campo).movePointRight(2).longValueExact();
+    }
+
+    @Override
+    public void close() {
+        servidor.stop(0);
+    }
+
+    // A penúltima operadora não tem linhas nas demonstrações; a última tem a mesma Razão Social + UF da
+    // operadora 1 (mesma chave no agregado)
+    static Path escreverCadop(Path pasta) throws IOException {
+        StringBuilder cadop = new StringBuilder("REGISTRO_OPERADORA;CNPJ;Razao_Social;Nome_Fantasia;Modalidade;UF\n");
+        for (int i = 0; i < OPERADORAS; i++) {
+            String razao = i == OPERADORAS - 1 ? "OPERADORA 1" : "OPERADORA " + i;
+            cadop.append(400000 + i).append(';').append(String.format("%014d", 11222333000000L + i)).append(';')
+                 .append(razao).append(";vazio;Medicina de Grupo;").append(i % 2 == 0 ? "SP" : "RJ").append('\n');
+        }
+        Files.createDirectories(pasta);
+        Path arquivo = pasta.resolve("Relatorio_cadop.csv");
+        Files.writeString(arquivo, cadop, StandardCharsets.UTF_8);
+        return arquivo;
+    }
+
+    // Demonstrações no layout da ANS: REG_ANS fora do CADOP, REG_ANS não numérico e valores inválidos incluídos
+    private static byte[] zipDemonstracoes(String arquivo, long semente) throws IOException {
+        SplittableRandom random = new SplittableRandom(semente);
+        StringBuilder csv = new StringBuilder(
+                "\"DATA\";\"REG_ANS\";\"CD_CONTA_CONTABIL\";\"DESCRICAO\";\"VL_SALDO_INICIAL\";\"VL_SALDO_FINAL\"\n");
+        for (int i = 0; i < LINHAS_POR_TRIMESTRE; i++) {
+            int sorteio = random.nextInt(100);
+            int operadora = random.nextInt(OPERADORAS - 1);
+            if (operadora == OPERADORAS - 2) operadora = OPERADORAS - 1;
+            String registro = sorteio < 3 ? "999999" : sorteio < 4 ? "ABC" : String.valueOf(400000 + operadora);
+            long centavos = random.nextLong(-50_000, 900_000_000L);
+            String valor = sorteio == 99 ? "n/d"
+                    : String.format("%d,%02d", centavos / 100, Math.abs(centavos % 100));
+            csv.append("\"2025-01-01\";\"").append(registro).append("\";\"41\";\"")
+               .append(DESCRICOES[random.nextInt(DESCRICOES.length)]).append("\";\"0,00\";\"").append(valor).append("\"\n");
+        }
+
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip, StandardCharsets.UTF_8)) {
+            out.putNextEntry(new ZipEntry(arquivo.replace(".zip", ".csv")));
+            out.write(csv.toString().getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        return zip.toByteArray();
+    }
+
+    static int linhas(byte[] csv) {
+        int n = 0;
+        for (byte b : csv) if (b == '\n') n++;
+        return n;
+    }
+}
@@ -0,0 +1,69 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Execução incremental (-Dans.incremental=true) sobre a mesma pasta de trabalho em rodadas seguidas: reuso do
+ * checkpoint, trimestre cujo reprocessamento falha e -Dans.retirar, sempre com a saída do sequencial.
+ */
+class ExecucaoIncrementalTest {
+
+    @TempDir
+    Path pasta;
+
+    private ExecucaoEtl etl;
+
+    @BeforeEach
+    void iniciarServidor() throws IOException {
+        etl = new ExecucaoEtl();
+    }
+
+    @AfterEach
+    void pararServidor() {
+        etl.close();
+    }
+
+    @Test
+    void checkpointSobreviveAFalhaDeReprocessamento() throws Exception {
+        Path sequencial = etl.executar(pasta.resolve("sequencial"));
+        Path raiz = pasta.resolve("incremental");
+
+        // 1. Primeira rodada processa tudo e grava o checkpoint
+        String log = etl.executarComLog(raiz, "-Dans.incremental=true");
+        assertFalse(log.contains("usando checkpoint"), log);
+        ExecucaoEtl.assertMesmoResultado(sequencial, raiz.resolve("TEMP"));
+
+        // 2. Nada mudou: todos os trimestres vêm do checkpoint
+        log = etl.executarComLog(raiz, "-Dans.incremental=true");
+        for (String arquivo : ExecucaoEtl.ARQUIVOS) assertTrue(log.contains("usando checkpoint: " + arquivo), log);
+        ExecucaoEtl.assertMesmoResultado(sequencial, raiz.resolve("TEMP"));
+
+        // 3. O 2T2025 não revalida (HTTP 500), então é reprocessado, e o reprocessamento também falha
+        etl.indisponivel("2T2025.zip", true);
+        log = etl.executarComLog(raiz, "-Dans.incremental=true");
+        assertFalse(log.contains("usando checkpoint: 2T2025.zip"), log);
+        etl.indisponivel("2T2025.zip", false);
+
+        // 4. Com o mesmo ZIP de volta, o checkpoint do 2T2025 não pode valer (parte já sobrescrita): é refeito
+        log = etl.executarComLog(raiz, "-Dans.incremental=true");
+        assertFalse(log.contains("usando checkpoint: 2T2025.zip"), log);
+        assertTrue(log.contains("usando checkpoint: 1T2025.zip"), log);
+        ExecucaoEtl.assertMesmoResultado(sequencial, raiz.resolve("TEMP"));
+
+        // 5. -Dans.retirar força o reprocessamento de um trimestre com checkpoint válido
+        log = etl.executarComLog(raiz, "-Dans.incremental=true", "-Dans.retirar=1T2025.zip");
+        assertTrue(log.contains("Retirando trimestre do checkpoint: 1T2025.zip"), log);
+        assertFalse(log.contains("usando checkpoint: 1T2025.zip"), log);
+        assertTrue(log.contains("usando checkpoint: 2T2025.zip"), log);
+        ExecucaoEtl.assertMesmoResultado(sequencial, raiz.resolve("TEMP"));
+    }
+}
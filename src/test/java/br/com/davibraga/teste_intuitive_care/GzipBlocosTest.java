@@ -0,0 +1,163 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Gzip em blocos escrito pelo {@link GzipBlocos.Escritor} com blocos pequenos: o arquivo inteiro como um gzip só,
+ * cada bloco pelo índice e a busca do bloco de uma linha.
+ */
+class GzipBlocosTest {
+
+    private static final int TAMANHO_BLOCO = 256;
+
+    @TempDir
+    Path pasta;
+
+    @Test
+    void blocosBatemComOIndiceEComOArquivoInteiro() throws IOException {
+        byte[] csv = csv(5_000, 1);
+        Path gz = escrever("consolidado_despesas.csv.gz", csv, 2);
+        assertArrayEquals(csv, inflar(gz));
+
+        long[][] indice = indice(gz);
+        assertTrue(indice.length > 100, "só " + indice.length + " blocos");
+        try (GzipBlocos blocos = GzipBlocos.abrir(gz)) {
+            assertEquals(indice.length, blocos.quantidadeBlocos());
+            long offsetGz = 0;
+            long offsetCsv = 0;
+            long linha = 0;
+            for (int b = 0; b < indice.length; b++) {
+                long[] i = indice[b];
+                // Blocos contíguos no .gz e no CSV, cada um com linhas inteiras
+                assertEquals(b, i[0]);
+                assertEquals(offsetGz, i[1], "bloco " + b);
+                assertEquals(offsetCsv, i[3], "bloco " + b);
+                assertEquals(linha, i[5], "bloco " + b);
+                byte[] esperado = Arrays.copyOfRange(csv, (int) i[3], (int) (i[3] + i[4]));
+                assertArrayEquals(esperado, blocos.ler(b), "bloco " + b);
+                assertEquals('\n', esperado[esperado.length - 1], "bloco " + b);
+                assertEquals(i[6], ExecucaoEtl.linhas(esperado), "bloco " + b);
+                offsetGz += i[2];
+                offsetCsv += i[4];
+                linha += i[6];
+
+                // Primeira e última linha do bloco, e a última do anterior
+                assertEquals(b, blocos.blocoDaLinha(i[5]), "linha " + i[5]);
+                assertEquals(b, blocos.blocoDaLinha(i[5] + i[6] - 1), "linha " + (i[5] + i[6] - 1));
+                if (b > 0) assertEquals(b - 1, blocos.blocoDaLinha(i[5] - 1), "linha " + (i[5] - 1));
+            }
+            assertEquals(Files.size(gz), offsetGz);
+            assertEquals(csv.length, offsetCsv);
+            assertEquals(ExecucaoEtl.linhas(csv), linha);
+
+            // Cada linha, lida pelo bloco dela, é a mesma do CSV
+            String[] linhas = new String(csv, StandardCharsets.UTF_8).split("\n");
+            for (int l = 0; l < linhas.length; l += 37) {
+                int b = blocos.blocoDaLinha(l);
+                String[] doBloco = new String(blocos.ler(b), StandardCharsets.UTF_8).split("\n");
+                assertEquals(linhas[l], doBloco[(int) (l - indice[b][5])], "linha " + l);
+            }
+        }
+    }
+
+    @Test
+    void linhaMaiorQueOBlocoFicaInteira() throws IOException {
+        byte[] longa = ("Y".repeat(3 * TAMANHO_BLOCO) + "\n").getBytes(StandardCharsets.UTF_8);
+        byte[] csv = concatenar(csv(20, 2), longa, csv(20, 3));
+        Path gz = escrever("longa.csv.gz", csv, 3);
+        assertArrayEquals(csv, inflar(gz));
+
+        try (GzipBlocos blocos = GzipBlocos.abrir(gz)) {
+            int b = blocos.blocoDaLinha(21);
+            byte[] bloco = blocos.ler(b);
+            String[] linhas = new String(bloco, StandardCharsets.UTF_8).split("\n");
+            assertTrue(Arrays.asList(linhas).contains("Y".repeat(3 * TAMANHO_BLOCO)), "bloco " + b);
+        }
+    }
+
+    @Test
+    void arquivoVazioEUmMembroValido() throws IOException {
+        Path gz = escrever("vazio.csv.gz", new byte[0], 4);
+        assertTrue(Files.size(gz) > 0);
+        assertEquals(0, inflar(gz).length);
+
+        long[][] indice = indice(gz);
+        assertEquals(1, indice.length);
+        try (GzipBlocos blocos = GzipBlocos.abrir(gz)) {
+            assertEquals(1, blocos.quantidadeBlocos());
+            assertEquals(0, blocos.ler(0).length);
+            assertEquals(0, blocos.blocoDaLinha(0));
+        }
+    }
+
+    // Cabeçalho + linhas no formato do consolidado, de tamanhos variados e com acentos
+    private static byte[] csv(int linhas, long semente) {
+        SplittableRandom random = new SplittableRandom(semente);
+        StringBuilder csv = new StringBuilder(
+                "CNPJ;RazaoSocial;trimestre;Ano;ValorDespesas;RegistroANS;Modalidade;UF\n");
+        for (int i = 0; i < linhas; i++) {
+            csv.append(String.format("%014d", random.nextLong(100_000_000_000_000L))).append(';')
+               .append("ASSISTÊNCIA ").append("X".repeat(random.nextInt(60))).append(';')
+               .append(1 + random.nextInt(4)).append("T;2025;").append(random.nextInt(1_000_000)).append('.')
+               .append(String.format("%02d", random.nextInt(100))).append(';').append(400000 + i)
+               .append(";Autogestão;SP\n");
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Escreve em pedaços de tamanho aleatório, como o EscritorCsv ao esvaziar o buffer
+    private Path escrever(String nome, byte[] csv, long semente) throws IOException {
+        Path gz = pasta.resolve(nome);
+        SplittableRandom random = new SplittableRandom(semente);
+        try (GzipBlocos.Escritor escritor = new GzipBlocos.Escritor(gz, TAMANHO_BLOCO)) {
+            int pos = 0;
+            while (pos < csv.length) {
+                int n = Math.min(csv.length - pos, 1 + random.nextInt(3 * TAMANHO_BLOCO));
+                escritor.write(ByteBuffer.wrap(csv, pos, n));
+                pos += n;
+            }
+        }
+        return gz;
+    }
+
+    private static byte[] inflar(Path gz) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(gz))) {
+            return in.readAllBytes();
+        }
+    }
+
+    // bloco;offset_gz;bytes_gz;offset_csv;bytes_csv;primeira_linha;linhas
+    private static long[][] indice(Path gz) throws IOException {
+        List<String> linhas = Files.readAllLines(GzipBlocos.indice(gz));
+        assertEquals("bloco;offset_gz;bytes_gz;offset_csv;bytes_csv;primeira_linha;linhas", linhas.get(0));
+        return linhas.subList(1, linhas.size()).stream()
+                .map(linha -> Arrays.stream(linha.split(";")).mapToLong(Long::parseLong).toArray())
+                .toArray(long[][]::new);
+    }
+
+    private static byte[] concatenar(byte[]... partes) {
+        byte[] tudo = new byte[0];
+        for (byte[] parte : partes) {
+            int n = tudo.length;
+            tudo = Arrays.copyOf(tudo, n + parte.length);
+            System.arraycopy(parte, 0, tudo, n, parte.length);
+        }
+        return tudo;
+    }
+}
@@ -0,0 +1,158 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Busca do índice do serviço de consultas: trigramas, termos curtos, acentos e prefixos de CNPJ/registro. */
+class IndiceConsultasTest {
+
+    // Registro ANS, CNPJ e Razão Social
+    static final String[][] OPERADORAS = {
+        {"419761", "19541931000125", "18 DE JULHO ADMINISTRADORA DE BENEFÍCIOS LTDA"},
+        {"421545", "22869997000153", "2B ODONTOLOGIA OPERADORA DE PLANOS ODONTOLÓGICOS LTDA"},
+        {"421421", "27452545000195", "2CARE OPERADORA DE SAÚDE LTDA."},
+        {"418030", "13138885000131", "A.P.S. ADMINISTRADORA DE BENEFÍCOS LTDA."},
+        {"419770", "19541999000100", "Saude Total Ltda"},
+        {"300001", "04567123000188", "ÁGUA VIVA SAÚDE"},
+        {"300002", "04567123000269", "agua viva saude"},
+        {"300003", "61234567000190", "UNIMED CAMPINAS COOPERATIVA DE TRABALHO MÉDICO"},
+        {"300004", "61234567000271", "UNIMED CAMPINAS COOPERATIVA DE TRABALHO MÉDICO"},
+    };
+    static final int EXTRAS = 50;
+
+    private static final Pattern REGISTRO = Pattern.compile("\"registro_ans\":\"([^\"]*)\"");
+
+    @TempDir
+    Path pasta;
+
+    private IndiceConsultas indice;
+
+    @BeforeEach
+    void carregar() throws IOException {
+        indice = indice(pasta);
+    }
+
+    @Test
+    void termoComTrigramasCasaTrechoDaRazaoSocial() {
+        assertEquals(Set.of("421545"), buscar("odontol"));
+        assertEquals(Set.of("419761", "418030"), buscar("administradora"));
+        assertEquals(Set.of("300003", "300004"), buscar("campinas coop"));
+        assertEquals(Set.of(), buscar("odontologia de grupo"));
+        assertEquals(Set.of(), buscar("xyzw"));
+    }
+
+    @Test
+    void acentoECaixaNaoImportam() {
+        Set<String> saude = Set.of("421421", "419770", "300001", "300002");
+        assertEquals(saude, buscar("saúde"));
+        assertEquals(saude, buscar("SAUDE"));
+        assertEquals(saude, buscar("Saúde"));
+        assertEquals(Set.of("300001", "300002"), buscar("água viva"));
+        assertEquals(Set.of("300003", "300004"), buscar("medico"));
+    }
+
+    @Test
+    void termoCurtoVarreAsRazoesSociais() {
+        assertEquals(Set.of("421545"), buscar("2b"));
+        assertEquals(Set.of("300001", "300002"), buscar("Ág"));
+        assertEquals(indice.numeroOperadoras(), buscar("a").size());
+        assertEquals(indice.numeroOperadoras(), buscar("  ").size());
+    }
+
+    @Test
+    void digitosCasamPrefixoDeCnpjERegistro() {
+        // CNPJ com ou sem pontuação
+        assertEquals(Set.of("419761", "419770"), buscar("19.541.9"));
+        assertEquals(Set.of("419761"), buscar("19.541.931/0001-25"));
+        assertEquals(Set.of("300003", "300004"), buscar("61234567"));
+        // Registro ANS
+        assertEquals(Set.of("419761", "419770"), buscar("4197"));
+        // Número que também aparece na Razão Social ("18 DE JULHO") e em prefixos de CNPJ
+        Set<String> dezoito = buscar("18");
+        assertTrue(dezoito.contains("419761"));
+        assertEquals(Set.of("419761"), buscar("18 de"));
+    }
+
+    @Test
+    void buscaIgualAVarreduraCompleta() {
+        List<String> termos = new ArrayList<>(List.of("ltda", "de", "operadora 01", "operadora 1", "ra d", "ção", "0",
+                "195", "30000", "04.567.123/0002"));
+        for (String[] o : OPERADORAS) {
+            String razao = o[2];
+            for (int i = 0; i + 4 <= razao.length(); i += 5) termos.add(razao.substring(i, i + 4));
+        }
+        for (String termo : termos) {
+            Set<String> esperado = new TreeSet<>();
+            String nome = IndiceConsultas.normalizar(termo.trim());
+            String digitos = termo.trim().replace(".", "").replace("/", "").replace("-", "");
+            boolean numerico = digitos.chars().allMatch(Character::isDigit);
+            for (String[] o : todas()) {
+                if (IndiceConsultas.normalizar(o[2]).contains(nome)
+                        || numerico && (o[0].startsWith(digitos) || o[1].startsWith(digitos))) {
+                    esperado.add(o[0]);
+                }
+            }
+            assertEquals(esperado, new TreeSet<>(buscar(termo)), "termo \"" + termo + "\"");
+        }
+    }
+
+    private Set<String> buscar(String termo) {
+        Set<String> registros = new TreeSet<>(registros(indice.listarOperadoras(termo, 1, 1000, null)));
+        assertEquals(indice.buscar(termo).cardinality(), registros.size(), "termo \"" + termo + "\"");
+        return registros;
+    }
+
+    static List<String> registros(String json) {
+        List<String> registros = new ArrayList<>();
+        Matcher m = REGISTRO.matcher(json);
+        while (m.find()) registros.add(m.group(1));
+        return registros;
+    }
+
+    // OPERADORAS mais EXTRAS operadoras "OPERADORA nn" (razões em ordem diferente da dos registros)
+    static List<String[]> todas() {
+        List<String[]> todas = new ArrayList<>(List.of(OPERADORAS));
+        for (int i = 0; i < EXTRAS; i++) {
+            todas.add(new String[] {String.valueOf(500100 - i), String.format("%014d", 70000000000100L + i),
+                    String.format("OPERADORA %02d", (i * 7) % EXTRAS)});
+        }
+        return todas;
+    }
+
+    // CADOP normalizado (20 colunas), consolidado e agregado como o ETL grava em TEMP
+    static IndiceConsultas indice(Path pasta) throws IOException {
+        StringBuilder cadop = new StringBuilder(String.join(";", IndiceConsultas.COLUNAS_OPERADORA)).append('\n');
+        for (String[] o : todas()) {
+            cadop.append(o[0]).append(';').append(o[1]).append(';').append(o[2]).append(";vazio;Medicina de Grupo");
+            for (int c = 5; c < IndiceConsultas.COLUNAS_OPERADORA.length; c++) cadop.append(";").append(c == 10 ? "SP" : "vazio");
+            cadop.append('\n');
+        }
+        Path arquivoCadop = pasta.resolve("Relatorio_cadop.csv");
+        Files.writeString(arquivoCadop, cadop, StandardCharsets.UTF_8);
+
+        Path consolidado = pasta.resolve("consolidado_despesas.csv");
+        Files.writeString(consolidado, "CNPJ;RazaoSocial;trimestre;Ano;ValorDespesas;RegistroANS;Modalidade;UF\n"
+                + "19541931000125;18 DE JULHO ADMINISTRADORA DE BENEFÍCIOS LTDA;1T;2025;1234.56;419761;"
+                + "Administradora de Benefícios;MG\n", StandardCharsets.UTF_8);
+        Path agregado = pasta.resolve("despesas_agregadas.csv");
+        Files.writeString(agregado, "RazaoSocial;UF;TotalDespesas;MediaDespesasPorTrimestre;DesvioPadraoDespesas\n"
+                + "18 DE JULHO ADMINISTRADORA DE BENEFÍCIOS LTDA;MG;1234.56;1234.56;0.00\n", StandardCharsets.UTF_8);
+
+        return IndiceConsultas.carregar(arquivoCadop, consolidado, agregado);
+    }
+}
@@ -0,0 +1,77 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Laço quente do consolidado (LeitorCsvBytes + processarLinhasDemonstracoes): depois do aquecimento, varrer
+ * o arquivo não aloca nada, nem nas linhas rejeitadas (outra conta, valor inválido) nem nas aceitas com
+ * REG_ANS numérico do cadastro.
+ */
+class LeitorCsvBytesTest {
+
+    private static final String CADOP = "REGISTRO_OPERADORA;CNPJ;Razao_Social;Nome_Fantasia;Modalidade;UF\n"
+            + "419761;19541931000125;18 DE JULHO ADMINISTRADORA LTDA;vazio;Administradora de Benefícios;MG\n"
+            + "421545;22869997000153;2B ODONTOLOGIA LTDA;vazio;Odontologia de Grupo;SP\n";
+
+    // Aceita, outra conta, valor inválido, aceita com aspas e caixa alta
+    private static final String[] LINHAS = {
+        "2025-01-01;419761;411;Despesas com Eventos / Sinistros;10,00;1.234,56",
+        "2025-01-01;421545;311;Contraprestações Efetivas de Operações de Planos de Assistência à Saúde;1,00;99,90",
+        "2025-01-01;419761;411;Despesas com Eventos / Sinistros;1,00;1.2.3",
+        "\"2025-01-01\";\"421545\";\"411\";\"DESPESAS COM EVENTOS / SINISTROS\";\"0\";\"-7,5\"",
+    };
+    private static final int REPETICOES = 5_000;
+
+    @TempDir
+    Path pasta;
+
+    @Test
+    void processarLinhasNaoAlocaDepoisDoAquecimento() throws IOException {
+        Path cadop = pasta.resolve("cadop.csv");
+        Files.writeString(cadop, CADOP, StandardCharsets.UTF_8);
+        CadastroOperadoras cadastro = CadastroOperadoras.lerCsv(cadop, pasta.resolve("normalizado.csv"), "teste");
+
+        StringBuilder csv = new StringBuilder("DATA;REG_ANS;CD_CONTA_CONTABIL;DESCRICAO;VL_SALDO_INICIAL;VL_SALDO_FINAL\n");
+        for (int i = 0; i < REPETICOES; i++) {
+            for (String linha : LINHAS) csv.append(linha).append("\r\n");
+        }
+        byte[] dados = csv.toString().getBytes(StandardCharsets.UTF_8);
+
+        AgregadorDespesas[] agregadores = {cadastro.novoAgregador()};
+        long[] somaValores = new long[1];
+        ColetaDadosAns.DestinoLinhas destino = (contas, id, valor, registroSemCadop) -> somaValores[0] += valor;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        // Aquecimento até o laço ser compilado; a última rodada é a medida
+        long alocado = -1;
+        MetricasExecucao.Contadores contadores = null;
+        for (int rodada = 0; rodada < 200 && alocado != 0; rodada++) {
+            LeitorCsvBytes leitor = new LeitorCsvBytes(new ByteArrayInputStream(dados));
+            leitor.proximaLinha();
+            int[] colunas = ColetaDadosAns.colunasDemonstracoes(leitor.linha());
+            contadores = new MetricasExecucao.Contadores("teste");
+            somaValores[0] = 0;
+
+            long antes = threads.getThreadAllocatedBytes(thread);
+            ColetaDadosAns.processarLinhasDemonstracoes(leitor, colunas, 0, destino, cadastro, agregadores, contadores);
+            alocado = threads.getThreadAllocatedBytes(thread) - antes;
+        }
+
+        assertEquals(0, alocado, "bytes alocados numa varredura de " + dados.length + " bytes");
+        assertEquals(4L * REPETICOES, contadores.linhasLidas);
+        assertEquals(3L * REPETICOES, contadores.linhasFiltradas);
+        assertEquals(2L * REPETICOES, contadores.linhasEscritas);
+        assertEquals((123456 - 750) * (long) REPETICOES, somaValores[0]);
+    }
+}
@@ -0,0 +1,115 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import static br.com.davibraga.teste_intuitive_care.ExecucaoEtl.LINHAS_POR_TRIMESTRE;
+import static br.com.davibraga.teste_intuitive_care.ExecucaoEtl.OPERADORAS;
+import static br.com.davibraga.teste_intuitive_care.ExecucaoEtl.linhas;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Modo concorrente (um trimestre por thread, partes concatenadas e agregadores mesclados) e pipeline contra o
+ * sequencial.
+ *
+ * Cada modo roda numa JVM filha ({@link ExecucaoEtl}) sobre os mesmos ZIPs.
+ */
+class ModoConcorrenteTest {
+
+    @TempDir
+    Path pasta;
+
+    private ExecucaoEtl etl;
+
+    @BeforeEach
+    void iniciarServidor() throws IOException {
+        etl = new ExecucaoEtl();
+    }
+
+    @AfterEach
+    void pararServidor() {
+        etl.close();
+    }
+
+    @Test
+    void concorrenteGeraOMesmoConsolidadoEAgregadoDoSequencial() throws Exception {
+        Path sequencial = executar("sequencial");
+        Path concorrente = executar("concorrente", "-Dans.modo=concorrente");
+        Path concorrenteEmBlocos = executar("concorrente-blocos", "-Dans.modo=concorrente", "-Dans.blocos=true",
+                "-Dans.blocos.tamanhoKb=16");
+        // Blocos de 1 KB cortam linhas (~100 bytes) e os ZIPs em muitos pedaços; lotes de 7 linhas e filas de 2
+        // posições deixam as etapas esperando umas pelas outras o tempo todo
+        Path pipeline = executar("pipeline", "-Dans.pipeline=true", "-Dans.pipeline.blocoKb=1",
+                "-Dans.pipeline.lote=7", "-Dans.pipeline.profundidade=2");
+
+        byte[] consolidado = Files.readAllBytes(sequencial.resolve("consolidado_despesas.csv"));
+        byte[] agregado = Files.readAllBytes(sequencial.resolve("despesas_agregadas.csv"));
+        // Fixture com linhas de todos os tipos: 3 trimestres, 2 contas filtradas de 4, operadoras com várias linhas
+        assertTrue(linhas(consolidado) > LINHAS_POR_TRIMESTRE, "consolidado com " + linhas(consolidado) + " linhas");
+        assertEquals(OPERADORAS - 2, linhas(agregado) - 1); // sem a operadora sem linhas e a chave repetida
+        // Com o k padrão, operadoras acima de k despesas: percentis aproximados e dependentes da ordem das mesclas
+        assertTrue(ExecucaoEtl.valoresPorOperadora(sequencial).values().stream()
+                .anyMatch(valores -> valores.length > 2 * SketchQuantis.K_PADRAO));
+
+        for (Path saida : new Path[] {concorrente, concorrenteEmBlocos}) {
+            ExecucaoEtl.assertMesmoResultado(sequencial, saida);
+        }
+        // O pipeline alimenta um único agregador na ordem do sequencial: até os percentis saem iguais
+        assertArrayEquals(consolidado, Files.readAllBytes(pipeline.resolve("consolidado_despesas.csv")), "pipeline");
+        assertArrayEquals(agregado, Files.readAllBytes(pipeline.resolve("despesas_agregadas.csv")), "pipeline");
+    }
+
+    @Test
+    void mesclaDeParciaisIgualAoWelfordSequencial() throws IOException {
+        CadastroOperadoras cadastro = CadastroOperadoras.lerCsv(ExecucaoEtl.escreverCadop(pasta.resolve("cadop")),
+                pasta.resolve("cadop").resolve("normalizado.csv"), "teste");
+        AgregadorDespesas sequencial = cadastro.novoAgregador();
+        AgregadorDespesas mesclado = cadastro.novoAgregador();
+        AgregadorDespesas[] parciais = new AgregadorDespesas[7];
+        for (int i = 0; i < parciais.length; i++) parciais[i] = mesclado.novoParcial();
+
+        // Valores com ordens de grandeza bem diferentes; parciais de tamanhos desiguais (uma fica vazia)
+        SplittableRandom random = new SplittableRandom(7);
+        for (int n = 0; n < 50_000; n++) {
+            int id = cadastro.idAgregacao(random.nextInt(OPERADORAS));
+            long centavos = random.nextInt(3) == 0 ? random.nextLong(-10_000, 10_000) : random.nextLong(1, 5_000_000_000L);
+            int trimestre = n % 3;
+            sequencial.adicionar(id, centavos, trimestre);
+            parciais[(int) Math.min(parciais.length - 2, Math.abs(centavos) % 11)].adicionar(id, centavos, trimestre);
+        }
+        for (AgregadorDespesas parcial : parciais) mesclado.mesclar(parcial);
+
+        for (int id = 0; id < sequencial.tamanho(); id++) {
+            assertEquals(sequencial.contagem(id), mesclado.contagem(id));
+            assertEquals(sequencial.totalDespesas(id), mesclado.totalDespesas(id));
+            assertEquals(sequencial.mediaTrimestral(id), mesclado.mediaTrimestral(id));
+            assertEquals(sequencial.media(id), mesclado.media(id), Math.abs(sequencial.media(id)) * 1e-12 + 1e-9);
+            assertEquals(sequencial.m2(id), mesclado.m2(id), sequencial.m2(id) * 1e-12);
+            assertEquals(sequencial.desvioPadrao(id), mesclado.desvioPadrao(id), sequencial.desvioPadrao(id) * 1e-12);
+        }
+    }
+
+    @Test
+    void comKFolgadoOAgregadoEIdentico() throws Exception {
+        // Abaixo de k valores por operadora o sketch não compacta: os percentis são exatos em qualquer modo
+        Path sequencial = executar("sequencial", "-Dans.quantis.k=4096");
+        Path concorrente = executar("concorrente", "-Dans.quantis.k=4096", "-Dans.modo=concorrente");
+        for (String arquivo : new String[] {"consolidado_despesas.csv", "despesas_agregadas.csv"}) {
+            assertArrayEquals(Files.readAllBytes(sequencial.resolve(arquivo)),
+                    Files.readAllBytes(concorrente.resolve(arquivo)), arquivo);
+        }
+    }
+
+    private Path executar(String nome, String... propriedades) throws IOException, InterruptedException {
+        return etl.executar(pasta.resolve(nome), propriedades);
+    }
+}
@@ -0,0 +1,109 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Os três modos do {@link RankingDespesas} entregam a mesma sequência (o topk, o prefixo dela). */
+class RankingDespesasTest {
+
+    private static final int LINHAS = 5_000;
+
+    @TempDir
+    Path pasta;
+
+    @Test
+    void memoriaExternoETopkNaMesmaOrdem() throws IOException {
+        List<String> memoria = ordenar("memoria", 0, Long.MAX_VALUE);
+        assertEquals(LINHAS, memoria.size());
+
+        // ~200 bytes estimados por linha: runs de ~40 linhas
+        Path runs = pasta.resolve("ranking");
+        try (RankingDespesas externo = new RankingDespesas("externo", 0, 8 * 1024, runs)) {
+            adicionar(externo);
+            assertTrue(externo.quantidadeRuns() > 50, externo.quantidadeRuns() + " runs");
+            assertEquals(memoria, escrever(externo));
+        }
+        try (Stream<Path> restantes = Files.list(runs)) {
+            assertEquals(0, restantes.count());
+        }
+
+        for (int k : new int[] {1, 100, 2_500, LINHAS, LINHAS + 10}) {
+            assertEquals(memoria.subList(0, Math.min(k, LINHAS)), ordenar("topk", k, 0), "k = " + k);
+        }
+        assertEquals(List.of(), ordenar("topk", 0, 0));
+    }
+
+    @Test
+    void empatesNoTotalPorRazaoSocialEUf() throws IOException {
+        List<String> memoria = ordenar("memoria", 0, Long.MAX_VALUE);
+        int empates = 0;
+        for (int i = 1; i < memoria.size(); i++) {
+            String[] anterior = memoria.get(i - 1).split(";");
+            String[] atual = memoria.get(i).split(";");
+            long totalAnterior = Long.parseLong(anterior[2]);
+            long total = Long.parseLong(atual[2]);
+            assertTrue(totalAnterior >= total, "linha " + i);
+            if (totalAnterior == total) {
+                empates++;
+                int razao = anterior[0].compareTo(atual[0]);
+                assertTrue(razao < 0 || razao == 0 && anterior[1].compareTo(atual[1]) < 0, "linha " + i);
+            }
+        }
+        assertTrue(empates > LINHAS / 2, "só " + empates + " empates");
+    }
+
+    @Test
+    void vazioNaoGravaRuns() throws IOException {
+        try (RankingDespesas externo = new RankingDespesas("externo", 0, 1, pasta.resolve("vazio"))) {
+            assertEquals(List.of(), escrever(externo));
+            assertEquals(0, externo.quantidadeRuns());
+        }
+    }
+
+    @Test
+    void modoDesconhecido() {
+        assertThrows(IllegalArgumentException.class, () -> new RankingDespesas("heap", 10, 0, pasta));
+    }
+
+    private List<String> ordenar(String modo, int k, long memoriaBytes) throws IOException {
+        try (RankingDespesas ranking = new RankingDespesas(modo, k, memoriaBytes, pasta.resolve(modo))) {
+            adicionar(ranking);
+            assertEquals(0, ranking.quantidadeRuns());
+            return escrever(ranking);
+        }
+    }
+
+    // Totais de poucos valores distintos (muitos empates), a mesma Razão Social em UFs diferentes e acentos
+    private static void adicionar(RankingDespesas ranking) throws IOException {
+        SplittableRandom random = new SplittableRandom(15);
+        String[] ufs = {"SP", "RJ", "MG", "DESCONHECIDO"};
+        for (int i = 0; i < LINHAS; i++) {
+            String razaoSocial = (i % 3 == 0 ? "ASSISTÊNCIA " : "OPERADORA ") + (i / ufs.length);
+            long total = random.nextInt(10) == 0 ? -random.nextLong(1_000) : 1_000_00L * random.nextInt(20);
+            long[] percentis = {random.nextLong(1_000), random.nextLong(10_000), random.nextLong(100_000)};
+            ranking.adicionar(razaoSocial, ufs[i % ufs.length], total, total / 4, random.nextLong(1_000), percentis);
+        }
+    }
+
+    private static List<String> escrever(RankingDespesas ranking) throws IOException {
+        List<String> linhas = new ArrayList<>();
+        ranking.escrever(l -> {
+            assertEquals(3, l.percentis.length);
+            linhas.add(l.razaoSocial + ";" + l.uf + ";" + l.total + ";" + l.media + ";" + l.desvio + ";"
+                    + l.percentis[0] + ";" + l.percentis[1] + ";" + l.percentis[2]);
+        });
+        return linhas;
+    }
+}
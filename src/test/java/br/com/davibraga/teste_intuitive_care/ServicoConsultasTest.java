@@ -0,0 +1,108 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpServer;
+
+/** GET /operadoras: percorrer por página e por cursor devolve as mesmas operadoras, na mesma ordem. */
+class ServicoConsultasTest {
+
+    private static final Pattern CURSOR = Pattern.compile("\"next_cursor\":(?:null|\"([^\"]*)\")");
+
+    @TempDir
+    Path pasta;
+
+    private HttpServer servidor;
+
+    @BeforeEach
+    void iniciar() throws IOException {
+        servidor = ServicoConsultas.iniciar(IndiceConsultasTest.indice(pasta), 0);
+    }
+
+    @AfterEach
+    void parar() {
+        servidor.stop(0);
+    }
+
+    @Test
+    void paginasECursorPercorremAMesmaOrdem() throws IOException {
+        for (String busca : new String[] {null, "operadora", "saúde", "4", "xyzw"}) {
+            for (int limite : new int[] {1, 7, 10, 1000}) {
+                List<String> completa = IndiceConsultasTest.registros(get(busca, 1, 1000, null));
+
+                List<String> porPagina = new ArrayList<>();
+                for (int pagina = 1; ; pagina++) {
+                    List<String> registros = IndiceConsultasTest.registros(get(busca, pagina, limite, null));
+                    if (registros.isEmpty()) break;
+                    porPagina.addAll(registros);
+                }
+
+                List<String> porCursor = new ArrayList<>();
+                String cursor = null;
+                do {
+                    String json = get(busca, 1, limite, cursor);
+                    List<String> registros = IndiceConsultasTest.registros(json);
+                    porCursor.addAll(registros);
+                    Matcher m = CURSOR.matcher(json);
+                    assertTrue(m.find(), json);
+                    cursor = m.group(1);
+                    if (cursor != null) assertEquals(registros.get(registros.size() - 1), cursor);
+                } while (cursor != null);
+
+                String caso = "busca=" + busca + " limit=" + limite;
+                assertEquals(completa, porPagina, caso);
+                assertEquals(completa, porCursor, caso);
+                assertEquals(completa.size(), new HashSet<>(completa).size(), caso);
+            }
+        }
+    }
+
+    @Test
+    void listagemOrdenadaPorRazaoSocialERegistro() throws IOException {
+        List<String> registros = IndiceConsultasTest.registros(get(null, 1, 1000, null));
+        List<String[]> esperado = new ArrayList<>(IndiceConsultasTest.todas());
+        Collator collator = Collator.getInstance(new Locale("pt", "BR"));
+        esperado.sort((a, b) -> {
+            int c = collator.compare(a[2], b[2]);
+            return c != 0 ? c : a[0].compareTo(b[0]);
+        });
+        List<String> ordem = new ArrayList<>();
+        for (String[] o : esperado) ordem.add(o[0]);
+        assertEquals(ordem, registros);
+        // Razão Social repetida: desempate pelo registro ANS
+        assertTrue(registros.indexOf("300003") + 1 == registros.indexOf("300004"));
+    }
+
+    private String get(String busca, int pagina, int limite, String cursor) throws IOException {
+        StringBuilder url = new StringBuilder("http://127.0.0.1:").append(servidor.getAddress().getPort())
+                .append("/operadoras?page=").append(pagina).append("&limit=").append(limite);
+        if (busca != null) url.append("&search=").append(URLEncoder.encode(busca, StandardCharsets.UTF_8));
+        if (cursor != null) url.append("&cursor=").append(URLEncoder.encode(cursor, StandardCharsets.UTF_8));
+        HttpURLConnection conn = (HttpURLConnection) new URL(url.toString()).openConnection();
+        assertEquals(200, conn.getResponseCode(), url.toString());
+        try (InputStream in = conn.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
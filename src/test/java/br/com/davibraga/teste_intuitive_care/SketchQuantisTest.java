@@ -0,0 +1,152 @@
+package br.com.davibraga.teste_intuitive_care;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Erro de rank do {@link SketchQuantis} contra os quantis exatos, mesclagem contra um fluxo único e a
+ * serialização do checkpoint (inclusive lida com outro k).
+ */
+class SketchQuantisTest {
+
+    private static final int K = 200;
+    private static final double[] QS = {0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 1.0};
+    private static final int N = 100_000;
+
+    @Test
+    void exatoAteKValores() {
+        long[] valores = valores(K, 1);
+        SketchQuantis sketch = new SketchQuantis(K);
+        for (long v : valores) sketch.adicionar(v);
+
+        long[] ordenados = valores.clone();
+        Arrays.sort(ordenados);
+        long[] quantis = sketch.quantis(QS);
+        for (int i = 0; i < QS.length; i++) {
+            assertEquals(ordenados[(int) Math.max(1, Math.ceil(QS[i] * K)) - 1], quantis[i], "q = " + QS[i]);
+        }
+    }
+
+    @Test
+    void erroDeRankDentroDoLimite() {
+        long[] valores = valores(N, 2);
+        SketchQuantis sketch = new SketchQuantis(K);
+        for (long v : valores) sketch.adicionar(v);
+
+        assertEquals(N, sketch.quantidade());
+        assertErroDeRank(valores, sketch, K);
+    }
+
+    @Test
+    void mesclaEquivaleAoFluxoUnico() {
+        long[] valores = valores(N, 3);
+        SketchQuantis unico = new SketchQuantis(K);
+        for (long v : valores) unico.adicionar(v);
+
+        // Parciais de tamanhos desiguais, como trimestres e blocos (uma vazia), mesclados em duas ordens
+        SketchQuantis[] parciais = new SketchQuantis[8];
+        for (int i = 0; i < parciais.length; i++) parciais[i] = new SketchQuantis(K);
+        SplittableRandom random = new SplittableRandom(4);
+        for (long v : valores) parciais[random.nextInt(parciais.length - 1) / (random.nextBoolean() ? 1 : 2)].adicionar(v);
+        SketchQuantis mesclado = new SketchQuantis(K);
+        SketchQuantis invertido = new SketchQuantis(K);
+        for (int i = 0; i < parciais.length; i++) {
+            mesclado.mesclar(parciais[i]);
+            invertido.mesclar(parciais[parciais.length - 1 - i]);
+        }
+
+        for (SketchQuantis s : new SketchQuantis[] {mesclado, invertido}) {
+            assertEquals(unico.quantidade(), s.quantidade());
+            assertErroDeRank(valores, s, K);
+        }
+
+        // Mesma sequência de mesclagens, mesmo resultado
+        SketchQuantis denovo = new SketchQuantis(K);
+        for (SketchQuantis parcial : parciais) denovo.mesclar(parcial);
+        assertArrayEquals(mesclado.quantis(QS), denovo.quantis(QS));
+    }
+
+    @Test
+    void escreverELerPreservamOSketch() throws IOException {
+        long[] valores = valores(N, 5);
+        SketchQuantis sketch = new SketchQuantis(K);
+        for (long v : valores) sketch.adicionar(v);
+        byte[] serializado = serializar(sketch);
+
+        // Mesmo k: mesmo estado (reserializa igual) e mesmos quantis, inclusive depois de novas adições
+        SketchQuantis lido = ler(serializado, K);
+        assertArrayEquals(serializado, serializar(lido));
+        assertArrayEquals(sketch.quantis(QS), lido.quantis(QS));
+        for (long v : valores(1_000, 6)) {
+            sketch.adicionar(v);
+            lido.adicionar(v);
+        }
+        assertArrayEquals(serializar(sketch), serializar(lido));
+
+        // k maior: nada a compactar, mesmos quantis; k menor: compacta na leitura, com o erro do k menor
+        assertArrayEquals(ler(serializado, 4 * K).quantis(QS), ler(serializado, K).quantis(QS));
+        SketchQuantis menor = ler(serializado, K / 4);
+        assertEquals(N, menor.quantidade());
+        assertErroDeRank(valores, menor, K / 4);
+    }
+
+    @Test
+    void vazioDaZero() {
+        assertArrayEquals(new long[QS.length], new SketchQuantis(K).quantis(QS));
+    }
+
+    // Centavos com negativos, repetidos e ordens de grandeza diferentes, como as despesas
+    private static long[] valores(int n, long semente) {
+        SplittableRandom random = new SplittableRandom(semente);
+        long[] valores = new long[n];
+        for (int i = 0; i < n; i++) {
+            int sorteio = random.nextInt(10);
+            valores[i] = sorteio == 0 ? random.nextLong(-50_000, 0)
+                    : sorteio == 1 ? 100_00 * random.nextInt(5)
+                    : random.nextLong(1, 900_000_000L);
+        }
+        return valores;
+    }
+
+    // Rank do quantil devolvido a até 2/k de ceil(q * n) (o erro esperado é ~1,7/k)
+    private static void assertErroDeRank(long[] valores, SketchQuantis sketch, int k) {
+        long[] ordenados = valores.clone();
+        Arrays.sort(ordenados);
+        int n = ordenados.length;
+        long[] quantis = sketch.quantis(QS);
+        for (int i = 0; i < QS.length; i++) {
+            long valor = quantis[i];
+            int menores = 0;
+            while (menores < n && ordenados[menores] < valor) menores++;
+            int ateIgual = menores;
+            while (ateIgual < n && ordenados[ateIgual] == valor) ateIgual++;
+            long alvo = Math.max(1, (long) Math.ceil(QS[i] * n));
+            long tolerancia = (long) Math.ceil(2.0 / k * n);
+            assertTrue(ateIgual > menores && ateIgual >= alvo - tolerancia && menores + 1 <= alvo + tolerancia,
+                    "q = " + QS[i] + ": rank [" + (menores + 1) + ", " + ateIgual + "], esperado " + alvo + " ± " + tolerancia);
+        }
+    }
+
+    private static byte[] serializar(SketchQuantis sketch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            sketch.escrever(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static SketchQuantis ler(byte[] serializado, int k) throws IOException {
+        return SketchQuantis.ler(new DataInputStream(new ByteArrayInputStream(serializado)), k);
+    }
+}